@@ -0,0 +1,338 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Arquivo compactado com as transações antigas de uma conta (<conta>.arq)
+ * Guarda os mesmos registros de 32 bytes do journal em blocos de até REGISTROS_POR_BLOCO
+ * registros, comprimidos de forma independente (Deflater), cada um com a data do seu primeiro
+ * registro: arquivar só anexa blocos novos e uma leitura descomprime só os blocos de que precisa.
+ * O cabeçalho registra o limite do arquivamento (registros do segmento ativo anteriores a ele
+ * já estão no arquivo) e a quantidade de registros confirmados: blocos além dela, de uma
+ * anexação interrompida, são ignorados e descartados na próxima anexação
+ *
+ * Layout: magic(4) versão(2) tamanho do registro(2) limite em epoch millis(8) quantidade(4),
+ * seguido dos blocos: data do primeiro registro(8) registros(4) bytes comprimidos(4) dados comprimidos.
+ * A versão 1, com um único fluxo comprimido, é convertida para blocos na primeira abertura
+ */
+public class ArquivoTransacoes {
+    static final int REGISTROS_POR_BLOCO = 1024;
+
+    private static final int MAGIC = 0x4A415243; // "JARC"
+    private static final short VERSAO = 2;
+    private static final short VERSAO_FLUXO_UNICO = 1;
+    private static final int TAMANHO_CABECALHO = 20;
+    private static final int OFFSET_LIMITE = 8;
+    private static final int TAMANHO_CABECALHO_BLOCO = 16;
+    private static final int TAMANHO_REGISTRO = CodecTransacao.TAMANHO_REGISTRO;
+
+    private final Path arquivo;
+    private final long limite;
+    private final int quantidade;
+
+    // Índice dos blocos confirmados (vazio quando só o cabeçalho foi lido)
+    private final long[] primeiraData;
+    private final int[] primeiroRegistro;
+    private final long[] posicao;
+    private final int[] bytesComprimidos;
+    private final long fim;
+    private final long tamanho;
+
+    private ArquivoTransacoes(Path arquivo, long limite, int quantidade, long[] primeiraData,
+                              int[] primeiroRegistro, long[] posicao, int[] bytesComprimidos, long fim, long tamanho) {
+        this.arquivo = arquivo;
+        this.limite = limite;
+        this.quantidade = quantidade;
+        this.primeiraData = primeiraData;
+        this.primeiroRegistro = primeiroRegistro;
+        this.posicao = posicao;
+        this.bytesComprimidos = bytesComprimidos;
+        this.fim = fim;
+        this.tamanho = tamanho;
+    }
+
+    /**
+     * Lê o cabeçalho e o índice de blocos, sem descomprimir nenhum registro
+     * O índice vem dos cabeçalhos dos blocos, saltando de um para o outro
+     */
+    public static ArquivoTransacoes abrir(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer cabecalho = lerCompleto(canal, ByteBuffer.allocate(TAMANHO_CABECALHO), 0);
+            if (validarCabecalho(cabecalho, arquivo) != VERSAO_FLUXO_UNICO) {
+                return indexar(arquivo, canal, cabecalho);
+            }
+        }
+        converterFluxoUnico(arquivo);
+        return abrir(arquivo);
+    }
+
+    private static ArquivoTransacoes indexar(Path arquivo, FileChannel canal, ByteBuffer cabecalho) throws IOException {
+        long limite = cabecalho.getLong();
+        int quantidade = cabecalho.getInt();
+
+        int capacidade = Math.max(4, quantidade / REGISTROS_POR_BLOCO + 1);
+        long[] primeiraData = new long[capacidade];
+        int[] primeiroRegistro = new int[capacidade];
+        long[] posicao = new long[capacidade];
+        int[] bytesComprimidos = new int[capacidade];
+        int blocos = 0;
+        int registros = 0;
+        long proximo = TAMANHO_CABECALHO;
+        ByteBuffer bloco = ByteBuffer.allocate(TAMANHO_CABECALHO_BLOCO);
+        while (registros < quantidade) {
+            lerCompleto(canal, bloco.clear(), proximo);
+            if (bloco.remaining() < TAMANHO_CABECALHO_BLOCO) {
+                throw new IOException("Arquivo de transações incompleto: " + arquivo);
+            }
+            if (blocos == primeiraData.length) {
+                primeiraData = Arrays.copyOf(primeiraData, blocos * 2);
+                primeiroRegistro = Arrays.copyOf(primeiroRegistro, blocos * 2);
+                posicao = Arrays.copyOf(posicao, blocos * 2);
+                bytesComprimidos = Arrays.copyOf(bytesComprimidos, blocos * 2);
+            }
+            primeiraData[blocos] = bloco.getLong(0);
+            primeiroRegistro[blocos] = registros;
+            posicao[blocos] = proximo + TAMANHO_CABECALHO_BLOCO;
+            bytesComprimidos[blocos] = bloco.getInt(12);
+            registros += bloco.getInt(8);
+            proximo = posicao[blocos] + bytesComprimidos[blocos];
+            blocos++;
+        }
+        if (registros != quantidade) {
+            throw new IOException("Arquivo de transações corrompido: " + arquivo);
+        }
+        return new ArquivoTransacoes(arquivo, limite, quantidade, Arrays.copyOf(primeiraData, blocos),
+                Arrays.copyOf(primeiroRegistro, blocos), Arrays.copyOf(posicao, blocos),
+                Arrays.copyOf(bytesComprimidos, blocos), proximo, canal.size());
+    }
+
+    /**
+     * Lê só o cabeçalho (limite e quantidade), sem o índice de blocos
+     */
+    public static ArquivoTransacoes lerCabecalho(Path arquivo) throws IOException {
+        ByteBuffer cabecalho;
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            cabecalho = lerCompleto(canal, ByteBuffer.allocate(TAMANHO_CABECALHO), 0);
+        }
+        validarCabecalho(cabecalho, arquivo);
+        return new ArquivoTransacoes(arquivo, cabecalho.getLong(), cabecalho.getInt(),
+                new long[0], new int[0], new long[0], new int[0], TAMANHO_CABECALHO, -1);
+    }
+
+    private static short validarCabecalho(ByteBuffer conteudo, Path arquivo) throws IOException {
+        if (conteudo.remaining() < TAMANHO_CABECALHO || conteudo.getInt() != MAGIC) {
+            throw new IOException("Arquivo de transações inválido: " + arquivo);
+        }
+        short versao = conteudo.getShort();
+        if ((versao != VERSAO && versao != VERSAO_FLUXO_UNICO) || conteudo.getShort() != TAMANHO_REGISTRO) {
+            throw new IOException("Arquivo de transações em formato desconhecido: " + arquivo);
+        }
+        return versao;
+    }
+
+    /**
+     * Descomprime um bloco e devolve os seus registros, começando na posição 0
+     */
+    public ByteBuffer lerBloco(int bloco) throws IOException {
+        ByteBuffer comprimido = ByteBuffer.allocate(bytesComprimidos[bloco]);
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            lerCompleto(canal, comprimido, posicao[bloco]);
+        }
+        byte[] registros = new byte[registros(bloco) * TAMANHO_REGISTRO];
+        descomprimir(comprimido, registros, arquivo);
+        return ByteBuffer.wrap(registros);
+    }
+
+    /**
+     * Anexa os registros (em ordem de data, posteriores aos já arquivados) em blocos novos
+     * e grava o novo limite. Os blocos existentes não são lidos nem reescritos.
+     * O cabeçalho só passa a contar os blocos novos depois que eles estão em disco
+     */
+    public static void anexar(Path arquivo, long limite, ByteBuffer registros) throws IOException {
+        if (!Files.exists(arquivo)) {
+            gravar(arquivo, limite, registros);
+            return;
+        }
+        ArquivoTransacoes atual = abrir(arquivo);
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+            canal.truncate(atual.fim);
+            int anexados = escreverBlocos(canal, atual.fim, registros);
+            canal.force(false);
+
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO - OFFSET_LIMITE);
+            cabecalho.putLong(limite).putInt(atual.quantidade + anexados).flip();
+            while (cabecalho.hasRemaining()) {
+                canal.write(cabecalho, OFFSET_LIMITE + cabecalho.position());
+            }
+            canal.force(false);
+        }
+    }
+
+    /**
+     * Grava um arquivo novo em um temporário e o move atomicamente para o destino
+     */
+    public static void gravar(Path arquivo, long limite, byte[] registros) throws IOException {
+        gravar(arquivo, limite, ByteBuffer.wrap(registros));
+    }
+
+    private static void gravar(Path arquivo, long limite, ByteBuffer registros) throws IOException {
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+            cabecalho.putInt(MAGIC).putShort(VERSAO).putShort((short) TAMANHO_REGISTRO)
+                    .putLong(limite).putInt(registros.remaining() / TAMANHO_REGISTRO).flip();
+            while (cabecalho.hasRemaining()) {
+                canal.write(cabecalho);
+            }
+            escreverBlocos(canal, TAMANHO_CABECALHO, registros);
+            canal.force(false);
+        }
+        Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Comprime os registros em blocos a partir da posição e retorna quantos registros foram escritos
+     */
+    private static int escreverBlocos(FileChannel canal, long posicao, ByteBuffer registros) throws IOException {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        byte[] comprimido = new byte[REGISTROS_POR_BLOCO * TAMANHO_REGISTRO + 64];
+        int escritos = 0;
+        try {
+            while (registros.remaining() >= TAMANHO_REGISTRO) {
+                int quantidade = Math.min(REGISTROS_POR_BLOCO, registros.remaining() / TAMANHO_REGISTRO);
+                ByteBuffer bloco = registros.slice(registros.position(), quantidade * TAMANHO_REGISTRO);
+                registros.position(registros.position() + quantidade * TAMANHO_REGISTRO);
+
+                deflater.reset();
+                deflater.setInput(bloco.duplicate());
+                deflater.finish();
+                int bytes = 0;
+                while (!deflater.finished()) {
+                    if (bytes == comprimido.length) {
+                        comprimido = Arrays.copyOf(comprimido, comprimido.length * 2);
+                    }
+                    bytes += deflater.deflate(comprimido, bytes, comprimido.length - bytes);
+                }
+
+                ByteBuffer saida = ByteBuffer.allocate(TAMANHO_CABECALHO_BLOCO + bytes);
+                saida.putLong(bloco.getLong(0)).putInt(quantidade).putInt(bytes).put(comprimido, 0, bytes).flip();
+                while (saida.hasRemaining()) {
+                    posicao += canal.write(saida, posicao);
+                }
+                escritos += quantidade;
+            }
+        } finally {
+            deflater.end();
+        }
+        return escritos;
+    }
+
+    /**
+     * Converte um arquivo da versão 1 (um único fluxo comprimido) para blocos
+     */
+    private static void converterFluxoUnico(Path arquivo) throws IOException {
+        ByteBuffer conteudo = ByteBuffer.wrap(Files.readAllBytes(arquivo));
+        validarCabecalho(conteudo, arquivo);
+        long limite = conteudo.getLong();
+        byte[] registros = new byte[conteudo.getInt() * TAMANHO_REGISTRO];
+        descomprimir(conteudo, registros, arquivo);
+        gravar(arquivo, limite, registros);
+    }
+
+    private static void descomprimir(ByteBuffer comprimido, byte[] registros, Path arquivo) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(comprimido);
+            int lidos = 0;
+            while (lidos < registros.length && !inflater.finished()) {
+                int n = inflater.inflate(registros, lidos, registros.length - lidos);
+                if (n == 0 && inflater.needsInput()) break;
+                lidos += n;
+            }
+            if (lidos != registros.length) {
+                throw new IOException("Arquivo de transações incompleto: " + arquivo);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Arquivo de transações corrompido: " + arquivo, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static ByteBuffer lerCompleto(FileChannel canal, ByteBuffer buffer, long posicao) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer, posicao + buffer.position()) <= 0) break;
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Epoch millis: registros anteriores a ele pertencem ao arquivo
+     */
+    public long limite() {
+        return limite;
+    }
+
+    public int quantidade() {
+        return quantidade;
+    }
+
+    /**
+     * Tamanho do arquivo quando o índice foi lido: se mudou, o índice precisa ser lido de novo
+     */
+    public long tamanho() {
+        return tamanho;
+    }
+
+    public int blocos() {
+        return primeiraData.length;
+    }
+
+    /**
+     * Índice (a partir de 0) do primeiro registro do bloco no arquivo
+     */
+    public int primeiroRegistro(int bloco) {
+        return primeiroRegistro[bloco];
+    }
+
+    public int registros(int bloco) {
+        return (bloco + 1 < blocos() ? primeiroRegistro[bloco + 1] : quantidade) - primeiroRegistro[bloco];
+    }
+
+    /**
+     * Bloco que contém o registro de índice informado
+     */
+    public int blocoDoRegistro(int registro) {
+        int bloco = Arrays.binarySearch(primeiroRegistro, registro);
+        return bloco >= 0 ? bloco : -bloco - 2;
+    }
+
+    /**
+     * Bloco a partir do qual procurar o primeiro registro com data >= data informada:
+     * o último cujo primeiro registro é anterior a ela (ou o primeiro bloco)
+     */
+    public int blocoDaData(long data) {
+        int baixo = 0;
+        int alto = blocos() - 1;
+        int bloco = 0;
+        while (baixo <= alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (primeiraData[meio] < data) {
+                bloco = meio;
+                baixo = meio + 1;
+            } else {
+                alto = meio - 1;
+            }
+        }
+        return bloco;
+    }
+}
@@ -1,5 +1,9 @@
 import javax.swing.*;
 import java.awt.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class BankGUI extends JFrame {
     private final BankSingleton bank;
@@ -8,6 +12,8 @@ public class BankGUI extends JFrame {
     private final JPanel mainPanel;
     private final CardLayout cardLayout;
     private final JLabel saldoLabel;
+    // Sessão logada, na sua thread do executor de sessões; só mexida na thread da interface
+    private ExecutorSessoes.SessaoAtiva sessaoAtiva;
 
     public BankGUI() {
         // Inicialização dos componentes
@@ -108,13 +114,17 @@ public class BankGUI extends JFrame {
             String numeroConta = numeroContaField.getText();
             String senha = new String(senhaField.getPassword());
 
-            if (bank.login(numeroConta, senha)) {
-                atualizarSaldoExibido();
-                cardLayout.show(mainPanel, "OPERATIONS");
-                limparCamposLogin();
-            } else {
-                mostrarErro("Credenciais inválidas!");
-            }
+            aoConcluir(bank.getSessoes().executar(() -> bank.login(numeroConta, senha) ? bank.getSessaoAtual() : null), sessao -> {
+                if (sessao != null) {
+                    encerrarSessaoAtiva();
+                    sessaoAtiva = bank.getSessoes().atender(sessao);
+                    atualizarSaldoExibido();
+                    cardLayout.show(mainPanel, "OPERATIONS");
+                    limparCamposLogin();
+                } else {
+                    mostrarErro("Credenciais inválidas!");
+                }
+            }, "Erro ao realizar login: ");
         } catch (Exception e) {
             mostrarErro("Erro ao realizar login: " + e.getMessage());
         }
@@ -129,9 +139,13 @@ public class BankGUI extends JFrame {
 
             if (valor != null && !valor.isEmpty()) {
                 float quantia = Float.parseFloat(valor);
-                bank.deposito(quantia);
-                atualizarSaldoExibido();
-                mostrarSucesso("Depósito realizado com sucesso!");
+                naSessao(sessao -> {
+                    sessao.deposito(quantia);
+                    return sessao.getConta().getSaldo();
+                }, saldo -> {
+                    exibirSaldo(saldo);
+                    mostrarSucesso("Depósito realizado com sucesso!");
+                }, "Erro ao realizar depósito: ");
             }
         } catch (NumberFormatException e) {
             mostrarErro("Valor inválido!");
@@ -149,9 +163,13 @@ public class BankGUI extends JFrame {
 
             if (valor != null && !valor.isEmpty()) {
                 float quantia = Float.parseFloat(valor);
-                bank.saque(quantia);
-                atualizarSaldoExibido();
-                mostrarSucesso("Saque realizado com sucesso!");
+                naSessao(sessao -> {
+                    sessao.saque(quantia);
+                    return sessao.getConta().getSaldo();
+                }, saldo -> {
+                    exibirSaldo(saldo);
+                    mostrarSucesso("Saque realizado com sucesso!");
+                }, "Erro ao realizar saque: ");
             }
         } catch (NumberFormatException e) {
             mostrarErro("Valor inválido!");
@@ -175,9 +193,13 @@ public class BankGUI extends JFrame {
             try {
                 String contaDestino = contaDestinoField.getText();
                 float valor = Float.parseFloat(valorField.getText());
-                bank.transferencia(contaDestino, valor);
-                atualizarSaldoExibido();
-                mostrarSucesso("Transferência realizada com sucesso!");
+                naSessao(sessao -> {
+                    sessao.transferencia(contaDestino, valor);
+                    return sessao.getConta().getSaldo();
+                }, saldo -> {
+                    exibirSaldo(saldo);
+                    mostrarSucesso("Transferência realizada com sucesso!");
+                }, "Erro na transferência: ");
             } catch (NumberFormatException e) {
                 mostrarErro("Valor inválido!");
             } catch (Exception e) {
@@ -208,16 +230,39 @@ public class BankGUI extends JFrame {
     }
 
     private void atualizarSaldoExibido() {
-        try {
-            float saldo = bank.getContaAtual().getSaldo();
-            saldoLabel.setText(String.format("Saldo: R$ %.2f", saldo));
-        } catch (Exception e) {
-            mostrarErro("Erro ao atualizar saldo: " + e.getMessage());
-        }
+        naSessao(sessao -> sessao.getConta().getSaldo(), this::exibirSaldo, "Erro ao atualizar saldo: ");
+    }
+
+    private void exibirSaldo(float saldo) {
+        saldoLabel.setText(String.format("Saldo: R$ %.2f", saldo));
+    }
+
+    /**
+     * Executa a operação na thread da sessão logada, fora da thread da interface,
+     * que não trava esperando o disco; o resultado ou o erro voltam para ela
+     */
+    private <T> void naSessao(Function<SessaoBancaria, T> operacao, Consumer<T> aoConcluir, String prefixoErro) {
+        aoConcluir(sessaoAtiva.executar(operacao), aoConcluir, prefixoErro);
+    }
+
+    /**
+     * Entrega o resultado ou o erro da operação em segundo plano à thread da interface
+     */
+    private <T> void aoConcluir(CompletableFuture<T> operacao, Consumer<T> aoConcluir, String prefixoErro) {
+        operacao.whenComplete((resultado, erro) -> SwingUtilities.invokeLater(() -> {
+            if (erro == null) {
+                aoConcluir.accept(resultado);
+            } else {
+                Throwable causa = erro instanceof CompletionException && erro.getCause() != null
+                        ? erro.getCause() : erro;
+                mostrarErro(prefixoErro + causa.getMessage());
+            }
+        }));
     }
 
     private void realizarLogout() {
         try {
+            encerrarSessaoAtiva();
             bank.logout();
             limparCamposLogin();
             cardLayout.show(mainPanel, "LOGIN");
@@ -227,6 +272,16 @@ public class BankGUI extends JFrame {
         }
     }
 
+    /**
+     * A thread da sessão termina depois das operações já pedidas
+     */
+    private void encerrarSessaoAtiva() {
+        if (sessaoAtiva != null) {
+            sessaoAtiva.encerrar();
+            sessaoAtiva = null;
+        }
+    }
+
     private void limparCamposLogin() {
         numeroContaField.setText("");
         senhaField.setText("");
@@ -1,29 +1,82 @@
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 //singleton pois como cada instancia de banco deve ser unica, nao faz sentido ter mais de uma instancia de banco
 public class BankSingleton {
     private static BankSingleton instance;
     private static final String CURRENT_DATE = "2024-12-22 00:34:37";
     private static final String CURRENT_USER = "perrijuan";
 
-    // Constantes do sistema bancário
-    private static final float TAXA_TRANSFERENCIA_NORMAL = 8.0f;
-    private static final float TAXA_TRANSFERENCIA_VIP = 0.008f; // 0.8%
-    private static final float TAXA_GERENTE = 50.0f;
-    private static final float LIMITE_TRANSFERENCIA_NORMAL = 1000.0f;
+    // Constantes do sistema bancário (valores em centavos)
+    static final long TAXA_TRANSFERENCIA_NORMAL = 800;
+    static final long TAXA_TRANSFERENCIA_VIP = 80; // 0.8% em pontos-base
+    private static final long TAXA_GERENTE = 5000;
+    static final long LIMITE_TRANSFERENCIA_NORMAL = 100_000;
+    // Apuração de juros de fim de dia (à meia-noite); -Dbanco.juros.apuracao=false desliga
+    private static final boolean APURACAO_DIARIA = !"false".equals(System.getProperty("banco.juros.apuracao"));
 
-    private ContaBancaria contaAtual;
+    // Métricas das operações (banco_operacao_segundos e banco_operacao_erros_total)
+    private static final RegistroMetricas.Temporizador M_DEPOSITO = operacao("deposito");
+    private static final RegistroMetricas.Temporizador M_SAQUE = operacao("saque");
+    private static final RegistroMetricas.Temporizador M_TRANSFERENCIA = operacao("transferencia");
+    private static final RegistroMetricas.Temporizador M_GERENTE = operacao("solicitarGerente");
+    private static final RegistroMetricas.Temporizador M_LOTE = operacao("processarLote");
+    private static final RegistroMetricas.Temporizador M_LOGIN = operacao("login");
+    private static final RegistroMetricas.Temporizador M_CRIAR_CONTA = operacao("criarConta");
+    private static final RegistroMetricas.Temporizador M_APURACAO_JUROS = operacao("apurarJurosDoDia");
+
+    // Sessão usada pelos métodos sem número de conta (console e GUI)
+    private volatile SessaoBancaria sessaoAtual;
     private final FileManagerSingleton fileManager;
-    private final Map<String, ExtratoObserver> observers;
+    // Observer do extrato de cada conta com sessão aberta; sai do barramento com a última sessão
+    private final Map<String, ObserverDaConta> observers;
+    private final BarramentoEventos eventos;
+    private final ExecutorSessoes sessoes;
+    private final TravasContas travas;
+    private final MotorTransferencia motorTransferencia;
 
     private BankSingleton() {
         this.fileManager = FileManagerSingleton.getInstance();
-        this.observers = new HashMap<>();
-        System.out.println("Sistema Bancário iniciado em: " + CURRENT_DATE);
-        System.out.println("Usuário do sistema: " + CURRENT_USER);
+        this.observers = new ConcurrentHashMap<>();
+        this.eventos = new BarramentoEventos(fileManager::percorrerExtrato);
+        this.sessoes = new ExecutorSessoes();
+        this.travas = new TravasContas();
+        this.motorTransferencia = new MotorTransferencia(fileManager, travas, this::registrarTransacao);
+        if (APURACAO_DIARIA) {
+            agendarApuracaoDiaria();
+        }
+        RegistroMetricas metricas = RegistroMetricas.getInstance();
+        metricas.medidor("banco_sessoes_ativas", "Sessões em execução no executor de sessões", null, null,
+                sessoes::getSessoesAtivas);
+        metricas.contador("banco_eventos_descartados_total",
+                "Eventos que um observer perdeu com a fila cheia sem poder reler do extrato",
+                null, null, eventos::getEventosDescartados);
+        metricas.contador("banco_eventos_recuperados_total",
+                "Eventos relidos do extrato para observers que ficaram para trás",
+                null, null, eventos::getEventosRecuperados);
+        metricas.medidor("banco_eventos_assinantes", "Observers assinados no barramento de eventos", null, null,
+                eventos::getAssinantes);
+        Log.info("Sistema Bancário iniciado em: %s", CURRENT_DATE);
+        Log.info("Usuário do sistema: %s", CURRENT_USER);
+    }
+
+    private static RegistroMetricas.Temporizador operacao(String nome) {
+        return RegistroMetricas.getInstance().temporizador("banco_operacao",
+                "Operações do BankSingleton", "operacao", nome);
     }
 
-    public static BankSingleton getInstance() {
+    public static synchronized BankSingleton getInstance() {
         if (instance == null) {
             instance = new BankSingleton();
         }
@@ -31,169 +84,452 @@ public class BankSingleton {
     }
 
     // Métodos de autenticação
+
+    /**
+     * Autentica a conta e abre uma sessão própria para ela
+     * Retorna null se as credenciais forem inválidas
+     */
+    public SessaoBancaria abrirSessao(String numeroConta, String senha) {
+        return M_LOGIN.medir(() -> {
+            ContaBancaria conta = fileManager.buscarConta(numeroConta);
+            if (conta == null || !conta.getSenha().equals(senha)) {
+                return null;
+            }
+            // Sem gravação no login: o saldo exibido já inclui os juros pendentes
+            observers.compute(numeroConta, (n, registro) -> {
+                ObserverDaConta atual = registro != null ? registro : new ObserverDaConta(n, eventos);
+                atual.sessoes++;
+                return atual;
+            });
+            return new SessaoBancaria(this, numeroConta);
+        });
+    }
+
     public boolean login(String numeroConta, String senha) {
-        ContaBancaria conta = fileManager.buscarConta(numeroConta);
-        if (conta != null && conta.getSenha().equals(senha)) {
-            contaAtual = conta;
-            if (!observers.containsKey(numeroConta)) {
-                observers.put(numeroConta, new ExtratoObserver(numeroConta));
+        SessaoBancaria sessao = abrirSessao(numeroConta, senha);
+        if (sessao != null) {
+            SessaoBancaria anterior = sessaoAtual;
+            sessaoAtual = sessao;
+            if (anterior != null) {
+                anterior.encerrar();
             }
-            atualizarSaldoNegativo();
             return true;
         }
         return false;
     }
 
     public void logout() {
-        contaAtual = null;
+        SessaoBancaria sessao = sessaoAtual;
+        if (sessao != null) {
+            sessao.encerrar();
+        }
+        sessaoAtual = null;
     }
 
-    // Operações bancárias
+    // Operações bancárias da sessão atual
     public void deposito(float valor) {
-        if (valor <= 0) {
-            throw new IllegalArgumentException("Valor deve ser positivo!");
-        }
-
-        contaAtual.setSaldo(contaAtual.getSaldo() + valor);
-        registrarTransacao(new Transacao(
-                Transacao.TipoTransacao.DEPOSITO,
-                valor,
-                "Depósito em conta",
-                contaAtual.getNumeroConta(),
-                null
-        ));
-        fileManager.salvarConta(contaAtual);
+        sessao().deposito(valor);
     }
 
     public void saque(float valor) {
-        if (valor <= 0) {
-            throw new IllegalArgumentException("Valor deve ser positivo!");
-        }
+        sessao().saque(valor);
+    }
 
-        atualizarSaldoNegativo();
+    public void transferencia(String contaDestino, float valor) {
+        sessao().transferencia(contaDestino, valor);
+    }
 
-        if (!contaAtual.isVip() && contaAtual.getSaldo() < valor) {
-            throw new IllegalStateException("Saldo insuficiente!");
-        }
+    public void solicitarGerente() {
+        sessao().solicitarGerente();
+    }
 
-        contaAtual.setSaldo(contaAtual.getSaldo() - valor);
-        registrarTransacao(new Transacao(
-                Transacao.TipoTransacao.SAQUE,
-                -valor,
-                "Saque em conta",
-                contaAtual.getNumeroConta(),
-                null
-        ));
-        fileManager.salvarConta(contaAtual);
+    // Operações bancárias por conta, usadas pelas sessões
+    void deposito(String numeroConta, long valor) {
+        M_DEPOSITO.medir(() -> depositar(numeroConta, valor));
     }
 
-    public void transferencia(String contaDestino, float valor) {
-        if (valor <= 0) {
+    void saque(String numeroConta, long valor) {
+        M_SAQUE.medir(() -> sacar(numeroConta, valor));
+    }
+
+    void transferencia(String numeroConta, String contaDestino, long valor) {
+        M_TRANSFERENCIA.medir(() -> {
+            motorTransferencia.transferir(numeroConta, contaDestino, valor);
+        });
+    }
+
+    void solicitarGerente(String numeroConta) {
+        M_GERENTE.medir(() -> {
+            ReentrantLock trava = travas.travar(numeroConta);
+            try {
+                fileManager.executarOperacao(() -> {
+                    ContaBancaria conta = buscarContaExistente(numeroConta);
+                    if (!conta.isVip()) {
+                        throw new IllegalStateException("Apenas contas VIP podem solicitar gerente!");
+                    }
+                    lancarJuros(conta, this::registrarTransacao);
+
+                    conta.setSaldoCentavos(Dinheiro.subtrair(conta.getSaldoCentavos(), TAXA_GERENTE));
+                    registrarTransacao(new Transacao(
+                            Transacao.TipoTransacao.VISITA_GERENTE,
+                            -TAXA_GERENTE,
+                            "Solicitação de visita do gerente",
+                            numeroConta,
+                            null
+                    ));
+                    fileManager.salvarConta(conta);
+                });
+            } finally {
+                trava.unlock();
+            }
+        });
+    }
+
+    /**
+     * Processa um lote de operações de forma atômica e com um único commit em disco
+     * O lote inteiro é validado contra os saldos em memória antes de qualquer alteração;
+     * se alguma operação falhar, nada é aplicado. As contas envolvidas ficam travadas
+     * (em ordem canônica) durante todo o processamento
+     */
+    public void processarLote(List<OperacaoLote> operacoes) {
+        M_LOTE.medir(() -> {
+            if (operacoes.isEmpty()) return;
+
+            Set<String> contas = new TreeSet<>();
+            for (int i = 0; i < operacoes.size(); i++) {
+                try {
+                    contas.addAll(validarOperacao(operacoes.get(i)));
+                } catch (RuntimeException e) {
+                    throw erroNoLote(i, e);
+                }
+            }
+
+            ReentrantLock[] travadas = travas.travarEmOrdem(contas.toArray(new String[0]));
+            try {
+                simularLote(operacoes);
+
+                fileManager.iniciarLote();
+                try {
+                    for (OperacaoLote operacao : operacoes) {
+                        executar(operacao);
+                    }
+                    fileManager.concluirLote();
+                } catch (RuntimeException e) {
+                    fileManager.descartarLote();
+                    throw e;
+                }
+            } finally {
+                TravasContas.destravar(travadas);
+            }
+        });
+    }
+
+    // Validações que não dependem de saldo; retorna as contas envolvidas
+    private List<String> validarOperacao(OperacaoLote operacao) {
+        if (operacao.getValorCentavos() <= 0) {
             throw new IllegalArgumentException("Valor deve ser positivo!");
         }
+        buscarContaExistente(operacao.getContaOrigem());
+        if (operacao.getTipo() != OperacaoLote.TipoOperacao.TRANSFERENCIA) {
+            return List.of(operacao.getContaOrigem());
+        }
 
-        if (contaAtual.getNumeroConta().equals(contaDestino)) {
+        if (operacao.getContaOrigem().equals(operacao.getContaDestino())) {
             throw new IllegalArgumentException("Não é possível transferir para a própria conta!");
         }
-
-        ContaBancaria destino = fileManager.buscarConta(contaDestino);
-        if (destino == null) {
+        if (fileManager.buscarConta(operacao.getContaDestino()) == null) {
             throw new IllegalArgumentException("Conta destino não encontrada!");
         }
+        return List.of(operacao.getContaOrigem(), operacao.getContaDestino());
+    }
 
-        float taxa = contaAtual.isVip() ? valor * TAXA_TRANSFERENCIA_VIP : TAXA_TRANSFERENCIA_NORMAL;
-        float valorTotal = valor + taxa;
-
-        if (!contaAtual.isVip() && valor > LIMITE_TRANSFERENCIA_NORMAL) {
-            throw new IllegalArgumentException("Limite de transferência excedido!");
+    // Aplica o lote em cópias das contas para garantir que todas as operações passam
+    private void simularLote(List<OperacaoLote> operacoes) {
+        Map<String, ContaBancaria> copias = new HashMap<>();
+        for (int i = 0; i < operacoes.size(); i++) {
+            OperacaoLote operacao = operacoes.get(i);
+            try {
+                ContaBancaria origem = copias.computeIfAbsent(operacao.getContaOrigem(), fileManager::buscarConta);
+                long valor = operacao.getValorCentavos();
+                switch (operacao.getTipo()) {
+                    case DEPOSITO -> {
+                        lancarJuros(origem, t -> { });
+                        origem.setSaldoCentavos(Dinheiro.somar(origem.getSaldoCentavos(), valor));
+                    }
+                    case SAQUE -> {
+                        lancarJuros(origem, t -> { });
+                        if (!origem.isVip() && origem.getSaldoCentavos() < valor) {
+                            throw new IllegalStateException("Saldo insuficiente!");
+                        }
+                        origem.setSaldoCentavos(Dinheiro.subtrair(origem.getSaldoCentavos(), valor));
+                    }
+                    case TRANSFERENCIA -> {
+                        ContaBancaria destino = copias.computeIfAbsent(operacao.getContaDestino(), fileManager::buscarConta);
+                        long taxa = MotorTransferencia.calcularTaxa(origem, valor);
+                        MotorTransferencia.validar(origem, valor, taxa);
+                        lancarJuros(origem, t -> { });
+                        lancarJuros(destino, t -> { });
+                        origem.setSaldoCentavos(Dinheiro.subtrair(origem.getSaldoCentavos(), valor + taxa));
+                        destino.setSaldoCentavos(Dinheiro.somar(destino.getSaldoCentavos(), valor));
+                    }
+                }
+            } catch (RuntimeException e) {
+                throw erroNoLote(i, e);
+            }
         }
+    }
 
-        if (!contaAtual.isVip() && contaAtual.getSaldo() < valorTotal) {
-            throw new IllegalStateException("Saldo insuficiente!");
+    // Sem os temporizadores por operação: o lote já é medido inteiro em M_LOTE
+    private void executar(OperacaoLote operacao) {
+        switch (operacao.getTipo()) {
+            case DEPOSITO -> depositar(operacao.getContaOrigem(), operacao.getValorCentavos());
+            case SAQUE -> sacar(operacao.getContaOrigem(), operacao.getValorCentavos());
+            case TRANSFERENCIA -> motorTransferencia.transferir(
+                    operacao.getContaOrigem(), operacao.getContaDestino(), operacao.getValorCentavos());
         }
+    }
 
-        // Registra transferência e taxa
-        contaAtual.setSaldo(contaAtual.getSaldo() - valorTotal);
-        destino.setSaldo(destino.getSaldo() + valor);
+    private void depositar(String numeroConta, long valor) {
+        if (valor <= 0) {
+            throw new IllegalArgumentException("Valor deve ser positivo!");
+        }
 
-        // Registra transações para ambas as contas
-        registrarTransacao(new Transacao(
-                Transacao.TipoTransacao.TRANSFERENCIA_ENVIADA,
-                -valor,
-                "Transferência enviada para " + contaDestino,
-                contaAtual.getNumeroConta(),
-                contaDestino
-        ));
+        ReentrantLock trava = travas.travar(numeroConta);
+        try {
+            fileManager.executarOperacao(() -> {
+                ContaBancaria conta = buscarContaExistente(numeroConta);
+                lancarJuros(conta, this::registrarTransacao);
+                conta.setSaldoCentavos(Dinheiro.somar(conta.getSaldoCentavos(), valor));
+                registrarTransacao(new Transacao(
+                        Transacao.TipoTransacao.DEPOSITO,
+                        valor,
+                        "Depósito em conta",
+                        numeroConta,
+                        null
+                ));
+                fileManager.salvarConta(conta);
+            });
+        } finally {
+            trava.unlock();
+        }
+    }
 
-        registrarTransacao(new Transacao(
-                Transacao.TipoTransacao.TAXA_TRANSFERENCIA,
-                -taxa,
-                "Taxa de transferência",
-                contaAtual.getNumeroConta(),
-                null
-        ));
+    private void sacar(String numeroConta, long valor) {
+        if (valor <= 0) {
+            throw new IllegalArgumentException("Valor deve ser positivo!");
+        }
 
-        registrarTransacao(new Transacao(
-                Transacao.TipoTransacao.TRANSFERENCIA_RECEBIDA,
-                valor,
-                "Transferência recebida de " + contaAtual.getNumeroConta(),
-                contaDestino,
-                contaAtual.getNumeroConta()
-        ));
+        ReentrantLock trava = travas.travar(numeroConta);
+        try {
+            fileManager.executarOperacao(() -> {
+                ContaBancaria conta = buscarContaExistente(numeroConta);
+                lancarJuros(conta, this::registrarTransacao);
 
-        fileManager.salvarConta(contaAtual);
-        fileManager.salvarConta(destino);
-    }
+                if (!conta.isVip() && conta.getSaldoCentavos() < valor) {
+                    throw new IllegalStateException("Saldo insuficiente!");
+                }
 
-    public void solicitarGerente() {
-        if (!contaAtual.isVip()) {
-            throw new IllegalStateException("Apenas contas VIP podem solicitar gerente!");
+                conta.setSaldoCentavos(Dinheiro.subtrair(conta.getSaldoCentavos(), valor));
+                registrarTransacao(new Transacao(
+                        Transacao.TipoTransacao.SAQUE,
+                        -valor,
+                        "Saque em conta",
+                        numeroConta,
+                        null
+                ));
+                fileManager.salvarConta(conta);
+            });
+        } finally {
+            trava.unlock();
         }
+    }
 
-        contaAtual.setSaldo(contaAtual.getSaldo() - TAXA_GERENTE);
-        registrarTransacao(new Transacao(
-                Transacao.TipoTransacao.VISITA_GERENTE,
-                -TAXA_GERENTE,
-                "Solicitação de visita do gerente",
-                contaAtual.getNumeroConta(),
-                null
-        ));
-        fileManager.salvarConta(contaAtual);
+    private static RuntimeException erroNoLote(int indice, RuntimeException e) {
+        String mensagem = "Operação " + (indice + 1) + " do lote: " + e.getMessage();
+        return e instanceof IllegalStateException
+                ? new IllegalStateException(mensagem, e)
+                : new IllegalArgumentException(mensagem, e);
     }
 
     // Métodos auxiliares
+    // Cada transação pertence a uma só conta, a de origem (o crédito de uma transferência
+    // é uma transação própria da conta destino): é gravada uma vez no extrato dela,
+    // com ou sem sessão aberta, e publicada no barramento depois de gravada
     private void registrarTransacao(Transacao transacao) {
-        ExtratoObserver observer = observers.get(transacao.getContaOrigem());
-        if (observer != null) {
-            observer.onTransacao(transacao);
-        }
-        if (transacao.getContaDestino() != null) {
-            ExtratoObserver observerDestino = observers.get(transacao.getContaDestino());
-            if (observerDestino != null) {
-                observerDestino.onTransacao(transacao);
+        fileManager.salvarTransacao(transacao.getContaOrigem(), transacao);
+        fileManager.aposGravar(() -> eventos.publicar(transacao));
+    }
+
+    // Lança os juros pendentes do saldo negativo, com a transação correspondente no extrato
+    // Os juros só são lançados antes de alterar o saldo e na apuração diária
+    static void lancarJuros(ContaBancaria conta, Consumer<Transacao> registrador) {
+        long juros = conta.lancarJuros(LocalDateTime.now());
+        if (juros > 0) {
+            registrador.accept(new Transacao(
+                    Transacao.TipoTransacao.JUROS_SALDO_NEGATIVO,
+                    -juros,
+                    "Juros de saldo negativo",
+                    conta.getNumeroConta(),
+                    null
+            ));
+        }
+    }
+
+    /**
+     * Apuração de fim de dia: lança os juros de todas as contas VIP com saldo negativo
+     * As contas são processadas em paralelo, cada uma com a sua trava e a sua gravação.
+     * Retorna quantas contas tiveram juros lançados
+     */
+    public int apurarJurosDoDia() {
+        return M_APURACAO_JUROS.medir(() -> {
+            return (int) fileManager.contasVipComSaldoNegativo().parallelStream()
+                    .filter(this::apurarJuros)
+                    .count();
+        });
+    }
+
+    private boolean apurarJuros(String numeroConta) {
+        ReentrantLock trava = travas.travar(numeroConta);
+        try {
+            return fileManager.executarOperacao(() -> {
+                ContaBancaria conta = fileManager.buscarConta(numeroConta);
+                if (conta == null || conta.jurosPendentes(LocalDateTime.now()) == 0) return false;
+                lancarJuros(conta, this::registrarTransacao);
+                fileManager.salvarConta(conta);
+                return true;
+            });
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private void agendarApuracaoDiaria() {
+        ScheduledExecutorService agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "apuracao-juros");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long ateMeiaNoite = Duration.between(LocalDateTime.now(),
+                LocalDate.now().plusDays(1).atStartOfDay()).toMillis();
+        agendador.scheduleAtFixedRate(() -> {
+            try {
+                int contas = apurarJurosDoDia();
+                Log.info("Apuração de juros: %d contas com juros lançados", contas);
+            } catch (RuntimeException e) {
+                Log.erro("Erro na apuração de juros: %s", e.getMessage());
             }
+        }, ateMeiaNoite, TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    private ContaBancaria buscarContaExistente(String numeroConta) {
+        ContaBancaria conta = fileManager.buscarConta(numeroConta);
+        if (conta == null) {
+            throw new IllegalArgumentException("Conta não encontrada!");
+        }
+        return conta;
+    }
+
+    private SessaoBancaria sessao() {
+        SessaoBancaria sessao = sessaoAtual;
+        if (sessao == null) {
+            throw new IllegalStateException("Nenhuma conta logada!");
         }
+        return sessao;
+    }
+
+    ContaBancaria buscarConta(String numeroConta) {
+        return fileManager.buscarConta(numeroConta);
+    }
+
+    ExtratoObserver getExtratoObserver(String numeroConta) {
+        ObserverDaConta registro = observers.get(numeroConta);
+        return registro == null ? null : registro.observer;
     }
 
-    private void atualizarSaldoNegativo() {
-        if (contaAtual != null) {
-            contaAtual.aplicarJurosNegativo();
-            fileManager.salvarConta(contaAtual);
+    /**
+     * Chamado uma vez por sessão encerrada: sem outra sessão da conta, o observer
+     * do extrato deixa o barramento, junto com a sua fila
+     */
+    void sessaoEncerrada(String numeroConta) {
+        observers.computeIfPresent(numeroConta, (n, registro) -> {
+            if (--registro.sessoes > 0) return registro;
+            registro.assinatura.cancelar();
+            return null;
+        });
+    }
+
+    /**
+     * ExtratoObserver assinado no barramento e quantas sessões abertas o usam
+     * Só é alterado dentro do compute do mapa, que serializa o acesso por conta
+     */
+    private static final class ObserverDaConta {
+        final ExtratoObserver observer;
+        final BarramentoEventos.Assinatura assinatura;
+        int sessoes;
+
+        ObserverDaConta(String numeroConta, BarramentoEventos eventos) {
+            this.observer = new ExtratoObserver(numeroConta);
+            this.assinatura = eventos.assinar(numeroConta, observer);
         }
     }
 
+    /**
+     * Barramento em que outros observers (fraude, notificações, métricas) assinam as transações
+     */
+    public BarramentoEventos getEventos() {
+        return eventos;
+    }
+
+    /**
+     * Executor em que cada sessão roda na sua própria thread (virtual, quando a JVM oferece)
+     */
+    public ExecutorSessoes getSessoes() {
+        return sessoes;
+    }
+
     // Getters
     public ContaBancaria getContaAtual() {
-        return contaAtual;
+        SessaoBancaria sessao = sessaoAtual;
+        return sessao == null ? null : sessao.getConta();
+    }
+
+    public SessaoBancaria getSessaoAtual() {
+        return sessaoAtual;
     }
 
     public ExtratoObserver getExtratoObserver() {
-        return observers.get(contaAtual.getNumeroConta());
+        return sessao().getExtratoObserver();
     }
 
-    // Método para criar contas (usado apenas na inicialização)
+    /**
+     * Cria a conta com saldo zero; um número já usado é recusado com IllegalStateException
+     * A verificação e a gravação acontecem sob a trava da conta, então duas criações
+     * simultâneas do mesmo número não sobrescrevem uma à outra
+     */
     public void criarConta(String numeroConta, String tipo, String login, String senha) {
-        ContaBancaria novaConta = ContaFactory.criarConta(numeroConta, tipo, login, senha);
-        fileManager.salvarConta(novaConta);
+        criarConta(numeroConta, tipo, login, senha, false);
+    }
+
+    /**
+     * Cria a conta substituindo a existente, com saldo zero (útil para testes)
+     * O extrato da conta anterior não é apagado
+     */
+    public void recriarConta(String numeroConta, String tipo, String login, String senha) {
+        criarConta(numeroConta, tipo, login, senha, true);
+    }
+
+    private void criarConta(String numeroConta, String tipo, String login, String senha, boolean substituir) {
+        M_CRIAR_CONTA.medir(() -> {
+            ContaBancaria novaConta = ContaFactory.criarConta(numeroConta, tipo, login, senha);
+            ReentrantLock trava = travas.travar(numeroConta);
+            try {
+                if (!substituir && fileManager.buscarConta(numeroConta) != null) {
+                    throw new IllegalStateException("Conta já existe!");
+                }
+                fileManager.salvarConta(novaConta);
+            } finally {
+                trava.unlock();
+            }
+        });
     }
 }
\ No newline at end of file
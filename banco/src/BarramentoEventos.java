@@ -0,0 +1,409 @@
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Barramento assíncrono de eventos de transação para os ContaObserver
+ * Observers assinam uma conta ou todas (extrato, fraude, notificações, métricas).
+ * Cada assinante tem a sua fila limitada: publicar só coloca o evento na fila de cada
+ * assinante interessado e retorna. Um grupo fixo de threads entrega as filas, uma por vez
+ * para cada assinante, então cada observer recebe os eventos na ordem de publicação e um
+ * observer lento atrasa só a própria fila.
+ * Quando a fila de um assinante enche, ele fica atrasado: os eventos na fila viram, por conta,
+ * a faixa de sequências que ele perdeu, relida depois do extrato gravado (a fonte do construtor)
+ * e entregue em ordem antes dos eventos novos daquelas contas. Sem fonte, ou para transações
+ * sem conta ou sem sequência, o evento que não coube é descartado só para aquele assinante
+ * e contado em getEventosDescartados; a operação bancária nunca espera um observer
+ */
+public class BarramentoEventos {
+    private static final int THREADS_PADRAO = Integer.getInteger("banco.eventos.threads",
+            Math.max(2, Runtime.getRuntime().availableProcessors()));
+    private static final int CAPACIDADE_PADRAO = Integer.getInteger("banco.eventos.fila", 8192);
+    // Entregas seguidas a um assinante antes de a thread passar a vez aos outros
+    private static final int ENTREGAS_POR_VEZ = 256;
+
+    /**
+     * Assinatura de um observer; cancelar para de entregar eventos a ele
+     */
+    public interface Assinatura {
+        void cancelar();
+    }
+
+    private final Map<String, List<Assinante>> porConta = new ConcurrentHashMap<>();
+    private final List<Assinante> globais = new CopyOnWriteArrayList<>();
+    private final ExecutorService entregadores;
+    private final int capacidade;
+    private final ExportadorExtrato.Fonte extrato;
+    private final LongAdder descartados = new LongAdder();
+    private final LongAdder recuperados = new LongAdder();
+    private volatile boolean ativo = true;
+
+    public BarramentoEventos() {
+        this(THREADS_PADRAO, CAPACIDADE_PADRAO, null);
+    }
+
+    /**
+     * extrato relê o que um assinante atrasado perdeu, como FileManagerSingleton.percorrerExtrato
+     */
+    public BarramentoEventos(ExportadorExtrato.Fonte extrato) {
+        this(THREADS_PADRAO, CAPACIDADE_PADRAO, extrato);
+    }
+
+    public BarramentoEventos(int threads, int capacidade, ExportadorExtrato.Fonte extrato) {
+        if (threads < 1 || capacidade < 1) {
+            throw new IllegalArgumentException("Threads e capacidade devem ser positivas!");
+        }
+        this.capacidade = capacidade;
+        this.extrato = extrato;
+        AtomicInteger numeroThread = new AtomicInteger();
+        this.entregadores = Executors.newFixedThreadPool(threads, tarefa -> {
+            Thread thread = new Thread(tarefa, "eventos-" + numeroThread.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Entrega ao observer as transações da conta
+     */
+    public Assinatura assinar(String numeroConta, ContaObserver observer) {
+        Assinante assinante = new Assinante(observer);
+        porConta.computeIfAbsent(numeroConta, k -> new CopyOnWriteArrayList<>()).add(assinante);
+        return () -> {
+            porConta.computeIfPresent(numeroConta, (k, lista) -> {
+                lista.remove(assinante);
+                return lista.isEmpty() ? null : lista;
+            });
+            assinante.cancelar();
+        };
+    }
+
+    /**
+     * Entrega ao observer as transações de todas as contas
+     */
+    public Assinatura assinarTodas(ContaObserver observer) {
+        Assinante assinante = new Assinante(observer);
+        globais.add(assinante);
+        return () -> {
+            globais.remove(assinante);
+            assinante.cancelar();
+        };
+    }
+
+    /**
+     * Enfileira a transação para os observers da conta de origem (dona da transação)
+     * e os globais, sem esperar a entrega
+     */
+    public void publicar(Transacao transacao) {
+        if (!ativo) {
+            throw new IllegalStateException("Barramento de eventos encerrado!");
+        }
+        String numeroConta = transacao.getContaOrigem();
+        List<Assinante> daConta = numeroConta == null ? null : porConta.get(numeroConta);
+        if (daConta == null && globais.isEmpty()) return;
+
+        Entrada entrada = new Entrada(transacao, System.nanoTime(), null);
+        if (daConta != null) {
+            daConta.forEach(assinante -> assinante.enfileirar(entrada));
+        }
+        globais.forEach(assinante -> assinante.enfileirar(entrada));
+    }
+
+    /**
+     * Concluído quando os eventos publicados até agora tiverem sido entregues
+     * aos assinantes atuais, inclusive o que os atrasados precisam reler do extrato
+     */
+    public CompletableFuture<Void> aguardarEntregas() {
+        List<CompletableFuture<?>> entregas = new ArrayList<>();
+        porConta.values().forEach(lista -> lista.forEach(assinante -> entregas.add(assinante.marcar())));
+        globais.forEach(assinante -> entregas.add(assinante.marcar()));
+        return CompletableFuture.allOf(entregas.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Eventos que algum assinante perdeu sem poder reler do extrato
+     */
+    public long getEventosDescartados() {
+        return descartados.sum();
+    }
+
+    /**
+     * Eventos relidos do extrato para assinantes que ficaram para trás
+     */
+    public long getEventosRecuperados() {
+        return recuperados.sum();
+    }
+
+    /**
+     * Assinantes atuais, de uma conta ou de todas
+     */
+    public int getAssinantes() {
+        int assinantes = globais.size();
+        for (List<Assinante> lista : porConta.values()) {
+            assinantes += lista.size();
+        }
+        return assinantes;
+    }
+
+    /**
+     * Entrega o que estiver nas filas e encerra as threads de entrega
+     */
+    public void encerrar() {
+        if (!ativo) return;
+        ativo = false;
+        aguardarEntregas().join();
+        entregadores.shutdown();
+    }
+
+    /**
+     * Um observer com erro não impede a entrega aos demais
+     * Cada entrega vira um evento JFR banco.DespachoObserver
+     */
+    private static void notificar(ContaObserver observer, Transacao transacao, long esperaNaFila) {
+        EventosBanco.DespachoObserver evento = new EventosBanco.DespachoObserver();
+        evento.begin();
+        try {
+            observer.onTransacao(transacao);
+        } catch (RuntimeException e) {
+            Log.erro("Erro ao notificar %s: %s", observer.getClass().getSimpleName(), e.getMessage());
+        } finally {
+            if (evento.shouldCommit()) {
+                evento.conta = transacao.getContaOrigem();
+                evento.observer = observer.getClass().getSimpleName();
+                evento.tipo = transacao.getTipo().name();
+                evento.esperaNaFila = esperaNaFila;
+                evento.commit();
+            }
+        }
+    }
+
+    /**
+     * Um evento publicado, ou um marcador de aguardarEntregas (transacao nula)
+     */
+    private static final class Entrada {
+        final Transacao transacao;
+        final long publicadoEm;
+        final CompletableFuture<Void> marcador;
+
+        Entrada(Transacao transacao, long publicadoEm, CompletableFuture<Void> marcador) {
+            this.transacao = transacao;
+            this.publicadoEm = publicadoEm;
+            this.marcador = marcador;
+        }
+    }
+
+    /**
+     * Sequências de uma conta que o assinante perdeu e ainda vão ser relidas do extrato
+     */
+    private static final class Atraso {
+        long desde;
+        long ate;
+        LocalDateTime data;
+        final long publicadoEm;
+
+        Atraso(Transacao primeira, long publicadoEm) {
+            this.desde = primeira.getSequencia();
+            this.ate = primeira.getSequencia();
+            this.data = primeira.getData();
+            this.publicadoEm = publicadoEm;
+        }
+    }
+
+    /**
+     * Um observer assinado, com a sua fila limitada e as contas em que ficou para trás
+     * Só uma thread entrega a fila de cada vez (agendado), o que mantém a ordem
+     */
+    private class Assinante {
+        private final ContaObserver observer;
+        // Encadeada: a capacidade não é alocada antes de o assinante ficar para trás
+        private final BlockingQueue<Entrada> fila = new LinkedBlockingQueue<>(capacidade);
+        private final AtomicBoolean agendado = new AtomicBoolean();
+        // Guardados pelo próprio assinante: contas atrasadas e os marcadores que esperam por elas
+        private final Map<String, Atraso> atrasos = new HashMap<>();
+        private final List<CompletableFuture<Void>> marcadores = new ArrayList<>();
+        private volatile boolean cancelado;
+
+        Assinante(ContaObserver observer) {
+            this.observer = observer;
+        }
+
+        void enfileirar(Entrada entrada) {
+            if (extrato == null) {
+                if (!fila.offer(entrada)) {
+                    descartados.increment();
+                }
+            } else {
+                synchronized (this) {
+                    // Com a conta atrasada o evento fica para a releitura, senão passaria à frente dela
+                    if (!adiar(entrada) && !fila.offer(entrada)) {
+                        List<Entrada> naFila = new ArrayList<>(capacidade + 1);
+                        fila.drainTo(naFila);
+                        naFila.add(entrada);
+                        naFila.forEach(this::atrasar);
+                    }
+                }
+            }
+            agendar();
+        }
+
+        CompletableFuture<Void> marcar() {
+            CompletableFuture<Void> entregue = new CompletableFuture<>();
+            try {
+                fila.put(new Entrada(null, 0, entregue));
+                agendar();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                entregue.completeExceptionally(e);
+            }
+            return entregue;
+        }
+
+        void cancelar() {
+            cancelado = true;
+            synchronized (this) {
+                atrasos.clear();
+            }
+            agendar();
+        }
+
+        private boolean adiar(Entrada entrada) {
+            Atraso atraso = entrada.transacao.getContaOrigem() == null
+                    ? null : atrasos.get(entrada.transacao.getContaOrigem());
+            if (atraso == null) return false;
+            atraso.ate = Math.max(atraso.ate, entrada.transacao.getSequencia());
+            return true;
+        }
+
+        private void atrasar(Entrada entrada) {
+            if (entrada.marcador != null) {
+                marcadores.add(entrada.marcador);
+                return;
+            }
+            Transacao transacao = entrada.transacao;
+            if (transacao.getContaOrigem() == null || transacao.getSequencia() == 0) {
+                descartados.increment();
+                return;
+            }
+            Atraso atraso = atrasos.computeIfAbsent(transacao.getContaOrigem(),
+                    k -> new Atraso(transacao, entrada.publicadoEm));
+            atraso.ate = Math.max(atraso.ate, transacao.getSequencia());
+        }
+
+        private void agendar() {
+            if (!agendado.compareAndSet(false, true)) return;
+            try {
+                entregadores.execute(this::entregar);
+            } catch (RejectedExecutionException e) {
+                agendado.set(false);
+            }
+        }
+
+        /**
+         * Relê o que estiver atrasado e entrega até ENTREGAS_POR_VEZ eventos da fila;
+         * se sobrar algo, volta para o fim da fila de tarefas das threads de entrega
+         */
+        private void entregar() {
+            try {
+                recuperar();
+                for (int i = 0; i < ENTREGAS_POR_VEZ; i++) {
+                    Entrada entrada = fila.poll();
+                    if (entrada == null) break;
+                    if (entrada.marcador != null) {
+                        marcado(entrada.marcador);
+                    } else if (!cancelado) {
+                        notificar(observer, entrada.transacao, System.nanoTime() - entrada.publicadoEm);
+                    }
+                }
+            } finally {
+                agendado.set(false);
+            }
+            if (!fila.isEmpty() || temAtrasos()) {
+                agendar();
+            }
+        }
+
+        /**
+         * Um marcador só é concluído depois de relidas as contas atrasadas antes dele
+         */
+        private synchronized void marcado(CompletableFuture<Void> marcador) {
+            if (atrasos.isEmpty()) {
+                marcador.complete(null);
+            } else {
+                marcadores.add(marcador);
+            }
+        }
+
+        private synchronized boolean temAtrasos() {
+            return !atrasos.isEmpty() || !marcadores.isEmpty();
+        }
+
+        /**
+         * Entrega, conta por conta, as sequências perdidas, lidas do extrato sem segurar o assinante
+         * Eventos da conta publicados durante a leitura estendem a faixa e são lidos na volta seguinte
+         */
+        private void recuperar() {
+            while (true) {
+                String numeroConta;
+                long desde;
+                long ate;
+                Atraso atraso;
+                synchronized (this) {
+                    if (atrasos.isEmpty()) {
+                        marcadores.forEach(marcador -> marcador.complete(null));
+                        marcadores.clear();
+                        return;
+                    }
+                    Map.Entry<String, Atraso> proximo = atrasos.entrySet().iterator().next();
+                    numeroConta = proximo.getKey();
+                    atraso = proximo.getValue();
+                    desde = atraso.desde;
+                    ate = atraso.ate;
+                }
+
+                List<Transacao> perdidas = new ArrayList<>();
+                try {
+                    extrato.percorrer(ConsultaExtrato.daConta(numeroConta).de(atraso.data), transacao -> {
+                        if (transacao.getSequencia() >= desde && transacao.getSequencia() <= ate) {
+                            perdidas.add(transacao);
+                        }
+                    });
+                } catch (IOException | RuntimeException e) {
+                    Log.erro("Erro ao reler o extrato da conta %s para %s: %s", numeroConta,
+                            observer.getClass().getSimpleName(), e.getMessage());
+                }
+                descartados.add(ate - desde + 1 - perdidas.size());
+                recuperados.add(perdidas.size());
+                if (!cancelado) {
+                    long esperaNaFila = System.nanoTime() - atraso.publicadoEm;
+                    perdidas.forEach(transacao -> notificar(observer, transacao, esperaNaFila));
+                }
+
+                synchronized (this) {
+                    if (atrasos.get(numeroConta) != atraso) continue;
+                    if (atraso.ate > ate) {
+                        atraso.desde = ate + 1;
+                        if (!perdidas.isEmpty()) {
+                            atraso.data = perdidas.get(perdidas.size() - 1).getData();
+                        }
+                    } else {
+                        atrasos.remove(numeroConta);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,326 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks das operações principais do banco, no estilo do JMH:
+ * iterações de aquecimento e de medição por tempo, vazão em ops/s e latência por operação
+ *
+ * Uso (com o banco parado, os dados vão para um diretório temporário):
+ *   java -Dbanco.dados=/tmp/bench BenchmarkBanco [contas para o caminho de carga...]
+ *
+ * Propriedades: banco.benchmark.aquecimento, banco.benchmark.iteracoes,
+ * banco.benchmark.segundos e banco.benchmark.saida (arquivo CSV para acompanhar regressões)
+ */
+public class BenchmarkBanco {
+    private static final int AQUECIMENTO = Integer.getInteger("banco.benchmark.aquecimento", 3);
+    private static final int ITERACOES = Integer.getInteger("banco.benchmark.iteracoes", 5);
+    private static final long NANOS_POR_ITERACAO = Long.getLong("banco.benchmark.segundos", 1) * 1_000_000_000L;
+    private static final int MAX_AMOSTRAS = 1 << 21;
+    private static final int[] CONTAS_PADRAO = {1_000, 10_000, 100_000};
+    private static final int TRANSACOES_EXTRATO = 200_000;
+
+    private static final String SENHA = "1234";
+    private static final long SALDO_INICIAL = 1_000_000_000_00L;
+
+    private final PrintStream saida;
+    private final List<Resultado> resultados = new ArrayList<>();
+
+    /**
+     * Uma operação medida; o índice permite alternar contas e sentidos
+     */
+    @FunctionalInterface
+    interface Operacao {
+        void executar(long indice) throws Exception;
+    }
+
+    private BenchmarkBanco(PrintStream saida) {
+        this.saida = saida;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] tamanhos = args.length == 0 ? CONTAS_PADRAO
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        if (System.getProperty("banco.dados") == null) {
+            System.setProperty("banco.dados", Files.createTempDirectory("banco-bench").toString());
+        }
+
+        // O console fica fora da medição (com banco.log.nivel=DEBUG, as operações imprimem uma linha cada)
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        BenchmarkBanco benchmark = new BenchmarkBanco(console);
+        try {
+            benchmark.operacoesBancarias();
+            benchmark.persistencia();
+            benchmark.extrato();
+            for (int contas : tamanhos) {
+                benchmark.caminhoDeCarga(contas);
+            }
+        } finally {
+            System.setOut(console);
+        }
+        benchmark.relatorio();
+    }
+
+    private void operacoesBancarias() {
+        BankSingleton bank = BankSingleton.getInstance();
+        String[] contas = {"90001", "90002", "90003", "90004"};
+        for (String conta : contas) {
+            if (bank.buscarConta(conta) == null) {
+                bank.criarConta(conta, "NORMAL", "bench" + conta, SENHA);
+            }
+            bank.deposito(conta, SALDO_INICIAL);
+        }
+
+        medir("BankSingleton.deposito", i -> bank.deposito(contas[(int) (i & 3)], 100));
+        medir("BankSingleton.saque", i -> bank.saque(contas[(int) (i & 3)], 100));
+        // Alterna o sentido para que nenhuma conta se esgote com as taxas
+        medir("BankSingleton.transferencia", i -> {
+            int par = (int) (i & 1) * 2;
+            boolean ida = (i & 2) == 0;
+            bank.transferencia(contas[ida ? par : par + 1], contas[ida ? par + 1 : par], 100);
+        });
+        medir("BankSingleton.login", i -> bank.login(contas[(int) (i & 3)], SENHA));
+        bank.logout();
+    }
+
+    private void persistencia() {
+        FileManagerSingleton fileManager = FileManagerSingleton.getInstance();
+        ContaBancaria conta = new ContaBancaria("90010", "NORMAL", "bench90010", SENHA);
+        medir("FileManagerSingleton.salvarConta", i -> {
+            conta.setSaldoCentavos(i);
+            fileManager.salvarConta(conta);
+        });
+        medir("FileManagerSingleton.salvarTransacao", i -> fileManager.salvarTransacao("90010",
+                new Transacao(Transacao.TipoTransacao.DEPOSITO, 100, "Depósito em conta", "90010", null)));
+    }
+
+    /**
+     * Página de extrato dos últimos 30 dias contra o histórico completo e a exportação, numa conta antiga
+     */
+    private void extrato() throws IOException {
+        Path diretorio = Files.createTempDirectory("banco-extrato");
+        JournalTransacoes journal = new JournalTransacoes(diretorio);
+        LocalDateTime inicio = LocalDateTime.now().minusDays(1000);
+        List<Transacao> lote = new ArrayList<>();
+        for (int i = 0; i < TRANSACOES_EXTRATO; i++) {
+            lote.add(new Transacao(inicio.plusMinutes(i * 7L), Transacao.TipoTransacao.DEPOSITO, 100,
+                    "Depósito em conta", "90020", null));
+            if (lote.size() == 10_000) {
+                journal.anexar("90020", lote);
+                lote.clear();
+            }
+        }
+        journal.anexar("90020", lote);
+
+        ConsultaExtrato ultimos30Dias = ConsultaExtrato.daConta("90020").ultimosDias(30).limite(50);
+        medir("extrato.pagina[" + TRANSACOES_EXTRATO + " transações]", i -> journal.consultar(ultimos30Dias));
+        medir("extrato.historicoCompleto[" + TRANSACOES_EXTRATO + " transações]", i -> journal.ler("90020"));
+        // Exportação completa em streaming; o destino descarta os bytes para medir leitura e formatação
+        ExportadorExtrato exportador = new ExportadorExtrato(journal::percorrer);
+        WritableByteChannel descarte = Channels.newChannel(OutputStream.nullOutputStream());
+        medir("extrato.exportarCsv[" + TRANSACOES_EXTRATO + " transações]", i -> exportador.exportar(
+                ConsultaExtrato.daConta("90020"), ExportadorExtrato.Formato.CSV, descarte));
+        journal.fechar();
+        apagar(diretorio);
+    }
+
+    /**
+     * Abertura da tabela e do journal, como na inicialização do FileManagerSingleton,
+     * sobre um diretório com a quantidade de contas informada
+     */
+    private void caminhoDeCarga(int quantidade) throws IOException {
+        Path diretorio = Files.createTempDirectory("banco-carga-" + quantidade);
+        Path arquivoTabela = diretorio.resolve("contas.tbl");
+        Path transacoes = diretorio.resolve("transacoes");
+        Files.createDirectories(transacoes);
+
+        TabelaContas tabela = new TabelaContas(arquivoTabela);
+        JournalTransacoes journal = new JournalTransacoes(transacoes);
+        for (int i = 0; i < Math.min(quantidade, TabelaContas.MAX_CONTAS); i++) {
+            String numero = String.format("%05d", i);
+            tabela.gravar(new ContaBancaria(numero, i % 10 == 0 ? "VIP" : "NORMAL", "carga" + i, SENHA));
+            journal.anexar(numero, new Transacao(Transacao.TipoTransacao.DEPOSITO, 100,
+                    "Depósito em conta", numero, null));
+        }
+        tabela.fechar();
+        journal.fechar();
+
+        medir("carga.abrirTabela[" + quantidade + " contas]", i -> {
+            TabelaContas aberta = new TabelaContas(arquivoTabela);
+            aberta.contarContas();
+            aberta.fechar();
+        });
+        medir("carga.primeiroHistorico[" + quantidade + " contas]", i -> {
+            JournalTransacoes aberto = new JournalTransacoes(transacoes);
+            aberto.ler(String.format("%05d", i % quantidade));
+            aberto.fechar();
+        });
+        // Reinício completo no modo com log de recuperação: checkpoint mais cauda do log (vazia aqui)
+        medir("carga.reinicio[" + quantidade + " contas]", i -> {
+            TabelaContas aberta = new TabelaContas(arquivoTabela);
+            JournalTransacoes aberto = new JournalTransacoes(transacoes);
+            LogRecuperacao log = new LogRecuperacao(diretorio, aberta, aberto);
+            log.recuperar();
+            aberta.contarContas();
+            log.fechar();
+            aberta.fechar();
+            aberto.fechar();
+        });
+        apagar(diretorio);
+    }
+
+    private void medir(String nome, Operacao operacao) {
+        saida.println("# " + nome);
+        long indice = 0;
+        for (int i = 0; i < AQUECIMENTO; i++) {
+            Iteracao iteracao = executar(operacao, indice, null);
+            indice += iteracao.operacoes;
+            saida.printf("  aquecimento %d: %,.0f ops/s%n", i + 1, iteracao.vazao());
+        }
+
+        Amostrador amostrador = new Amostrador(MAX_AMOSTRAS);
+        double[] vazoes = new double[ITERACOES];
+        for (int i = 0; i < ITERACOES; i++) {
+            Iteracao iteracao = executar(operacao, indice, amostrador);
+            indice += iteracao.operacoes;
+            vazoes[i] = iteracao.vazao();
+            saida.printf("  iteração %d: %,.0f ops/s%n", i + 1, vazoes[i]);
+        }
+
+        resultados.add(new Resultado(nome, vazoes, amostrador.ordenadas()));
+    }
+
+    private static Iteracao executar(Operacao operacao, long primeiroIndice, Amostrador amostrador) {
+        long operacoes = 0;
+        long inicio = System.nanoTime();
+        long fim = inicio + NANOS_POR_ITERACAO;
+        long agora = inicio;
+        try {
+            while (agora < fim) {
+                operacao.executar(primeiroIndice + operacoes);
+                long depois = System.nanoTime();
+                if (amostrador != null) {
+                    amostrador.registrar(depois - agora);
+                }
+                agora = depois;
+                operacoes++;
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Falha na operação " + (primeiroIndice + operacoes), e);
+        }
+        return new Iteracao(operacoes, agora - inicio);
+    }
+
+    private void relatorio() throws IOException {
+        saida.println();
+        saida.printf("%-48s %14s %10s %10s %10s %10s %10s%n",
+                "Benchmark", "ops/s", "± desvio", "p50 µs", "p99 µs", "p99.9 µs", "máx µs");
+        resultados.forEach(r -> saida.printf("%-48s %,14.0f %10.0f %10.1f %10.1f %10.1f %10.1f%n",
+                r.nome, r.media(), r.desvio(), r.percentil(0.50), r.percentil(0.99),
+                r.percentil(0.999), r.percentil(1.0)));
+
+        String arquivoCsv = System.getProperty("banco.benchmark.saida");
+        if (arquivoCsv != null) {
+            List<String> linhas = new ArrayList<>();
+            linhas.add("benchmark,ops_s,desvio,p50_us,p99_us,p999_us,max_us");
+            resultados.forEach(r -> linhas.add(String.format(Locale.ROOT,
+                    "\"%s\",%.0f,%.0f,%.1f,%.1f,%.1f,%.1f", r.nome, r.media(), r.desvio(),
+                    r.percentil(0.50), r.percentil(0.99), r.percentil(0.999), r.percentil(1.0))));
+            Files.write(Paths.get(arquivoCsv), linhas, StandardCharsets.UTF_8);
+            saida.println("Resultados gravados em " + arquivoCsv);
+        }
+    }
+
+    private static void apagar(Path diretorio) throws IOException {
+        try (Stream<Path> caminhos = Files.walk(diretorio)) {
+            caminhos.sorted(Comparator.reverseOrder()).forEach(caminho -> {
+                try {
+                    Files.delete(caminho);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Latências em nanossegundos das iterações de medição (as primeiras, até o limite)
+     */
+    private static class Amostrador {
+        private final long[] amostras;
+        private int quantidade;
+
+        Amostrador(int capacidade) {
+            this.amostras = new long[capacidade];
+        }
+
+        void registrar(long nanos) {
+            if (quantidade < amostras.length) {
+                amostras[quantidade++] = nanos;
+            }
+        }
+
+        long[] ordenadas() {
+            long[] ordenadas = Arrays.copyOf(amostras, quantidade);
+            Arrays.sort(ordenadas);
+            return ordenadas;
+        }
+    }
+
+    private static class Iteracao {
+        final long operacoes;
+        final long nanos;
+
+        Iteracao(long operacoes, long nanos) {
+            this.operacoes = operacoes;
+            this.nanos = nanos;
+        }
+
+        double vazao() {
+            return operacoes * 1e9 / nanos;
+        }
+    }
+
+    private static class Resultado {
+        final String nome;
+        final double[] vazoes;
+        final long[] latencias;
+
+        Resultado(String nome, double[] vazoes, long[] latencias) {
+            this.nome = nome;
+            this.vazoes = vazoes;
+            this.latencias = latencias;
+        }
+
+        double media() {
+            return Arrays.stream(vazoes).average().orElse(0);
+        }
+
+        double desvio() {
+            double media = media();
+            return Math.sqrt(Arrays.stream(vazoes).map(v -> (v - media) * (v - media)).sum()
+                    / Math.max(1, vazoes.length - 1));
+        }
+
+        double percentil(double p) {
+            if (latencias.length == 0) return 0;
+            int posicao = (int) Math.ceil(p * latencias.length) - 1;
+            return latencias[Math.max(0, Math.min(posicao, latencias.length - 1))] / 1000.0;
+        }
+    }
+}
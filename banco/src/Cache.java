@@ -0,0 +1,41 @@
+/**
+ * Cache em memória usado pelo FileManagerSingleton na frente da tabela de contas e do journal
+ * As implementações limitam o peso total e expõem contadores de acertos, falhas e despejos
+ */
+public interface Cache<K, V> {
+
+    /**
+     * Valor em cache ou null, contando um acerto ou uma falha
+     */
+    V obter(K chave);
+
+    /**
+     * Valor em cache ou null, sem contar nas estatísticas (usado nas gravações)
+     */
+    V consultar(K chave);
+
+    /**
+     * Insere ou substitui o valor, recalculando o seu peso
+     */
+    void colocar(K chave, V valor);
+
+    /**
+     * Insere o valor apenas se a chave não estiver em cache
+     * Retorna o valor já existente, ou null se o novo foi inserido
+     */
+    V colocarSeAusente(K chave, V valor);
+
+    void remover(K chave);
+
+    void limpar();
+
+    int tamanho();
+
+    long peso();
+
+    long acertos();
+
+    long falhas();
+
+    long despejos();
+}
@@ -0,0 +1,135 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * Cache LRU limitado por peso: cada entrada tem o peso dado pelo pesador
+ * (1 por conta, número de transações por histórico) e as menos usadas são
+ * descartadas enquanto o peso total passar do máximo
+ */
+public class CacheLRU<K, V> implements Cache<K, V> {
+    private final String nome;
+    private final long pesoMaximo;
+    private final ToIntFunction<V> pesador;
+    private final LinkedHashMap<K, Entrada<V>> entradas;
+    private long pesoTotal;
+
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+    private final LongAdder despejos = new LongAdder();
+
+    public CacheLRU(String nome, long pesoMaximo, ToIntFunction<V> pesador) {
+        if (pesoMaximo <= 0) {
+            throw new IllegalArgumentException("Peso máximo do cache deve ser positivo!");
+        }
+        this.nome = nome;
+        this.pesoMaximo = pesoMaximo;
+        this.pesador = pesador;
+        // Ordem de acesso: o primeiro da iteração é o menos usado recentemente
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    @Override
+    public synchronized V obter(K chave) {
+        Entrada<V> entrada = entradas.get(chave);
+        if (entrada == null) {
+            falhas.increment();
+            return null;
+        }
+        acertos.increment();
+        return entrada.valor;
+    }
+
+    @Override
+    public synchronized V consultar(K chave) {
+        Entrada<V> entrada = entradas.get(chave);
+        return entrada == null ? null : entrada.valor;
+    }
+
+    @Override
+    public synchronized void colocar(K chave, V valor) {
+        Entrada<V> nova = new Entrada<>(valor, pesador.applyAsInt(valor));
+        Entrada<V> anterior = entradas.put(chave, nova);
+        if (anterior != null) {
+            pesoTotal -= anterior.peso;
+        }
+        pesoTotal += nova.peso;
+        despejar();
+    }
+
+    @Override
+    public synchronized V colocarSeAusente(K chave, V valor) {
+        Entrada<V> existente = entradas.get(chave);
+        if (existente != null) return existente.valor;
+        colocar(chave, valor);
+        return null;
+    }
+
+    @Override
+    public synchronized void remover(K chave) {
+        Entrada<V> removida = entradas.remove(chave);
+        if (removida != null) {
+            pesoTotal -= removida.peso;
+        }
+    }
+
+    @Override
+    public synchronized void limpar() {
+        entradas.clear();
+        pesoTotal = 0;
+    }
+
+    @Override
+    public synchronized int tamanho() {
+        return entradas.size();
+    }
+
+    @Override
+    public synchronized long peso() {
+        return pesoTotal;
+    }
+
+    @Override
+    public long acertos() {
+        return acertos.sum();
+    }
+
+    @Override
+    public long falhas() {
+        return falhas.sum();
+    }
+
+    @Override
+    public long despejos() {
+        return despejos.sum();
+    }
+
+    private void despejar() {
+        Iterator<Entrada<V>> menosUsadas = entradas.values().iterator();
+        while (pesoTotal > pesoMaximo && menosUsadas.hasNext()) {
+            pesoTotal -= menosUsadas.next().peso;
+            menosUsadas.remove();
+            despejos.increment();
+        }
+    }
+
+    @Override
+    public String toString() {
+        long consultas = acertos() + falhas();
+        return String.format("%s: %d entradas, peso %d/%d, acertos %d, falhas %d, despejos %d (taxa de acerto %.1f%%)",
+                nome, tamanho(), peso(), pesoMaximo, acertos(), falhas(), despejos(),
+                consultas == 0 ? 0.0 : 100.0 * acertos() / consultas);
+    }
+
+    private static class Entrada<V> {
+        final V valor;
+        final int peso;
+
+        Entrada(V valor, int peso) {
+            this.valor = valor;
+            this.peso = peso;
+        }
+    }
+}
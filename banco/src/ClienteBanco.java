@@ -0,0 +1,135 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cliente bloqueante do ServidorBanco, uma requisição por vez
+ * Os erros do servidor voltam como as mesmas exceções do BankSingleton:
+ * IllegalArgumentException para validação e IllegalStateException para o resto
+ */
+public class ClienteBanco implements AutoCloseable {
+    private static final Transacao.TipoTransacao[] TIPOS = Transacao.TipoTransacao.values();
+
+    private final SocketChannel canal;
+    private final ByteBuffer tamanho = ByteBuffer.allocate(Integer.BYTES);
+    private int proximoId;
+
+    public ClienteBanco(String host, int porta) {
+        try {
+            canal = SocketChannel.open(new InetSocketAddress(host, porta));
+            canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao conectar em " + host + ":" + porta, e);
+        }
+    }
+
+    public void criarConta(String numeroConta, String tipo, String login, String senha) {
+        enviar(requisicao(ProtocoloBanco.CRIAR_CONTA).texto(numeroConta).texto(tipo).texto(login).texto(senha));
+    }
+
+    public void login(String numeroConta, String senha) {
+        enviar(requisicao(ProtocoloBanco.LOGIN).texto(numeroConta).texto(senha));
+    }
+
+    public void logout() {
+        enviar(requisicao(ProtocoloBanco.LOGOUT));
+    }
+
+    /**
+     * Retorna o saldo da conta após a operação, em centavos
+     */
+    public long deposito(long centavos) {
+        return enviar(requisicao(ProtocoloBanco.DEPOSITO).longo(centavos)).getLong();
+    }
+
+    public long saque(long centavos) {
+        return enviar(requisicao(ProtocoloBanco.SAQUE).longo(centavos)).getLong();
+    }
+
+    public long transferencia(String contaDestino, long centavos) {
+        return enviar(requisicao(ProtocoloBanco.TRANSFERENCIA).texto(contaDestino).longo(centavos)).getLong();
+    }
+
+    public long saldo() {
+        return enviar(requisicao(ProtocoloBanco.SALDO)).getLong();
+    }
+
+    /**
+     * Uma página do extrato da conta logada; de e cursor podem ser null
+     */
+    public PaginaExtrato extrato(LocalDateTime de, int limite, String cursor) {
+        ByteBuffer resposta = enviar(requisicao(ProtocoloBanco.EXTRATO)
+                .longo(de == null ? Long.MIN_VALUE : CodecTransacao.epochMillis(de))
+                .inteiro(limite)
+                .texto(cursor));
+        int quantidade = resposta.getInt();
+        List<Transacao> transacoes = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            LocalDateTime data = LocalDateTime.ofInstant(Instant.ofEpochMilli(resposta.getLong()), ZoneOffset.UTC);
+            Transacao.TipoTransacao tipo = TIPOS[resposta.get()];
+            long valor = resposta.getLong();
+            transacoes.add(new Transacao(data, tipo, valor, ProtocoloBanco.lerTexto(resposta), null, null));
+        }
+        String proximo = ProtocoloBanco.lerTexto(resposta);
+        return new PaginaExtrato(transacoes, proximo.isEmpty() ? null : proximo);
+    }
+
+    @Override
+    public void close() {
+        try {
+            canal.close();
+        } catch (IOException e) {
+            // já fechado
+        }
+    }
+
+    private ProtocoloBanco.Quadro requisicao(byte operacao) {
+        return ProtocoloBanco.requisicao(operacao, ++proximoId);
+    }
+
+    /**
+     * Envia a requisição e devolve o resultado da resposta, posicionado após o status
+     */
+    private ByteBuffer enviar(ProtocoloBanco.Quadro requisicao) {
+        try {
+            ByteBuffer quadro = requisicao.fechar();
+            while (quadro.hasRemaining()) {
+                canal.write(quadro);
+            }
+            tamanho.clear();
+            lerTudo(tamanho);
+            ByteBuffer resposta = ByteBuffer.allocate(tamanho.getInt(0));
+            lerTudo(resposta);
+            resposta.flip();
+
+            if (resposta.getInt() != proximoId) {
+                throw new IllegalStateException("Resposta fora de ordem do servidor");
+            }
+            byte status = resposta.get();
+            if (status == ProtocoloBanco.OK) return resposta;
+            String mensagem = ProtocoloBanco.lerTexto(resposta);
+            throw status == ProtocoloBanco.ERRO_VALIDACAO
+                    ? new IllegalArgumentException(mensagem)
+                    : new IllegalStateException(mensagem);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro na comunicação com o servidor", e);
+        }
+    }
+
+    private void lerTudo(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer) < 0) {
+                throw new EOFException("Conexão encerrada pelo servidor");
+            }
+        }
+    }
+}
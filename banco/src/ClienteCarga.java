@@ -0,0 +1,268 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cliente de carga do ServidorBanco
+ * Abre muitas conexões a partir de uma única thread com um Selector; cada conexão
+ * faz login numa das contas de carga e alterna depósitos e saques de R$ 1,00
+ * (o depósito vem antes, então o saque nunca fica sem saldo), uma requisição por vez.
+ * Mede a vazão e a latência de cada requisição, do envio à resposta.
+ * Para dezenas de milhares de conexões, aumente o limite de descritores (ulimit -n)
+ *
+ * Uso: java ClienteCarga [host] [porta] [conexões] [requisições por conexão] [contas]
+ */
+public class ClienteCarga {
+    private static final int PRIMEIRA_CONTA = 70000;
+    private static final String SENHA = "1234";
+    private static final long VALOR = 100;
+    private static final long TEMPO_MAXIMO_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final InetSocketAddress endereco;
+    private final int conexoes;
+    private final int requisicoesPorConexao;
+    private final int contas;
+
+    public ClienteCarga(InetSocketAddress endereco, int conexoes, int requisicoesPorConexao, int contas) {
+        if (contas < 1 || PRIMEIRA_CONTA + contas > TabelaContas.MAX_CONTAS) {
+            throw new IllegalArgumentException("Quantidade de contas de carga inválida: " + contas);
+        }
+        this.endereco = endereco;
+        this.conexoes = conexoes;
+        this.requisicoesPorConexao = requisicoesPorConexao;
+        this.contas = contas;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int porta = args.length > 1 ? Integer.parseInt(args[1]) : Main.PORTA_PADRAO;
+        int conexoes = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int requisicoes = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        int contas = args.length > 4 ? Integer.parseInt(args[4]) : Math.min(conexoes, 1000);
+
+        ClienteCarga carga = new ClienteCarga(new InetSocketAddress(host, porta), conexoes, requisicoes, contas);
+        carga.criarContas();
+        System.out.println(carga.executar());
+    }
+
+    /**
+     * Cria as contas usadas pela carga; as que já existem (de uma execução anterior) são reaproveitadas
+     */
+    public void criarContas() {
+        try (ClienteBanco cliente = new ClienteBanco(endereco.getHostString(), endereco.getPort())) {
+            for (int i = 0; i < contas; i++) {
+                try {
+                    cliente.criarConta(numeroConta(i), "NORMAL", "carga" + i, SENHA);
+                } catch (IllegalStateException e) {
+                    // Conta já existe: a carga deposita antes de sacar, então qualquer saldo serve
+                }
+            }
+        }
+    }
+
+    /**
+     * Executa a carga e retorna o resultado quando todas as conexões terminarem
+     */
+    public Resultado executar() throws IOException {
+        long[] latencias = new long[Math.multiplyExact(conexoes, requisicoesPorConexao)];
+        Resultado resultado = new Resultado(latencias);
+        long inicio = System.nanoTime();
+
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < conexoes; i++) {
+                SocketChannel canal = SocketChannel.open();
+                canal.configureBlocking(false);
+                canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Conexao conexao = new Conexao(canal, numeroConta(i % contas));
+                if (canal.connect(endereco)) {
+                    conexao.chave = canal.register(selector, SelectionKey.OP_READ, conexao);
+                    conexao.enviar(conexao.login());
+                } else {
+                    conexao.chave = canal.register(selector, SelectionKey.OP_CONNECT, conexao);
+                }
+            }
+
+            int ativas = conexoes;
+            while (ativas > 0 && System.nanoTime() - inicio < TEMPO_MAXIMO_NANOS) {
+                selector.select(1000);
+                Iterator<SelectionKey> chaves = selector.selectedKeys().iterator();
+                while (chaves.hasNext()) {
+                    SelectionKey chave = chaves.next();
+                    chaves.remove();
+                    Conexao conexao = (Conexao) chave.attachment();
+                    try {
+                        if (chave.isConnectable()) {
+                            conexao.canal.finishConnect();
+                            chave.interestOps(SelectionKey.OP_READ);
+                            conexao.enviar(conexao.login());
+                        } else if (chave.isWritable()) {
+                            conexao.escrever();
+                        } else if (chave.isReadable() && !conexao.ler(resultado)) {
+                            conexao.fechar();
+                            ativas--;
+                        }
+                    } catch (IOException e) {
+                        resultado.falhasDeConexao++;
+                        conexao.fechar();
+                        ativas--;
+                    }
+                }
+            }
+            resultado.naoConcluidas = ativas;
+            for (SelectionKey chave : selector.keys()) {
+                ((Conexao) chave.attachment()).fechar();
+            }
+        }
+        resultado.duracaoNanos = System.nanoTime() - inicio;
+        return resultado;
+    }
+
+    private static String numeroConta(int indice) {
+        return String.format("%05d", PRIMEIRA_CONTA + indice);
+    }
+
+    /**
+     * Uma conexão da carga: login e depois requisições alternadas, uma de cada vez
+     */
+    private class Conexao {
+        final SocketChannel canal;
+        final String numeroConta;
+        final ByteBuffer entrada = ByteBuffer.allocate(256);
+        SelectionKey chave;
+        ByteBuffer saida;
+        int enviadas;
+        long enviadaEm;
+        boolean autenticada;
+
+        Conexao(SocketChannel canal, String numeroConta) {
+            this.canal = canal;
+            this.numeroConta = numeroConta;
+        }
+
+        ByteBuffer login() {
+            return ProtocoloBanco.requisicao(ProtocoloBanco.LOGIN, 0).texto(numeroConta).texto(SENHA).fechar();
+        }
+
+        ByteBuffer proxima() {
+            byte operacao = enviadas % 2 == 0 ? ProtocoloBanco.DEPOSITO : ProtocoloBanco.SAQUE;
+            return ProtocoloBanco.requisicao(operacao, ++enviadas).longo(VALOR).fechar();
+        }
+
+        void enviar(ByteBuffer requisicao) throws IOException {
+            saida = requisicao;
+            enviadaEm = System.nanoTime();
+            escrever();
+        }
+
+        void escrever() throws IOException {
+            canal.write(saida);
+            chave.interestOps(saida.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        /**
+         * Lê as respostas disponíveis; retorna false quando a conexão terminou
+         */
+        boolean ler(Resultado resultado) throws IOException {
+            if (canal.read(entrada) < 0) {
+                throw new IOException("Conexão encerrada pelo servidor");
+            }
+            entrada.flip();
+            try {
+                while (entrada.remaining() >= Integer.BYTES) {
+                    int tamanho = entrada.getInt(entrada.position());
+                    if (entrada.remaining() < Integer.BYTES + tamanho) break;
+                    int fim = entrada.position() + Integer.BYTES + tamanho;
+                    entrada.position(entrada.position() + Integer.BYTES + Integer.BYTES);
+                    byte status = entrada.get();
+                    entrada.position(fim);
+
+                    long latencia = System.nanoTime() - enviadaEm;
+                    if (!autenticada) {
+                        if (status != ProtocoloBanco.OK) {
+                            resultado.falhasDeLogin++;
+                            return false;
+                        }
+                        autenticada = true;
+                    } else {
+                        resultado.registrar(latencia, status == ProtocoloBanco.OK);
+                    }
+                    if (enviadas == requisicoesPorConexao) return false;
+                    enviar(proxima());
+                }
+            } finally {
+                entrada.compact();
+            }
+            return true;
+        }
+
+        void fechar() {
+            try {
+                canal.close();
+            } catch (IOException e) {
+                // já fechado
+            }
+        }
+    }
+
+    /**
+     * Vazão e latências de uma execução
+     */
+    public static class Resultado {
+        private final long[] latencias;
+        private int respostas;
+        private long erros;
+        private long falhasDeConexao;
+        private long falhasDeLogin;
+        private long naoConcluidas;
+        private long duracaoNanos;
+        private boolean ordenadas;
+
+        Resultado(long[] latencias) {
+            this.latencias = latencias;
+        }
+
+        void registrar(long latenciaNanos, boolean sucesso) {
+            latencias[respostas++] = latenciaNanos;
+            if (!sucesso) erros++;
+        }
+
+        public int getRespostas() { return respostas; }
+        public long getErros() { return erros; }
+        public long getFalhasDeConexao() { return falhasDeConexao; }
+        public long getFalhasDeLogin() { return falhasDeLogin; }
+        public long getNaoConcluidas() { return naoConcluidas; }
+
+        public double vazao() {
+            return respostas / (duracaoNanos / 1e9);
+        }
+
+        /**
+         * Latência no percentil p (0 a 1), em microssegundos
+         */
+        public double percentil(double p) {
+            if (respostas == 0) return 0;
+            if (!ordenadas) {
+                Arrays.sort(latencias, 0, respostas);
+                ordenadas = true;
+            }
+            int posicao = (int) Math.ceil(p * respostas) - 1;
+            return latencias[Math.max(0, Math.min(posicao, respostas - 1))] / 1000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Respostas: %d em %.2f s (%.0f req/s), erros: %d, falhas de conexão: %d,"
+                            + " falhas de login: %d, não concluídas: %d%n"
+                            + "Latência (µs): p50 %.1f | p99 %.1f | p99.9 %.1f | máx %.1f",
+                    respostas, duracaoNanos / 1e9, vazao(), erros, falhasDeConexao, falhasDeLogin, naoConcluidas,
+                    percentil(0.50), percentil(0.99), percentil(0.999), percentil(1.0));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Codec binário compacto de Transacao, usado no lugar da serialização Java
+ * Layout fixo de 32 bytes: data em epoch millis(8) tipo(1) valor em centavos(8)
+ * origem(4) destino(4) id da descrição(4) e 3 bytes livres
+ */
+public class CodecTransacao {
+    public static final int TAMANHO_REGISTRO = 32;
+    // A data e o tipo podem ser lidos direto do registro, sem decodificá-lo
+    static final int OFFSET_TIPO = 8;
+    private static final int SEM_CONTA = -1;
+
+    // Descrições que terminam com o número de uma das contas são guardadas como modelo,
+    // para que "Transferência enviada para 12345" não gere uma entrada por conta
+    private static final char MARCADOR_ORIGEM = '\u0001';
+    private static final char MARCADOR_DESTINO = '\u0002';
+
+    private final DicionarioDescricoes dicionario;
+
+    public CodecTransacao(DicionarioDescricoes dicionario) {
+        this.dicionario = dicionario;
+    }
+
+    public void codificar(Transacao transacao, ByteBuffer buffer) {
+        int inicio = buffer.position();
+        buffer.putLong(epochMillis(transacao.getData()));
+        buffer.put((byte) transacao.getTipo().ordinal());
+        buffer.putLong(transacao.getValorCentavos());
+        buffer.putInt(numeroParaInt(transacao.getContaOrigem()));
+        buffer.putInt(numeroParaInt(transacao.getContaDestino()));
+        buffer.putInt(dicionario.id(modelo(transacao)));
+        buffer.position(inicio + TAMANHO_REGISTRO);
+    }
+
+    public Transacao decodificar(ByteBuffer buffer) {
+        int inicio = buffer.position();
+        LocalDateTime data = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(buffer.getLong()), ZoneOffset.UTC);
+        Transacao.TipoTransacao tipo = Transacao.TipoTransacao.values()[buffer.get()];
+        long valor = buffer.getLong();
+        String origem = intParaNumero(buffer.getInt());
+        String destino = intParaNumero(buffer.getInt());
+        String descricao = expandir(dicionario.descricao(buffer.getInt()), origem, destino);
+        buffer.position(inicio + TAMANHO_REGISTRO);
+
+        return new Transacao(data, tipo, valor, descricao, origem, destino);
+    }
+
+    private static String modelo(Transacao transacao) {
+        String descricao = transacao.getDescricao() == null ? "" : transacao.getDescricao();
+        String destino = transacao.getContaDestino();
+        String origem = transacao.getContaOrigem();
+        if (destino != null && descricao.endsWith(destino)) {
+            return descricao.substring(0, descricao.length() - destino.length()) + MARCADOR_DESTINO;
+        }
+        if (origem != null && descricao.endsWith(origem)) {
+            return descricao.substring(0, descricao.length() - origem.length()) + MARCADOR_ORIGEM;
+        }
+        return descricao;
+    }
+
+    private static String expandir(String modelo, String origem, String destino) {
+        if (modelo.isEmpty()) return modelo;
+        char ultimo = modelo.charAt(modelo.length() - 1);
+        if (ultimo == MARCADOR_DESTINO) {
+            return modelo.substring(0, modelo.length() - 1) + destino;
+        }
+        if (ultimo == MARCADOR_ORIGEM) {
+            return modelo.substring(0, modelo.length() - 1) + origem;
+        }
+        return modelo;
+    }
+
+    /**
+     * Data como gravada no registro
+     */
+    static long epochMillis(LocalDateTime data) {
+        return data.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static int numeroParaInt(String numeroConta) {
+        return numeroConta == null ? SEM_CONTA : Integer.parseInt(numeroConta);
+    }
+
+    static String intParaNumero(int numero) {
+        return numero == SEM_CONTA ? null : String.format("%05d", numero);
+    }
+}
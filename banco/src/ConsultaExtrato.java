@@ -0,0 +1,87 @@
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Critérios de uma consulta de extrato: conta, período [de, ate), tipos de transação,
+ * tamanho da página e o cursor devolvido pela página anterior
+ * É imutável: cada método devolve uma nova consulta
+ */
+public class ConsultaExtrato {
+    public static final int LIMITE_PADRAO = 50;
+    public static final int LIMITE_MAXIMO = 1000;
+
+    private final String numeroConta;
+    private final LocalDateTime de;
+    private final LocalDateTime ate;
+    private final Set<Transacao.TipoTransacao> tipos;
+    private final int limite;
+    private final String cursor;
+
+    private ConsultaExtrato(String numeroConta, LocalDateTime de, LocalDateTime ate,
+                            Set<Transacao.TipoTransacao> tipos, int limite, String cursor) {
+        this.numeroConta = numeroConta;
+        this.de = de;
+        this.ate = ate;
+        this.tipos = tipos;
+        this.limite = limite;
+        this.cursor = cursor;
+    }
+
+    /**
+     * Todas as transações da conta, em ordem cronológica, em páginas de LIMITE_PADRAO
+     */
+    public static ConsultaExtrato daConta(String numeroConta) {
+        return new ConsultaExtrato(numeroConta, null, null,
+                Collections.unmodifiableSet(EnumSet.allOf(Transacao.TipoTransacao.class)), LIMITE_PADRAO, null);
+    }
+
+    public ConsultaExtrato de(LocalDateTime de) {
+        return new ConsultaExtrato(numeroConta, de, ate, tipos, limite, cursor);
+    }
+
+    public ConsultaExtrato ate(LocalDateTime ate) {
+        return new ConsultaExtrato(numeroConta, de, ate, tipos, limite, cursor);
+    }
+
+    public ConsultaExtrato ultimosDias(int dias) {
+        return de(LocalDateTime.now().minusDays(dias));
+    }
+
+    public ConsultaExtrato tipos(Transacao.TipoTransacao... tipos) {
+        if (tipos.length == 0) {
+            throw new IllegalArgumentException("Informe ao menos um tipo de transação!");
+        }
+        EnumSet<Transacao.TipoTransacao> selecionados = EnumSet.noneOf(Transacao.TipoTransacao.class);
+        selecionados.addAll(Arrays.asList(tipos));
+        return new ConsultaExtrato(numeroConta, de, ate, Collections.unmodifiableSet(selecionados), limite, cursor);
+    }
+
+    public ConsultaExtrato limite(int limite) {
+        if (limite < 1 || limite > LIMITE_MAXIMO) {
+            throw new IllegalArgumentException("Limite deve estar entre 1 e " + LIMITE_MAXIMO + "!");
+        }
+        return new ConsultaExtrato(numeroConta, de, ate, tipos, limite, cursor);
+    }
+
+    /**
+     * Continua a partir do cursor de PaginaExtrato.getProximoCursor()
+     */
+    public ConsultaExtrato aPartirDe(String cursor) {
+        return new ConsultaExtrato(numeroConta, de, ate, tipos, limite, cursor);
+    }
+
+    public boolean aceita(Transacao.TipoTransacao tipo) {
+        return tipos.contains(tipo);
+    }
+
+    // Getters
+    public String getNumeroConta() { return numeroConta; }
+    public LocalDateTime getDe() { return de; }
+    public LocalDateTime getAte() { return ate; }
+    public Set<Transacao.TipoTransacao> getTipos() { return tipos; }
+    public int getLimite() { return limite; }
+    public String getCursor() { return cursor; }
+}
@@ -1,18 +1,27 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 
 public class ContaBancaria implements Serializable {
     private static final long serialVersionUID = 1L;
 
-    private final String numeroConta;
-    private final String tipoUsuario;
-    private final String login;
-    private final String senha;
-    private float saldo;
+    // Juros do saldo negativo VIP: 0,1% por minuto, em pontos-base
+    private static final long JUROS_NEGATIVO_POR_MINUTO = 10;
+
+    // Não são final apenas por causa da leitura de arquivos legados em readObject
+    private String numeroConta;
+    private String tipoUsuario;
+    private String login;
+    private String senha;
+    // Saldo com os juros lançados até ultimoSaqueNegativo, que é a data-base dos juros:
+    // os juros posteriores a ela são calculados na leitura (getSaldoEfetivoCentavos)
+    // e só entram no saldo em lancarJuros
+    private long saldoCentavos;
     private LocalDateTime ultimoSaqueNegativo;
 
     public ContaBancaria(String numeroConta, String tipoUsuario, String login, String senha) {
-        if (numeroConta.length() != 5) {
+        if (!numeroContaValido(numeroConta)) {
             throw new IllegalArgumentException("Número da conta deve ter 5 dígitos!");
         }
         if (senha.length() != 4) {
@@ -23,7 +32,19 @@ public class ContaBancaria implements Serializable {
         this.tipoUsuario = tipoUsuario.toUpperCase();
         this.login = login;
         this.senha = senha;
-        this.saldo = 0.0f;
+        this.saldoCentavos = 0;
+    }
+
+    /**
+     * O número da conta é sempre formado por exatamente 5 dígitos (00000 a 99999)
+     */
+    public static boolean numeroContaValido(String numeroConta) {
+        if (numeroConta == null || numeroConta.length() != 5) return false;
+        for (int i = 0; i < numeroConta.length(); i++) {
+            char c = numeroConta.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
     }
 
     // Getters
@@ -31,7 +52,8 @@ public class ContaBancaria implements Serializable {
     public String getTipoUsuario() { return tipoUsuario; }
     public String getLogin() { return login; }
     public String getSenha() { return senha; }
-    public float getSaldo() { return saldo; }
+    public long getSaldoCentavos() { return saldoCentavos; }
+    public float getSaldo() { return Dinheiro.paraReais(getSaldoEfetivoCentavos()); }
     public LocalDateTime getUltimoSaqueNegativo() { return ultimoSaqueNegativo; }
 
     // Métodos de negócio
@@ -39,33 +61,100 @@ public class ContaBancaria implements Serializable {
         return "VIP".equals(tipoUsuario);
     }
 
-    public void setSaldo(float novoSaldo) {
-        this.saldo = novoSaldo;
+    /**
+     * Altera o saldo lançado; os juros pendentes devem ser lançados antes (lancarJuros),
+     * senão passam a incidir sobre o novo saldo desde a data-base atual
+     */
+    public void setSaldoCentavos(long novoSaldo) {
+        this.saldoCentavos = novoSaldo;
         if (novoSaldo < 0 && isVip()) {
-            this.ultimoSaqueNegativo = LocalDateTime.now();
+            if (ultimoSaqueNegativo == null) {
+                this.ultimoSaqueNegativo = LocalDateTime.now();
+            }
         } else if (novoSaldo >= 0) {
             this.ultimoSaqueNegativo = null;
         }
     }
 
-    public void aplicarJurosNegativo() {
-        if (saldo < 0 && ultimoSaqueNegativo != null) {
-            long minutosPassados = java.time.Duration.between(ultimoSaqueNegativo, LocalDateTime.now()).toMinutes();
-            float juros = Math.abs(saldo) * 0.001f * minutosPassados; // 0.1% por minuto
-            saldo -= juros;
+    public void setSaldo(float novoSaldo) {
+        setSaldoCentavos(Dinheiro.deReais(novoSaldo));
+    }
+
+    // Usado ao reconstruir uma conta já persistida, sem os efeitos colaterais de setSaldo
+    void restaurarEstado(long saldoCentavos, LocalDateTime ultimoSaqueNegativo) {
+        this.saldoCentavos = saldoCentavos;
+        this.ultimoSaqueNegativo = ultimoSaqueNegativo;
+    }
+
+    /**
+     * Cópia independente, usada pelo cache de contas para não compartilhar instâncias mutáveis
+     */
+    ContaBancaria copia() {
+        ContaBancaria copia = new ContaBancaria(numeroConta, tipoUsuario, login, senha);
+        copia.restaurarEstado(saldoCentavos, ultimoSaqueNegativo);
+        return copia;
+    }
+
+    /**
+     * Saldo com os juros acumulados desde a data-base, sem alterar a conta
+     */
+    public long getSaldoEfetivoCentavos() {
+        return saldoCentavos - jurosPendentes(LocalDateTime.now());
+    }
+
+    /**
+     * Juros simples do saldo negativo pelos minutos completos desde a data-base
+     */
+    public long jurosPendentes(LocalDateTime agora) {
+        long minutos = minutosDesdeADataBase(agora);
+        return minutos <= 0 ? 0
+                : Dinheiro.percentual(Math.abs(saldoCentavos), JUROS_NEGATIVO_POR_MINUTO * minutos);
+    }
+
+    /**
+     * Lança no saldo os juros pendentes e avança a data-base pelos minutos cobrados
+     * (a fração de minuto continua acumulando). Retorna os juros lançados, em centavos
+     */
+    public long lancarJuros(LocalDateTime agora) {
+        long juros = jurosPendentes(agora);
+        if (juros > 0) {
+            ultimoSaqueNegativo = ultimoSaqueNegativo.plusMinutes(minutosDesdeADataBase(agora));
+            saldoCentavos = Dinheiro.subtrair(saldoCentavos, juros);
         }
+        return juros;
+    }
+
+    private long minutosDesdeADataBase(LocalDateTime agora) {
+        if (saldoCentavos >= 0 || ultimoSaqueNegativo == null) return 0;
+        return java.time.Duration.between(ultimoSaqueNegativo, agora).toMinutes();
     }
 
     public boolean validarTransferencia(float valor) {
-        if (!isVip() && valor > 1000) {
+        long valorCentavos = Dinheiro.deReais(valor);
+        if (!isVip() && valorCentavos > BankSingleton.LIMITE_TRANSFERENCIA_NORMAL) {
             return false;
         }
-        return isVip() || saldo >= valor;
+        return isVip() || saldoCentavos >= valorCentavos;
+    }
+
+    /**
+     * Lê tanto o formato atual (saldoCentavos) quanto contas serializadas com o antigo saldo em float
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField campos = in.readFields();
+        numeroConta = (String) campos.get("numeroConta", null);
+        tipoUsuario = (String) campos.get("tipoUsuario", null);
+        login = (String) campos.get("login", null);
+        senha = (String) campos.get("senha", null);
+        ultimoSaqueNegativo = (LocalDateTime) campos.get("ultimoSaqueNegativo", null);
+        saldoCentavos = campos.defaulted("saldoCentavos")
+                ? Dinheiro.deReais(campos.get("saldo", 0.0f))
+                : campos.get("saldoCentavos", 0L);
     }
 
     @Override
     public String toString() {
-        return String.format("Conta: %s | Tipo: %s | Titular: %s | Saldo: R$ %.2f",
-                numeroConta, tipoUsuario, login, saldo);
+        return String.format("Conta: %s | Tipo: %s | Titular: %s | Saldo: %s",
+                numeroConta, tipoUsuario, login, Dinheiro.formatar(getSaldoEfetivoCentavos()));
     }
 }
\ No newline at end of file
@@ -4,7 +4,7 @@ public class ContaFactory {
     //retorna uma nova conta
     public static ContaBancaria criarConta(String numeroConta, String tipo, String login, String senha) {
         // Validações
-        if (numeroConta == null || numeroConta.length() != 5) {
+        if (!ContaBancaria.numeroContaValido(numeroConta)) {
             throw new IllegalArgumentException("Número da conta deve ter 5 dígitos!");
         }
         if (senha == null || senha.length() != 4) {
@@ -0,0 +1,134 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Dicionário de descrições de transações
+ * Cada descrição distinta é gravada uma única vez e os registros guardam apenas o seu id.
+ * O arquivo é somente-anexação: [id(4)][tamanho(2)][bytes UTF-8]
+ */
+public class DicionarioDescricoes {
+    private final FileChannel canal;
+    private final List<String> porId;
+    private final Map<String, Integer> porTexto;
+    private final ReentrantLock trava = new ReentrantLock();
+
+    public DicionarioDescricoes(Path arquivo) {
+        this.porId = new ArrayList<>();
+        this.porTexto = new HashMap<>();
+        try {
+            this.canal = FileChannel.open(arquivo,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            carregar();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao abrir dicionário de descrições: " + arquivo, e);
+        }
+    }
+
+    /**
+     * Retorna o id da descrição, gravando-a no dicionário se ainda não existir
+     */
+    public int id(String descricao) {
+        trava.lock();
+        try {
+            Integer id = porTexto.get(descricao);
+            if (id != null) return id;
+
+            byte[] bytes = descricao.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Descrição muito longa!");
+            }
+            int novoId = porId.size();
+            ByteBuffer entrada = ByteBuffer.allocate(6 + bytes.length);
+            entrada.putInt(novoId).putShort((short) bytes.length).put(bytes).flip();
+            try {
+                long posicao = canal.size();
+                while (entrada.hasRemaining()) {
+                    posicao += canal.write(entrada, posicao);
+                }
+                // A entrada precisa estar em disco antes de qualquer registro que a referencie
+                canal.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Erro ao gravar descrição no dicionário", e);
+            }
+
+            String interna = descricao.intern();
+            porId.add(interna);
+            porTexto.put(interna, novoId);
+            return novoId;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Descrição correspondente ao id (a mesma instância de String para todos os registros)
+     */
+    public String descricao(int id) {
+        trava.lock();
+        try {
+            if (id < 0 || id >= porId.size()) {
+                throw new IllegalArgumentException("Descrição desconhecida: " + id);
+            }
+            return porId.get(id);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    public int tamanho() {
+        trava.lock();
+        try {
+            return porId.size();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    public void fechar() {
+        trava.lock();
+        try {
+            try {
+                canal.close();
+            } catch (IOException e) {
+                Log.erro("Erro ao fechar dicionário de descrições: %s", e.getMessage());
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private void carregar() throws IOException {
+        long tamanho = canal.size();
+        if (tamanho == 0) return;
+
+        ByteBuffer conteudo = ByteBuffer.allocate((int) tamanho);
+        while (conteudo.hasRemaining()) {
+            if (canal.read(conteudo, conteudo.position()) <= 0) break;
+        }
+        conteudo.flip();
+        while (conteudo.remaining() >= 6) {
+            int id = conteudo.getInt();
+            int comprimento = conteudo.getShort();
+            if (id != porId.size() || conteudo.remaining() < comprimento) {
+                // Entrada incompleta no fim do arquivo (queda durante a gravação): descarta
+                canal.truncate(conteudo.position() - 6);
+                break;
+            }
+            byte[] bytes = new byte[comprimento];
+            conteudo.get(bytes);
+            String descricao = new String(bytes, StandardCharsets.UTF_8).intern();
+            porId.add(descricao);
+            porTexto.put(descricao, id);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Valores monetários em ponto fixo: centavos em um long primitivo
+ * Todas as operações são estáticas e não alocam objetos, então o caminho de
+ * depósito/saque continua sendo uma soma de primitivos, só que sem erro de arredondamento
+ */
+public final class Dinheiro {
+    public static final long CENTAVOS_POR_REAL = 100;
+    public static final long PONTOS_BASE = 10_000; // 100% = 10.000 pontos-base
+
+    private Dinheiro() {
+    }
+
+    /**
+     * Converte um valor em reais (entrada do usuário) para centavos, arredondando ao centavo mais próximo
+     */
+    public static long deReais(double reais) {
+        if (Double.isNaN(reais) || Double.isInfinite(reais)) {
+            throw new IllegalArgumentException("Valor inválido!");
+        }
+        return Math.round(reais * CENTAVOS_POR_REAL);
+    }
+
+    /**
+     * Converte centavos para reais, apenas para exibição e APIs legadas
+     */
+    public static float paraReais(long centavos) {
+        return centavos / (float) CENTAVOS_POR_REAL;
+    }
+
+    /**
+     * Aplica um percentual expresso em pontos-base (0,8% = 80), arredondando meio centavo para cima
+     */
+    public static long percentual(long centavos, long pontosBase) {
+        long produto = Math.multiplyExact(centavos, pontosBase);
+        long arredondamento = produto >= 0 ? PONTOS_BASE / 2 : -PONTOS_BASE / 2;
+        return (produto + arredondamento) / PONTOS_BASE;
+    }
+
+    public static long somar(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtrair(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /**
+     * Formata como "R$ 1234.56"
+     */
+    public static String formatar(long centavos) {
+        return String.format("R$ %.2f", centavos / (double) CENTAVOS_POR_REAL);
+    }
+
+    /**
+     * Anexa o valor como "1234.56" (ou "-1234.56"), sem String.format nem ponto flutuante
+     * Usado nas exportações, que formatam uma linha por transação
+     */
+    public static StringBuilder anexar(StringBuilder destino, long centavos) {
+        if (centavos < 0) {
+            destino.append('-');
+        }
+        long absoluto = Math.abs(centavos);
+        long fracao = absoluto % CENTAVOS_POR_REAL;
+        destino.append(absoluto / CENTAVOS_POR_REAL).append('.');
+        if (fracao < 10) {
+            destino.append('0');
+        }
+        return destino.append(fracao);
+    }
+}
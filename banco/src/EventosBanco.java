@@ -0,0 +1,173 @@
+import java.util.concurrent.locks.ReentrantLock;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Eventos JFR das seções críticas do banco: transferência, carga e gravação de contas,
+ * anexação de transações, fsync, espera por travas e entrega aos observers
+ * Cada evento mede a própria duração (begin/commit) e traz a conta e os bytes envolvidos,
+ * então uma gravação de produção mostra de onde vem a latência de cauda. Sem gravação ativa,
+ * begin e commit não fazem nada. Para gravar: java -XX:StartFlightRecording=filename=banco.jfr
+ * e depois "jfr print --categories Banco banco.jfr"
+ */
+public final class EventosBanco {
+
+    private EventosBanco() {
+    }
+
+    /**
+     * Adquire a trava e, se precisou esperar por ela, registra um EsperaTrava
+     * O caminho sem disputa é só um tryLock, sem evento
+     */
+    static void travar(ReentrantLock trava, String nome, String numeroConta) {
+        if (trava.tryLock()) return;
+        EsperaTrava evento = new EsperaTrava();
+        evento.begin();
+        trava.lock();
+        if (evento.shouldCommit()) {
+            evento.trava = nome;
+            evento.conta = numeroConta;
+            evento.commit();
+        }
+    }
+
+    @Name("banco.Transferencia")
+    @Label("Transferência")
+    @Category("Banco")
+    @Description("Transferência completa no MotorTransferencia, das travas à gravação")
+    static final class Transferencia extends Event {
+        @Label("Conta origem")
+        String origem;
+
+        @Label("Conta destino")
+        String destino;
+
+        @Label("Valor (centavos)")
+        long valor;
+    }
+
+    @Name("banco.CarregarConta")
+    @Label("Carregar conta")
+    @Category({"Banco", "Persistência"})
+    @Description("Leitura e decodificação do slot da conta na tabela mapeada (falha no cache)")
+    @StackTrace(false)
+    static final class CarregarConta extends Event {
+        @Label("Conta")
+        String conta;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("banco.SalvarConta")
+    @Label("Salvar conta")
+    @Category({"Banco", "Persistência"})
+    @Description("Codificação e escrita do slot da conta na tabela mapeada")
+    @StackTrace(false)
+    static final class SalvarConta extends Event {
+        @Label("Conta")
+        String conta;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("banco.AnexarTransacoes")
+    @Label("Anexar transações")
+    @Category({"Banco", "Persistência"})
+    @Description("Codificação e escrita de transações no segmento da conta no journal")
+    @StackTrace(false)
+    static final class AnexarTransacoes extends Event {
+        @Label("Conta")
+        String conta;
+
+        @Label("Transações")
+        int transacoes;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Codificação")
+        @Description("Tempo gasto serializando os registros")
+        @Timespan
+        long codificacao;
+
+        @Label("Abertura do arquivo")
+        @Description("Tempo gasto abrindo o segmento; zero quando o canal já estava aberto")
+        @Timespan
+        long abertura;
+    }
+
+    @Name("banco.Persistir")
+    @Label("Persistir alterações")
+    @Category({"Banco", "Persistência"})
+    @Description("Gravação de um conjunto de contas e transações pelo FileManagerSingleton")
+    static final class Persistir extends Event {
+        @Label("Contas")
+        int contas;
+
+        @Label("Transações")
+        int transacoes;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Com log de recuperação")
+        boolean logRecuperacao;
+    }
+
+    @Name("banco.Sincronizar")
+    @Label("Sincronizar arquivo")
+    @Category({"Banco", "Persistência"})
+    @Description("fsync da tabela de contas, do journal ou do log de recuperação")
+    static final class Sincronizar extends Event {
+        @Label("Arquivo")
+        String arquivo;
+
+        @Label("Canais")
+        int canais;
+    }
+
+    @Name("banco.EsperaTrava")
+    @Label("Espera por trava")
+    @Category("Banco")
+    @Description("Tempo bloqueado esperando uma trava de conta ou do journal ocupada por outra thread")
+    static final class EsperaTrava extends Event {
+        @Label("Trava")
+        String trava;
+
+        @Label("Conta")
+        String conta;
+    }
+
+    @Name("banco.DespachoObserver")
+    @Label("Despacho a observer")
+    @Category("Banco")
+    @Description("Entrega de uma transação a um observer pelo BarramentoEventos")
+    @StackTrace(false)
+    static final class DespachoObserver extends Event {
+        @Label("Conta")
+        String conta;
+
+        @Label("Observer")
+        String observer;
+
+        @Label("Tipo da transação")
+        String tipo;
+
+        @Label("Espera na fila")
+        @Description("Da publicação até o início da entrega")
+        @Timespan
+        long esperaNaFila;
+    }
+}
@@ -0,0 +1,199 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Executor de sessões: cada sessão autenticada roda na sua própria thread, com código bloqueante simples
+ * Em Java 21 ou superior as threads são virtuais, então milhares de sessões esperando o disco
+ * custam pouca memória e não ocupam threads do sistema; as gravações do FileManagerSingleton
+ * usam ReentrantLock em vez de synchronized para não prender a thread portadora durante o I/O.
+ * Em JVMs anteriores, o executor cai para threads de plataforma criadas sob demanda:
+ * o comportamento é o mesmo, só a escala muda.
+ * Pode ser desligado com -Dbanco.sessoes.virtuais=false
+ */
+public class ExecutorSessoes implements AutoCloseable {
+    private static final boolean VIRTUAIS_HABILITADAS =
+            Boolean.parseBoolean(System.getProperty("banco.sessoes.virtuais", "true"));
+
+    private final ExecutorService executor;
+    private final boolean virtuais;
+    private final AtomicInteger sessoesAtivas = new AtomicInteger();
+
+    public ExecutorSessoes() {
+        ExecutorService virtual = VIRTUAIS_HABILITADAS ? criarExecutorVirtual() : null;
+        this.virtuais = virtual != null;
+        if (virtual != null) {
+            this.executor = virtual;
+        } else {
+            AtomicInteger numero = new AtomicInteger();
+            this.executor = Executors.newCachedThreadPool(tarefa -> {
+                Thread thread = new Thread(tarefa, "sessao-" + numero.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor (Java 21), procurado por reflexão para o
+     * código continuar compilando e rodando em JVMs anteriores; null se não existir
+     */
+    private static ExecutorService criarExecutorVirtual() {
+        try {
+            Method fabrica = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) fabrica.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    public boolean usaThreadsVirtuais() {
+        return virtuais;
+    }
+
+    public int getSessoesAtivas() {
+        return sessoesAtivas.get();
+    }
+
+    /**
+     * Executa o trabalho da sessão na thread dela e encerra a sessão ao terminar
+     */
+    public CompletableFuture<Void> iniciar(SessaoBancaria sessao, Consumer<SessaoBancaria> trabalho) {
+        sessoesAtivas.incrementAndGet();
+        return CompletableFuture.runAsync(() -> {
+            try {
+                trabalho.accept(sessao);
+            } finally {
+                sessao.encerrar();
+                sessoesAtivas.decrementAndGet();
+            }
+        }, executor);
+    }
+
+    /**
+     * Autentica e executa o trabalho da sessão, tudo na mesma thread
+     * Conclui com IllegalArgumentException se as credenciais forem inválidas
+     */
+    public CompletableFuture<Void> abrir(BankSingleton bank, String numeroConta, String senha,
+                                         Consumer<SessaoBancaria> trabalho) {
+        sessoesAtivas.incrementAndGet();
+        return CompletableFuture.runAsync(() -> {
+            SessaoBancaria sessao = null;
+            try {
+                sessao = bank.abrirSessao(numeroConta, senha);
+                if (sessao == null) {
+                    throw new IllegalArgumentException("Credenciais inválidas!");
+                }
+                trabalho.accept(sessao);
+            } finally {
+                if (sessao != null) {
+                    sessao.encerrar();
+                }
+                sessoesAtivas.decrementAndGet();
+            }
+        }, executor);
+    }
+
+    /**
+     * Inicia a sessão na sua thread, esperando operações enviadas de fora (requisições de uma
+     * conexão do servidor, botões da interface gráfica) até SessaoAtiva.encerrar
+     */
+    public SessaoAtiva atender(SessaoBancaria sessao) {
+        SessaoAtiva ativa = new SessaoAtiva(sessao);
+        ativa.concluida = iniciar(sessao, s -> ativa.atender());
+        return ativa;
+    }
+
+    /**
+     * Uma operação bloqueante avulsa, fora da thread de quem chama, para o que acontece
+     * antes de existir uma sessão (o login da interface gráfica, por exemplo)
+     */
+    public <T> CompletableFuture<T> executar(Supplier<T> operacao) {
+        return CompletableFuture.supplyAsync(operacao, executor);
+    }
+
+    /**
+     * Sessão em execução na sua thread do executor: as operações recebidas rodam nela,
+     * uma de cada vez e na ordem de chegada
+     */
+    public static final class SessaoAtiva implements Executor {
+        private static final Runnable FIM = () -> { };
+
+        private final SessaoBancaria sessao;
+        private final BlockingQueue<Runnable> operacoes = new LinkedBlockingQueue<>();
+        private volatile CompletableFuture<Void> concluida;
+        private boolean encerrada;
+
+        private SessaoAtiva(SessaoBancaria sessao) {
+            this.sessao = sessao;
+        }
+
+        public SessaoBancaria getSessao() {
+            return sessao;
+        }
+
+        /**
+         * Envia a operação para a thread da sessão; recusada depois de encerrar
+         */
+        @Override
+        public synchronized void execute(Runnable operacao) {
+            if (encerrada) {
+                throw new RejectedExecutionException("Sessão encerrada!");
+            }
+            operacoes.add(operacao);
+        }
+
+        public <T> CompletableFuture<T> executar(Function<SessaoBancaria, T> operacao) {
+            return CompletableFuture.supplyAsync(() -> operacao.apply(sessao), this);
+        }
+
+        /**
+         * Encerra a sessão depois das operações já enviadas, sem esperar por elas;
+         * o futuro conclui quando a thread da sessão terminar
+         */
+        public synchronized CompletableFuture<Void> encerrar() {
+            if (!encerrada) {
+                encerrada = true;
+                operacoes.add(FIM);
+            }
+            return concluida;
+        }
+
+        private void atender() {
+            try {
+                for (Runnable operacao = operacoes.take(); operacao != FIM; operacao = operacoes.take()) {
+                    try {
+                        operacao.run();
+                    } catch (RuntimeException e) {
+                        Log.erro("Erro na sessão da conta %s: %s", sessao.getNumeroConta(), e.getMessage());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Para de aceitar sessões e espera as em execução
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
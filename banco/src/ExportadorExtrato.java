@@ -0,0 +1,298 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Exportação do extrato em streaming para CSV, largura fixa ou texto paginado (pronto para PDF)
+ * As transações chegam do journal uma a uma, numa única passada pelos blocos do arquivo
+ * compactado e pelo segmento, e cada linha é montada num StringBuilder
+ * reutilizado, codificada num buffer e escrita no canal quando ele enche: a memória usada
+ * não depende do tamanho do histórico
+ */
+public class ExportadorExtrato {
+    /**
+     * Percorre todas as transações da consulta, como FileManagerSingleton.percorrerExtrato
+     */
+    public interface Fonte {
+        void percorrer(ConsultaExtrato consulta, JournalTransacoes.Destino destino) throws IOException;
+    }
+
+    public enum Formato {
+        CSV(".csv"), LARGURA_FIXA(".fixo.txt"), TEXTO(".txt");
+
+        private final String extensao;
+
+        Formato(String extensao) {
+            this.extensao = extensao;
+        }
+
+        public String getExtensao() { return extensao; }
+    }
+
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+    private static final DateTimeFormatter FORMATO_DATA_CSV = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+
+    // Layout do texto paginado: 80 colunas, cabeçalho repetido e quebra de página (\f) a cada página
+    private static final int LARGURA_TEXTO = 80;
+    private static final int LINHAS_POR_PAGINA = 55;
+    private static final String SEPARADOR = "-".repeat(LARGURA_TEXTO) + "\n";
+
+    // Largura fixa, campos separados por um espaço:
+    // data(19) tipo(22) valor(15, à direita) origem(5) destino(5) descrição(40)
+    private static final int LARGURA_TIPO = 22;
+    private static final int LARGURA_VALOR = 15;
+    private static final int LARGURA_CONTA = 5;
+    private static final int LARGURA_DESCRICAO = 40;
+
+    private final Fonte fonte;
+
+    public ExportadorExtrato(Fonte fonte) {
+        this.fonte = fonte;
+    }
+
+    public static ExportadorExtrato doBanco() {
+        return new ExportadorExtrato(FileManagerSingleton.getInstance()::percorrerExtrato);
+    }
+
+    /**
+     * Exporta para o arquivo, substituindo-o, e retorna quantas transações foram escritas
+     */
+    public long exportar(ConsultaExtrato consulta, Formato formato, Path destino) throws IOException {
+        try (FileChannel canal = FileChannel.open(destino, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return exportar(consulta, formato, canal);
+        }
+    }
+
+    /**
+     * Exporta para o canal (que não é fechado) e retorna quantas transações foram escritas
+     */
+    public long exportar(ConsultaExtrato consulta, Formato formato, WritableByteChannel destino) throws IOException {
+        Escrita escrita = new Escrita(consulta, formato, new SaidaCanal(destino));
+        escrita.inicio();
+        fonte.percorrer(consulta, escrita::transacao);
+        escrita.fim();
+        return escrita.transacoes;
+    }
+
+    /**
+     * Estado de uma exportação: a linha em montagem, a paginação do texto e os totais
+     */
+    private static class Escrita {
+        private final ConsultaExtrato consulta;
+        private final Formato formato;
+        private final SaidaCanal saida;
+        private final StringBuilder linha = new StringBuilder(256);
+        private final StringBuilder campo = new StringBuilder(64);
+        private long transacoes;
+        private long creditos;
+        private long debitos;
+        private int linhasNaPagina;
+        private int paginas;
+
+        Escrita(ConsultaExtrato consulta, Formato formato, SaidaCanal saida) {
+            this.consulta = consulta;
+            this.formato = formato;
+            this.saida = saida;
+        }
+
+        void inicio() throws IOException {
+            if (formato == Formato.CSV) {
+                saida.escrever("data,tipo,valor,descricao,origem,destino\n");
+            } else if (formato == Formato.TEXTO) {
+                cabecalhoDaPagina();
+            }
+        }
+
+        void transacao(Transacao t) throws IOException {
+            transacoes++;
+            if (t.getValorCentavos() >= 0) {
+                creditos += t.getValorCentavos();
+            } else {
+                debitos += t.getValorCentavos();
+            }
+
+            linha.setLength(0);
+            switch (formato) {
+                case CSV -> linhaCsv(t);
+                case LARGURA_FIXA -> linhaLarguraFixa(t);
+                case TEXTO -> {
+                    if (linhasNaPagina == LINHAS_POR_PAGINA) {
+                        saida.escrever("\f");
+                        cabecalhoDaPagina();
+                    }
+                    linhaTexto(t);
+                    linhasNaPagina++;
+                }
+            }
+            saida.escrever(linha.append('\n'));
+        }
+
+        void fim() throws IOException {
+            if (formato == Formato.TEXTO) {
+                linha.setLength(0);
+                linha.append(SEPARADOR).append("Transações: ").append(transacoes).append("   Créditos: R$ ");
+                Dinheiro.anexar(linha, creditos).append("   Débitos: R$ ");
+                Dinheiro.anexar(linha, debitos).append('\n');
+                saida.escrever(linha);
+            }
+            saida.fechar();
+        }
+
+        private void linhaCsv(Transacao t) {
+            FORMATO_DATA_CSV.formatTo(t.getData(), linha);
+            linha.append(',').append(t.getTipo()).append(',');
+            Dinheiro.anexar(linha, t.getValorCentavos()).append(",\"");
+            String descricao = t.getDescricao() == null ? "" : t.getDescricao();
+            for (int i = 0; i < descricao.length(); i++) {
+                char c = descricao.charAt(i);
+                if (c == '"') {
+                    linha.append('"');
+                }
+                linha.append(c);
+            }
+            linha.append("\",");
+            if (t.getContaOrigem() != null) linha.append(t.getContaOrigem());
+            linha.append(',');
+            if (t.getContaDestino() != null) linha.append(t.getContaDestino());
+        }
+
+        private void linhaLarguraFixa(Transacao t) {
+            FORMATO_DATA.formatTo(t.getData(), linha);
+            linha.append(' ');
+            ajustar(t.getTipo().name(), LARGURA_TIPO).append(' ');
+            campo.setLength(0);
+            alinharDireita(Dinheiro.anexar(campo, t.getValorCentavos()), LARGURA_VALOR);
+            linha.append(' ');
+            ajustar(t.getContaOrigem(), LARGURA_CONTA).append(' ');
+            ajustar(t.getContaDestino(), LARGURA_CONTA).append(' ');
+            ajustar(t.getDescricao(), LARGURA_DESCRICAO);
+        }
+
+        private void linhaTexto(Transacao t) {
+            FORMATO_DATA.formatTo(t.getData(), linha);
+            linha.append("  ").append(t.getDescricao() == null ? "" : t.getDescricao());
+            completar(LARGURA_TEXTO - 17);
+            campo.setLength(0);
+            if (t.getValorCentavos() < 0) {
+                campo.append('(');
+                Dinheiro.anexar(campo, -t.getValorCentavos()).append(')');
+            } else {
+                Dinheiro.anexar(campo, t.getValorCentavos()).append(' ');
+            }
+            alinharDireita(campo, 17);
+        }
+
+        private void cabecalhoDaPagina() throws IOException {
+            paginas++;
+            linhasNaPagina = 0;
+            linha.setLength(0);
+            linha.append("EXTRATO BANCÁRIO - Conta ").append(consulta.getNumeroConta());
+            completar(LARGURA_TEXTO - 12);
+            campo.setLength(0);
+            alinharDireita(campo.append("Página ").append(paginas), 12);
+            linha.append("\nPeríodo: ");
+            anexarData(consulta.getDe(), "início");
+            linha.append(" a ");
+            anexarData(consulta.getAte(), "hoje");
+            linha.append('\n').append(SEPARADOR);
+            linha.append("Data/Hora            Descrição");
+            completar(LARGURA_TEXTO - 6);
+            linha.append("Valor\n").append(SEPARADOR);
+            saida.escrever(linha);
+        }
+
+        private void anexarData(LocalDateTime data, String semData) {
+            if (data == null) {
+                linha.append(semData);
+            } else {
+                FORMATO_DATA.formatTo(data, linha);
+            }
+        }
+
+        /**
+         * Completa com espaços (ou corta) a linha atual até a coluna informada
+         */
+        private void completar(int coluna) {
+            int inicioDaLinha = linha.lastIndexOf("\n") + 1;
+            int alvo = inicioDaLinha + coluna;
+            if (linha.length() > alvo) {
+                linha.setLength(alvo);
+            }
+            while (linha.length() < alvo) {
+                linha.append(' ');
+            }
+        }
+
+        /**
+         * Anexa o texto cortado ou completado com espaços até a largura
+         */
+        private StringBuilder ajustar(String texto, int largura) {
+            String valor = texto == null ? "" : texto;
+            int tamanho = Math.min(valor.length(), largura);
+            linha.append(valor, 0, tamanho);
+            for (int i = tamanho; i < largura; i++) {
+                linha.append(' ');
+            }
+            return linha;
+        }
+
+        private void alinharDireita(CharSequence valor, int largura) {
+            for (int i = valor.length(); i < largura; i++) {
+                linha.append(' ');
+            }
+            linha.append(valor);
+        }
+    }
+
+    /**
+     * Codifica texto em UTF-8 num buffer direto, escrito no canal só quando enche
+     */
+    private static class SaidaCanal {
+        private final WritableByteChannel canal;
+        private final CharsetEncoder codificador = StandardCharsets.UTF_8.newEncoder();
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+
+        SaidaCanal(WritableByteChannel canal) {
+            this.canal = canal;
+        }
+
+        void escrever(CharSequence texto) throws IOException {
+            CharBuffer caracteres = CharBuffer.wrap(texto);
+            while (true) {
+                CoderResult resultado = codificador.encode(caracteres, buffer, false);
+                if (resultado.isOverflow()) {
+                    esvaziar();
+                } else if (resultado.isError()) {
+                    resultado.throwException();
+                } else {
+                    return;
+                }
+            }
+        }
+
+        void fechar() throws IOException {
+            codificador.encode(CharBuffer.allocate(0), buffer, true);
+            codificador.flush(buffer);
+            esvaziar();
+        }
+
+        private void esvaziar() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
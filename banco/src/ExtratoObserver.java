@@ -1,49 +1,95 @@
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
 //uso de observer para notificar o extrato sobre as transacoes realizadas
+//as transacoes ficam so no extrato gravado (journal); o observer nao guarda copia delas
 
 public class ExtratoObserver implements ContaObserver, Serializable {
     private static final long serialVersionUID = 1L;
+    // DateTimeFormatter é imutável e thread-safe: um só para todas as linhas
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
     private final String numeroConta;
-    private final List<Transacao> transacoes;
+    // Sequência da última transação notificada nesta sessão
+    private volatile long ultimaSequencia;
 
     public ExtratoObserver(String numeroConta) {
         this.numeroConta = numeroConta;
-        this.transacoes = new ArrayList<>();
     }
 
+    /**
+     * A transação já foi registrada no extrato da conta; aqui só se acompanha a sequência
+     */
     @Override
     public void onTransacao(Transacao transacao) {
-        transacoes.add(transacao);
-        salvarTransacao(transacao);
+        if (!numeroConta.equals(transacao.getContaOrigem())) {
+            throw new IllegalArgumentException("Transação de outra conta!");
+        }
+        ultimaSequencia = Math.max(ultimaSequencia, transacao.getSequencia());
+    }
+
+    public long getUltimaSequencia() {
+        return ultimaSequencia;
     }
 
+    /**
+     * Imprime o extrato completo, lido do journal página a página
+     */
     public void imprimirExtrato() {
         System.out.println("\n=== EXTRATO BANCÁRIO ===");
         System.out.println("Conta: " + numeroConta);
         System.out.println("Data/Hora: " + LocalDateTime.now());
         System.out.println("=====================");
 
-        if (transacoes.isEmpty()) {
+        FileManagerSingleton fileManager = FileManagerSingleton.getInstance();
+        ConsultaExtrato consulta = ConsultaExtrato.daConta(numeroConta).limite(ConsultaExtrato.LIMITE_MAXIMO);
+        PaginaExtrato pagina = fileManager.consultarExtrato(consulta);
+        if (pagina.getTransacoes().isEmpty()) {
+            System.out.println("Nenhuma transação encontrada.");
+        }
+        while (true) {
+            pagina.getTransacoes().forEach(this::imprimirTransacao);
+            if (!pagina.temProxima()) break;
+            pagina = fileManager.consultarExtrato(consulta.aPartirDe(pagina.getProximoCursor()));
+        }
+        System.out.println("=====================");
+    }
+
+    /**
+     * Imprime uma página do extrato da conta (período, tipos, limite e cursor da consulta)
+     * e retorna a página, cujo cursor busca a seguinte
+     */
+    public PaginaExtrato imprimirExtrato(ConsultaExtrato consulta) {
+        if (!numeroConta.equals(consulta.getNumeroConta())) {
+            throw new IllegalArgumentException("Consulta de outra conta!");
+        }
+        PaginaExtrato pagina = FileManagerSingleton.getInstance().consultarExtrato(consulta);
+
+        System.out.println("\n=== EXTRATO BANCÁRIO ===");
+        System.out.println("Conta: " + numeroConta);
+        System.out.println("Período: " + (consulta.getDe() == null ? "início" : consulta.getDe())
+                + " a " + (consulta.getAte() == null ? "hoje" : consulta.getAte()));
+        System.out.println("=====================");
+        if (pagina.getTransacoes().isEmpty()) {
             System.out.println("Nenhuma transação encontrada.");
         } else {
-            transacoes.forEach(t -> {
-                String valor = t.getValor() < 0 ?
-                        String.format("(R$ %.2f)", Math.abs(t.getValor())) :
-                        String.format("R$ %.2f", t.getValor());
-                System.out.printf("%s - %s: %s%n",
-                        t.getData().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")),
-                        t.getDescricao(),
-                        valor);
-            });
+            pagina.getTransacoes().forEach(this::imprimirTransacao);
+        }
+        if (pagina.temProxima()) {
+            System.out.println("Há mais transações (cursor: " + pagina.getProximoCursor() + ")");
         }
         System.out.println("=====================");
+        return pagina;
     }
 
-    private void salvarTransacao(Transacao transacao) {
-        FileManagerSingleton.getInstance().salvarTransacao(numeroConta, transacao);
+    private void imprimirTransacao(Transacao t) {
+        StringBuilder linha = new StringBuilder(80);
+        FORMATO_DATA.formatTo(t.getData(), linha);
+        linha.append(" - ").append(t.getDescricao()).append(": ");
+        if (t.getValorCentavos() < 0) {
+            Dinheiro.anexar(linha.append("(R$ "), Math.abs(t.getValorCentavos())).append(')');
+        } else {
+            Dinheiro.anexar(linha.append("R$ "), t.getValorCentavos());
+        }
+        System.out.println(linha);
     }
 }
\ No newline at end of file
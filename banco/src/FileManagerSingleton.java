@@ -1,7 +1,16 @@
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 //preferir salvar o arquivo em .dat ao invés de .txt para evitar que o usuário possa alterar o conteúdo do arquivo
 //gera uma maior seguranca para o sistema
 //define o lugar onde os arquivos serao salvos
@@ -16,18 +25,112 @@ public class FileManagerSingleton implements Serializable {
     private static final String CURRENT_USER = "billgates";
 
     // Diretórios e arquivos
-    private static final String DATA_DIR = "bank_data";
+    // Diretório de dados configurável (-Dbanco.dados=...), usado pelos benchmarks
+    private static final String DATA_DIR = System.getProperty("banco.dados", "bank_data");
     private static final String CONTAS_FILE = DATA_DIR + "/contas.dat";
+    private static final String TABELA_CONTAS_FILE = DATA_DIR + "/contas.tbl";
     private static final String TRANSACOES_DIR = DATA_DIR + "/transacoes/";
 
-    private final Map<String, ContaBancaria> contasCache;
-    private final Map<String, List<Transacao>> transacoesCache;
+    // Peso máximo dos caches: número de contas e número total de transações em memória
+    private static final long MAX_CONTAS_EM_CACHE = Long.getLong("banco.cache.contas", 10_000);
+    private static final long MAX_TRANSACOES_EM_CACHE = Long.getLong("banco.cache.transacoes", 100_000);
+
+    // Gravação assíncrona (write-behind): -Dbanco.gravacao=assincrona
+    private static final boolean GRAVACAO_ASSINCRONA = "assincrona".equals(System.getProperty("banco.gravacao"));
+    private static final int CAPACIDADE_FILA_GRAVACAO = Integer.getInteger("banco.gravacao.fila", 8192);
+
+    // Métricas das chamadas de persistência (banco_persistencia_segundos e banco_persistencia_erros_total)
+    private static final RegistroMetricas.Temporizador M_SALVAR_CONTA = chamada("salvarConta");
+    private static final RegistroMetricas.Temporizador M_SALVAR_TRANSACAO = chamada("salvarTransacao");
+    private static final RegistroMetricas.Temporizador M_BUSCAR_CONTA = chamada("buscarConta");
+    private static final RegistroMetricas.Temporizador M_BUSCAR_TRANSACOES = chamada("buscarTransacoes");
+    private static final RegistroMetricas.Temporizador M_CONSULTAR_EXTRATO = chamada("consultarExtrato");
+    private static final RegistroMetricas.Temporizador M_PERCORRER_EXTRATO = chamada("percorrerExtrato");
+    private static final RegistroMetricas.Temporizador M_GRAVAR = chamada("gravar");
+    private static final RegistroMetricas.Temporizador M_SINCRONIZAR = chamada("sincronizar");
+    private static final RegistroMetricas.Temporizador M_CONCLUIR_LOTE = chamada("concluirLote");
+    private static final RegistroMetricas.Temporizador M_MANUTENCAO = chamada("manutencao");
+    // Log de recuperação (write-ahead log) com checkpoints: -Dbanco.wal=true
+    private static final boolean USAR_LOG_RECUPERACAO = Boolean.getBoolean("banco.wal");
+    // Snapshot (checkpoint) e arquivamento periódicos; 0 desliga a execução em segundo plano
+    private static final long INTERVALO_MANUTENCAO_SEGUNDOS = Long.getLong("banco.snapshot.segundos", 300);
+    // Transações mais antigas que isso saem do journal ativo para o arquivo compactado
+    private static final long DIAS_ATE_ARQUIVAR = Long.getLong("banco.arquivo.dias", 90);
+
+    private final transient Cache<String, ContaBancaria> contasCache;
+    private final transient Cache<String, List<Transacao>> transacoesCache;
+    // Contas cujo histórico legado (.dat) já foi verificado/importado para o journal
+    private final transient Set<String> historicosVerificados = ConcurrentHashMap.newKeySet();
+    // Última sequência registrada no extrato de cada conta, lida do journal no primeiro uso
+    private final transient Map<String, AtomicLong> sequencias = new ConcurrentHashMap<>();
+    private final transient TabelaContas tabelaContas;
+    private final transient JournalTransacoes journal;
+    private final transient boolean tabelaNova;
+    // Só existem nos modos assíncrono e com log de recuperação
+    private final transient GravadorAssincrono gravador;
+    private final transient LogRecuperacao logRecuperacao;
+    private final transient ScheduledExecutorService manutencao;
+    // Lote de gravação em andamento na thread (group commit)
+    private final transient ThreadLocal<LoteGravacao> loteAtual = new ThreadLocal<>();
 
     private FileManagerSingleton() {
-        contasCache = new HashMap<>();
-        transacoesCache = new HashMap<>();
+        long inicio = System.nanoTime();
+        contasCache = new CacheLRU<>("contas", MAX_CONTAS_EM_CACHE, conta -> 1);
+        transacoesCache = new CacheLRU<>("transações", MAX_TRANSACOES_EM_CACHE,
+                transacoes -> Math.max(1, transacoes.size()));
         inicializarDiretorios();
-        carregarDados();
+        tabelaNova = !TabelaContas.existe(Paths.get(TABELA_CONTAS_FILE));
+        tabelaContas = new TabelaContas(Paths.get(TABELA_CONTAS_FILE));
+        journal = new JournalTransacoes(Paths.get(TRANSACOES_DIR));
+        logRecuperacao = USAR_LOG_RECUPERACAO
+                ? new LogRecuperacao(Paths.get(DATA_DIR), tabelaContas, journal)
+                : null;
+        if (logRecuperacao != null) {
+            int reaplicadas = logRecuperacao.recuperar();
+            Log.info("Log de recuperação: %d entradas reaplicadas", reaplicadas);
+        }
+        carregarContas();
+        Log.info("Dados abertos em %d ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        registrarMetricasCaches();
+        gravador = GRAVACAO_ASSINCRONA
+                ? new GravadorAssincrono(CAPACIDADE_FILA_GRAVACAO, this::gravarConjunto, this::sincronizarArquivos)
+                : null;
+        manutencao = INTERVALO_MANUTENCAO_SEGUNDOS > 0 ? agendarManutencao() : null;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (manutencao != null) {
+                // Sem interromper: uma interrupção no meio da escrita fecharia os canais
+                manutencao.shutdown();
+                try {
+                    manutencao.awaitTermination(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (gravador != null) {
+                gravador.encerrar();
+            }
+            if (logRecuperacao != null) {
+                logRecuperacao.fechar();
+            }
+            tabelaContas.fechar();
+            journal.fechar();
+        }));
+    }
+
+    private static RegistroMetricas.Temporizador chamada(String nome) {
+        return RegistroMetricas.getInstance().temporizador("banco_persistencia",
+                "Chamadas de persistência do FileManagerSingleton", "chamada", nome);
+    }
+
+    private void registrarMetricasCaches() {
+        RegistroMetricas metricas = RegistroMetricas.getInstance();
+        for (Cache<?, ?> cache : List.of(contasCache, transacoesCache)) {
+            String nome = cache == contasCache ? "contas" : "transacoes";
+            metricas.contador("banco_cache_acertos_total", "Acertos nos caches", "cache", nome, cache::acertos);
+            metricas.contador("banco_cache_falhas_total", "Falhas nos caches", "cache", nome, cache::falhas);
+            metricas.contador("banco_cache_despejos_total", "Despejos nos caches", "cache", nome, cache::despejos);
+            metricas.medidor("banco_cache_peso", "Peso ocupado nos caches", "cache", nome, cache::peso);
+        }
     }
 
     public static synchronized FileManagerSingleton getInstance() {
@@ -49,146 +152,654 @@ public class FileManagerSingleton implements Serializable {
         }
     }
 
+    private ScheduledExecutorService agendarManutencao() {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "manutencao-dados");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                executarManutencao();
+            } catch (RuntimeException e) {
+                Log.erro("Erro na manutenção dos dados: %s", e.getMessage());
+            }
+        }, INTERVALO_MANUTENCAO_SEGUNDOS, INTERVALO_MANUTENCAO_SEGUNDOS, TimeUnit.SECONDS);
+        return executor;
+    }
+
     /**
-     * Salva uma conta no arquivo e no cache
+     * Snapshot e compactação: força a tabela de contas e o journal em disco (com o log de
+     * recuperação, grava um checkpoint e esvazia o log, então a próxima inicialização só
+     * reaplica o que vier depois) e arquiva as transações mais antigas que banco.arquivo.dias.
+     * Retorna quantas transações foram arquivadas
      */
-    public void salvarConta(ContaBancaria conta) {
-        contasCache.put(conta.getNumeroConta(), conta);
-        persistirContas();
-        System.out.println("Conta salva com sucesso: " + conta.getNumeroConta());
+    public int executarManutencao() {
+        return M_MANUTENCAO.medir(() -> {
+            long inicio = System.nanoTime();
+            LocalDateTime limite = LocalDateTime.now().minusDays(DIAS_ATE_ARQUIVAR);
+            int[] arquivadas = new int[1];
+            if (logRecuperacao != null) {
+                // As posições reservadas no log apontam para o segmento: só com o log vazio ele pode ser reescrito
+                logRecuperacao.checkpoint(() -> arquivadas[0] = arquivarTransacoes(limite));
+            } else {
+                sincronizarArquivos();
+                arquivadas[0] = arquivarTransacoes(limite);
+            }
+            if (arquivadas[0] > 0) {
+                Log.info("Manutenção em %d ms: %d transações arquivadas",
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio), arquivadas[0]);
+            }
+            return arquivadas[0];
+        });
     }
 
     /**
-     * Salva uma transação no arquivo e no cache
+     * O histórico em cache continua completo: o arquivamento só muda onde as transações ficam no disco
      */
-    public void salvarTransacao(String numeroConta, Transacao transacao) {
-        // Adiciona a transação no cache
-        transacoesCache.computeIfAbsent(numeroConta, k -> new ArrayList<>())
-                .add(transacao);
+    private int arquivarTransacoes(LocalDateTime limite) {
+        int arquivadas = 0;
+        for (String numeroConta : journal.contasComSegmento()) {
+            arquivadas += journal.arquivar(numeroConta, limite);
+        }
+        return arquivadas;
+    }
 
-        // Se for uma transferência, salva também para a conta destino
-        if (transacao.getTipo() == Transacao.TipoTransacao.TRANSFERENCIA_ENVIADA) {
-            String contaDestino = transacao.getContaDestino();
-            Transacao transacaoDestino = new Transacao(
-                    Transacao.TipoTransacao.TRANSFERENCIA_RECEBIDA,
-                    Math.abs(transacao.getValor()),
-                    "Transferência recebida de: " + transacao.getContaOrigem(),
-                    transacao.getContaOrigem(),
-                    contaDestino
-            );
+    /**
+     * Salva uma conta no seu slot da tabela mapeada
+     * O future é concluído quando a gravação termina: na hora no modo síncrono,
+     * pela thread gravadora no modo assíncrono e em concluirLote dentro de um lote
+     */
+    public CompletableFuture<Void> salvarConta(ContaBancaria conta) {
+        return M_SALVAR_CONTA.medir(() -> {
+            LoteGravacao lote = loteAtual.get();
+            if (lote != null) {
+                lote.contas.put(conta.getNumeroConta(), conta);
+                return lote.concluido;
+            }
+            if (gravador != null) {
+                return gravador.gravarConta(conta);
+            }
+            return persistirConta(conta);
+        });
+    }
+
+    /**
+     * Registra a transação no extrato da conta, que é a única fonte do histórico
+     * A transação recebe a próxima sequência da conta; uma transação já numerada não é
+     * anexada de novo, então registrar duas vezes o mesmo objeto não duplica o extrato.
+     * O lado recebedor de uma transferência é uma transação própria, registrada pelo chamador
+     */
+    public CompletableFuture<Void> salvarTransacao(String numeroConta, Transacao transacao) {
+        return M_SALVAR_TRANSACAO.medir(() -> {
+            if (transacao.getSequencia() != 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            transacao.setSequencia(proximaSequencia(numeroConta));
+            CompletableFuture<Void> gravada = registrarTransacao(numeroConta, transacao);
+
+            if (loteAtual.get() == null && gravador == null) {
+                Log.debug("Transação salva com sucesso para conta: %s", numeroConta);
+            }
+            return gravada;
+        });
+    }
+
+    private CompletableFuture<Void> registrarTransacao(String numeroConta, Transacao transacao) {
+        LoteGravacao lote = loteAtual.get();
+        if (lote != null) {
+            lote.transacoes.computeIfAbsent(numeroConta, k -> new ArrayList<>()).add(transacao);
+            return lote.concluido;
+        }
+        if (gravador != null) {
+            CompletableFuture<Void> gravada = gravador.anexarTransacoes(numeroConta, List.of(transacao));
+            gravada.exceptionally(erro -> {
+                reiniciarSequencias(List.of(numeroConta));
+                return null;
+            });
+            return gravada;
+        }
+        return persistirTransacao(numeroConta, List.of(transacao));
+    }
 
-            transacoesCache.computeIfAbsent(contaDestino, k -> new ArrayList<>())
-                    .add(transacaoDestino);
+    /**
+     * Sequências são atribuídas sob a trava da conta, na mesma ordem em que as transações
+     * chegam ao journal, e por isso coincidem com a numeração lida dele
+     */
+    private long proximaSequencia(String numeroConta) {
+        AtomicLong sequencia = sequencias.get(numeroConta);
+        if (sequencia == null) {
+            ReentrantLock travaJournal = journal.travas().travar(numeroConta);
+            try {
+                importarHistoricoLegado(numeroConta);
+                sequencia = sequencias.computeIfAbsent(numeroConta,
+                        k -> new AtomicLong(journal.sequencia(numeroConta)));
+            } finally {
+                travaJournal.unlock();
+            }
         }
+        return sequencia.incrementAndGet();
+    }
 
-        // Persiste as transações
-        persistirTransacoes(numeroConta);
+    /**
+     * Transações que não chegaram ao journal não ocupam sequências: os contadores
+     * dessas contas voltam a ser lidos do journal no próximo registro
+     */
+    private void reiniciarSequencias(Collection<String> contas) {
+        contas.forEach(sequencias::remove);
+    }
 
-        // Se for transferência, persiste também para a conta destino
-        if (transacao.getTipo() == Transacao.TipoTransacao.TRANSFERENCIA_ENVIADA) {
-            persistirTransacoes(transacao.getContaDestino());
+    /**
+     * Concluído quando todas as gravações pedidas até agora estiverem em disco
+     */
+    public CompletableFuture<Void> aguardarGravacoes() {
+        if (gravador != null) {
+            return gravador.barreira();
         }
+        sincronizarArquivos();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Histórico da conta, lido do journal na primeira falha e mantido no cache
+     */
+    private List<Transacao> historico(String numeroConta) {
+        List<Transacao> transacoes = transacoesCache.obter(numeroConta);
+        if (transacoes != null) return transacoes;
 
-        System.out.println("Transação salva com sucesso para conta: " + numeroConta);
+        // Carrega sob a trava do journal, o mesmo usado nas anexações:
+        // uma transação gravada durante a leitura não fica de fora do cache
+        ReentrantLock travaJournal = journal.travas().travar(numeroConta);
+        try {
+            transacoes = transacoesCache.consultar(numeroConta);
+            if (transacoes == null) {
+                transacoes = Collections.synchronizedList(carregarTransacoes(numeroConta));
+                transacoesCache.colocar(numeroConta, transacoes);
+            }
+            return transacoes;
+        } finally {
+            travaJournal.unlock();
+        }
     }
 
     /**
-     * Persiste todas as contas em arquivo
+     * Inicia um lote na thread atual: salvarConta e salvarTransacao passam a ser
+     * acumulados em memória até concluirLote, que grava tudo de uma vez
      */
-    private void persistirContas() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(
-                new FileOutputStream(CONTAS_FILE))) {
-            oos.writeObject(new ArrayList<>(contasCache.values()));
-        } catch (IOException e) {
-            System.err.println("Erro ao persistir contas: " + e.getMessage());
-            e.printStackTrace();
+    public void iniciarLote() {
+        if (loteAtual.get() != null) {
+            throw new IllegalStateException("Já existe um lote em andamento!");
+        }
+        loteAtual.set(new LoteGravacao(true));
+    }
+
+    /**
+     * Executa uma operação lógica (um depósito, uma transferência...) rastreando as contas alteradas:
+     * salvarConta e salvarTransacao só marcam a conta como suja e, ao final, cada conta suja é
+     * gravada uma única vez e suas transações anexadas numa única escrita.
+     * Dentro de um lote já aberto a operação passa a fazer parte dele
+     */
+    public <T> T executarOperacao(Supplier<T> operacao) {
+        if (loteAtual.get() != null) {
+            return operacao.get();
+        }
+        LoteGravacao sujas = new LoteGravacao(false);
+        loteAtual.set(sujas);
+        try {
+            return operacao.get();
+        } finally {
+            // O que foi salvo antes de uma falha continua sendo gravado, como nas gravações imediatas
+            loteAtual.remove();
+            gravarAlteracoes(sujas);
         }
     }
 
+    public void executarOperacao(Runnable operacao) {
+        executarOperacao(() -> {
+            operacao.run();
+            return null;
+        });
+    }
+
     /**
-     * Persiste as transações de uma conta em arquivo
+     * Grava o lote em um único commit: cada conta alterada tem seu slot escrito uma vez,
+     * as transações de cada conta são anexadas ao journal numa única escrita
+     * e só então o disco é sincronizado, uma vez para o lote inteiro
      */
-    private void persistirTransacoes(String numeroConta) {
-        String arquivo = TRANSACOES_DIR + numeroConta + ".dat";
-        try (ObjectOutputStream oos = new ObjectOutputStream(
-                new FileOutputStream(arquivo))) {
-            List<Transacao> transacoes = transacoesCache.get(numeroConta);
-            if (transacoes != null) {
-                oos.writeObject(new ArrayList<>(transacoes));
+    public void concluirLote() {
+        M_CONCLUIR_LOTE.medir(() -> {
+            LoteGravacao lote = loteAtual.get();
+            if (lote == null) {
+                throw new IllegalStateException("Nenhum lote em andamento!");
+            }
+            loteAtual.remove();
+
+            gravarAlteracoes(lote);
+            Log.debug("Lote gravado: %d contas, %d transações", lote.contas.size(),
+                    lote.transacoes.values().stream().mapToInt(List::size).sum());
+        });
+    }
+
+    /**
+     * Grava cada conta suja uma vez e anexa as transações de cada conta numa única escrita
+     * Lotes ainda sincronizam o disco (e, no modo assíncrono, esperam a gravação) antes de retornar
+     */
+    private void gravarAlteracoes(LoteGravacao alteracoes) {
+        if (gravador != null) {
+            // Passa pela mesma fila para não ser sobrescrita por gravações assíncronas anteriores
+            List<CompletableFuture<Void>> gravacoes = new ArrayList<>();
+            alteracoes.contas.values().forEach(conta -> gravacoes.add(gravador.gravarConta(conta)));
+            alteracoes.transacoes.forEach((numeroConta, transacoes) ->
+                    gravacoes.add(gravador.anexarTransacoes(numeroConta, transacoes)));
+            CompletableFuture<Void> todas = CompletableFuture.allOf(gravacoes.toArray(new CompletableFuture<?>[0]));
+            todas.whenComplete((r, erro) -> {
+                if (erro == null) {
+                    alteracoes.concluido.complete(null);
+                } else {
+                    reiniciarSequencias(alteracoes.transacoes.keySet());
+                    alteracoes.concluido.completeExceptionally(erro);
+                }
+            });
+            if (alteracoes.commitUnico) {
+                todas.join();
+            }
+            alteracoes.aposGravar.forEach(Runnable::run);
+            return;
+        }
+
+        if (alteracoes.commitUnico) {
+            try {
+                gravarConjunto(alteracoes.contas.values(), alteracoes.transacoes);
+            } catch (UncheckedIOException e) {
+                reiniciarSequencias(alteracoes.transacoes.keySet());
+                alteracoes.concluido.completeExceptionally(e);
+                throw e;
+            }
+            sincronizarArquivos();
+        } else {
+            try {
+                gravarConjunto(alteracoes.contas.values(), alteracoes.transacoes);
+                if (Log.ativo(Log.Nivel.DEBUG)) {
+                    alteracoes.contas.keySet().forEach(numeroConta ->
+                            Log.debug("Conta salva com sucesso: %s", numeroConta));
+                    alteracoes.transacoes.keySet().forEach(numeroConta ->
+                            Log.debug("Transação salva com sucesso para conta: %s", numeroConta));
+                }
+            } catch (UncheckedIOException e) {
+                // A operação já terminou: a falha chega a quem espera pelo future
+                reiniciarSequencias(alteracoes.transacoes.keySet());
+                Log.erro("Erro ao persistir alterações: %s", e.getMessage());
+                alteracoes.concluido.completeExceptionally(e);
+                return;
             }
-        } catch (IOException e) {
-            System.err.println("Erro ao persistir transações: " + e.getMessage());
-            e.printStackTrace();
         }
+        alteracoes.concluido.complete(null);
+        alteracoes.aposGravar.forEach(Runnable::run);
     }
 
     /**
-     * Carrega todas as contas e transações dos arquivos
+     * Executa a ação depois que a operação ou o lote em andamento na thread for gravado
+     * (no modo assíncrono, enfileirado) ou na hora, fora deles. Um lote descartado ou uma
+     * gravação que falhou não executa as ações
      */
-    private void carregarDados() {
-        carregarContas();
-        carregarTodasTransacoes();
+    public void aposGravar(Runnable acao) {
+        LoteGravacao lote = loteAtual.get();
+        if (lote != null) {
+            lote.aposGravar.add(acao);
+        } else {
+            acao.run();
+        }
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Descarta o lote da thread atual sem gravar nada
+     */
+    public void descartarLote() {
+        LoteGravacao lote = loteAtual.get();
+        loteAtual.remove();
+        if (lote != null) {
+            reiniciarSequencias(lote.transacoes.keySet());
+            lote.concluido.cancel(false);
+        }
+    }
+
+    /**
+     * Reescreve apenas o slot da conta na tabela de contas
+     * Uma falha é registrada no log e devolvida no future, que nunca indica sucesso sem a gravação
+     */
+    private CompletableFuture<Void> persistirConta(ContaBancaria conta) {
+        try {
+            gravarConjunto(List.of(conta), Map.of());
+        } catch (UncheckedIOException e) {
+            Log.erro("Erro ao persistir contas: %s", e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        }
+        Log.debug("Conta salva com sucesso: %s", conta.getNumeroConta());
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Write-through: grava o slot na tabela e atualiza o cache com uma cópia da conta
+     */
+    private void gravarConta(ContaBancaria conta) {
+        tabelaContas.gravar(conta);
+        contasCache.colocar(conta.getNumeroConta(), conta.copia());
+    }
+
+    /**
+     * Com o log de recuperação, cada gravação já é durável pela sua entrada no log;
+     * a tabela e o journal só são forçados nos checkpoints
+     */
+    private void sincronizarArquivos() {
+        M_SINCRONIZAR.medir(() -> {
+            if (logRecuperacao != null) return;
+            tabelaContas.sincronizar();
+            journal.sincronizar();
+        });
+    }
+
+    /**
+     * Grava contas e transações. Com o log de recuperação ativo, o conjunto vira uma única
+     * entrada do log, sincronizada em disco antes de a tabela e o journal serem alterados
+     */
+    private void gravarConjunto(Collection<ContaBancaria> contas, Map<String, List<Transacao>> transacoes) {
+        M_GRAVAR.medir(() -> {
+            EventosBanco.Persistir evento = new EventosBanco.Persistir();
+            evento.begin();
+            try {
+                if (logRecuperacao == null) {
+                    contas.forEach(this::gravarConta);
+                    transacoes.forEach(this::anexarTransacoes);
+                    return;
+                }
+
+                String[] contasJournal = transacoes.keySet().toArray(new String[0]);
+                ReentrantLock[] travadas = journal.travas().travarEmOrdem(contasJournal);
+                try {
+                    transacoes.keySet().forEach(this::importarHistoricoLegado);
+                } finally {
+                    TravasContas.destravar(travadas);
+                }
+                logRecuperacao.registrar(contas, transacoes, posicoes -> {
+                    contas.forEach(this::gravarConta);
+                    ReentrantLock[] travadasGravacao = journal.travas().travarEmOrdem(contasJournal);
+                    try {
+                        transacoes.forEach((numeroConta, lista) -> {
+                            journal.gravarEm(numeroConta, posicoes.get(numeroConta), lista);
+                            atualizarHistoricoEmCache(numeroConta, lista);
+                        });
+                    } finally {
+                        TravasContas.destravar(travadasGravacao);
+                    }
+                });
+            } finally {
+                if (evento.shouldCommit()) {
+                    int quantidade = transacoes.values().stream().mapToInt(List::size).sum();
+                    evento.contas = contas.size();
+                    evento.transacoes = quantidade;
+                    evento.bytes = (long) contas.size() * TabelaContas.TAMANHO_SLOT
+                            + (long) quantidade * JournalTransacoes.TAMANHO_REGISTRO;
+                    evento.logRecuperacao = logRecuperacao != null;
+                    evento.commit();
+                }
+            }
+        });
+    }
+
+    /**
+     * Anexa transações ao journal da conta, sem reescrever o histórico
+     * O fsync em lote só acontece depois de liberar a trava da conta
+     */
+    private void anexarTransacoes(String numeroConta, List<Transacao> transacoes) {
+        ReentrantLock travaJournal = journal.travas().travar(numeroConta);
+        try {
+            importarHistoricoLegado(numeroConta);
+            journal.anexar(numeroConta, transacoes);
+            atualizarHistoricoEmCache(numeroConta, transacoes);
+        } finally {
+            travaJournal.unlock();
+        }
+        journal.sincronizarEmLote();
+    }
+
+    /**
+     * O cache só é atualizado se o histórico da conta já estiver carregado
+     * Deve ser chamado com a trava do journal, junto com a gravação
+     */
+    private void atualizarHistoricoEmCache(String numeroConta, List<Transacao> transacoes) {
+        List<Transacao> emCache = transacoesCache.consultar(numeroConta);
+        if (emCache != null) {
+            emCache.addAll(transacoes);
+            // Recoloca a lista para que o peso do histórico acompanhe o novo tamanho
+            transacoesCache.colocar(numeroConta, emCache);
+        }
+    }
+
+    private CompletableFuture<Void> persistirTransacao(String numeroConta, List<Transacao> transacoes) {
+        try {
+            gravarConjunto(List.of(), Map.of(numeroConta, transacoes));
+        } catch (UncheckedIOException e) {
+            reiniciarSequencias(List.of(numeroConta));
+            Log.erro("Erro ao persistir transações: %s", e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Carrega as contas. O histórico de transações é lido sob demanda, conta a conta,
+     * então o tempo de inicialização não depende da quantidade de contas com histórico
+     */
     private void carregarContas() {
-        File file = new File(CONTAS_FILE);
-        if (!file.exists()) return;
+        try {
+            if (tabelaNova) {
+                migrarContasLegadas();
+            }
+            Log.info("Contas carregadas: %d", tabelaContas.contarContas());
+        } catch (Exception e) {
+            Log.erro("Erro ao carregar contas: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Converte o arquivo serializado antigo (contas.dat) para a tabela de contas.
+     * Só é executado quando a tabela ainda não existia
+     */
+    @SuppressWarnings("unchecked")
+    private void migrarContasLegadas() throws IOException, ClassNotFoundException {
+        File legado = new File(CONTAS_FILE);
+        if (!legado.exists()) return;
 
         try (ObjectInputStream ois = new ObjectInputStream(
-                new FileInputStream(file))) {
+                new FileInputStream(legado))) {
             List<ContaBancaria> contas = (List<ContaBancaria>) ois.readObject();
-            contas.forEach(c -> contasCache.put(c.getNumeroConta(), c));
-            System.out.println("Contas carregadas: " + contasCache.size());
-        } catch (Exception e) {
-            System.err.println("Erro ao carregar contas: " + e.getMessage());
-            e.printStackTrace();
+            contas.forEach(tabelaContas::gravar);
+            tabelaContas.sincronizar();
         }
     }
 
-    private void carregarTodasTransacoes() {
-        File dir = new File(TRANSACOES_DIR);
-        File[] files = dir.listFiles((d, name) -> name.endsWith(".dat"));
-        if (files == null) return;
+    private List<Transacao> carregarTransacoes(String numeroConta) {
+        try {
+            importarHistoricoLegado(numeroConta);
+            return journal.ler(numeroConta);
+        } catch (UncheckedIOException e) {
+            Log.erro("Erro ao carregar transações da conta %s: %s", numeroConta, e.getMessage());
+            return new ArrayList<>();
+        }
+    }
 
-        for (File file : files) {
-            String numeroConta = file.getName().replace(".dat", "");
-            carregarTransacoes(numeroConta);
+    /**
+     * Na primeira vez em que a conta é acessada, importa o arquivo antigo (.dat)
+     * caso ela ainda não tenha segmento no journal
+     */
+    private void importarHistoricoLegado(String numeroConta) {
+        if (!historicosVerificados.add(numeroConta) || journal.existe(numeroConta)) return;
+        try {
+            migrarTransacoesLegadas(numeroConta);
+        } catch (IOException | ClassNotFoundException e) {
+            historicosVerificados.remove(numeroConta);
+            Log.erro("Erro ao importar transações da conta %s: %s", numeroConta, e.getMessage());
         }
-        System.out.println("Transações carregadas para " + transacoesCache.size() + " contas");
     }
 
+    /**
+     * Converte o arquivo serializado antigo (<conta>.dat) para o journal.
+     * O arquivo antigo é mantido, mas deixa de ser lido assim que o journal existe
+     */
     @SuppressWarnings("unchecked")
-    private void carregarTransacoes(String numeroConta) {
-        String arquivo = TRANSACOES_DIR + numeroConta + ".dat";
+    private void migrarTransacoesLegadas(String numeroConta) throws IOException, ClassNotFoundException {
+        File legado = new File(TRANSACOES_DIR + numeroConta + ".dat");
+        if (!legado.exists()) return;
+
         try (ObjectInputStream ois = new ObjectInputStream(
-                new FileInputStream(arquivo))) {
+                new FileInputStream(legado))) {
             List<Transacao> transacoes = (List<Transacao>) ois.readObject();
-            transacoesCache.put(numeroConta, transacoes);
-        } catch (Exception e) {
-            System.err.println("Erro ao carregar transações da conta " + numeroConta + ": " + e.getMessage());
+            journal.anexar(numeroConta, transacoes);
+            journal.sincronizar();
         }
     }
 
     /**
-     * Busca uma conta no cache
+     * Contas VIP com saldo negativo na tabela, para a apuração de juros
+     * No modo assíncrono, uma conta que acabou de ficar negativa pode ainda não estar na tabela
+     */
+    public List<String> contasVipComSaldoNegativo() {
+        return tabelaContas.contasVipComSaldoNegativo();
+    }
+
+    /**
+     * Busca uma conta no cache, lendo o slot da tabela mapeada em caso de falha
+     * Retorna sempre uma cópia: quem altera a conta precisa chamar salvarConta
      */
     public ContaBancaria buscarConta(String numeroConta) {
-        return contasCache.get(numeroConta);
+        return M_BUSCAR_CONTA.medir(() -> {
+            if (!ContaBancaria.numeroContaValido(numeroConta)) return null;
+            LoteGravacao lote = loteAtual.get();
+            if (lote != null && lote.contas.containsKey(numeroConta)) {
+                return lote.contas.get(numeroConta);
+            }
+            if (gravador != null) {
+                ContaBancaria pendente = gravador.contaPendente(numeroConta);
+                if (pendente != null) return pendente;
+            }
+            ContaBancaria emCache = contasCache.obter(numeroConta);
+            if (emCache != null) return emCache.copia();
+
+            ContaBancaria conta = tabelaContas.ler(numeroConta);
+            if (conta != null) {
+                // Se uma gravação concorrente já colocou uma versão mais nova, ela é mantida
+                contasCache.colocarSeAusente(numeroConta, conta.copia());
+            }
+            return conta;
+        });
     }
 
     /**
-     * Busca transações de uma conta no cache
+     * Busca transações de uma conta, carregando o histórico do journal no primeiro acesso
+     * Retorna uma cópia, já que outras sessões podem estar anexando transações
      */
     public List<Transacao> buscarTransacoes(String numeroConta) {
-        return transacoesCache.getOrDefault(numeroConta, new ArrayList<>());
+        return M_BUSCAR_TRANSACOES.medir(() -> {
+            if (!ContaBancaria.numeroContaValido(numeroConta)) return new ArrayList<>();
+            if (gravador != null && gravador.temTransacoesPendentes(numeroConta)) {
+                // Leitura logo após uma gravação: espera a fila chegar até ela
+                gravador.barreira().join();
+            }
+            List<Transacao> transacoes = historico(numeroConta);
+            synchronized (transacoes) {
+                return new ArrayList<>(transacoes);
+            }
+        });
+    }
+
+    /**
+     * Uma página do extrato, lida direto do journal pelo índice de datas da conta:
+     * o custo depende do tamanho da página, não da idade da conta
+     */
+    public PaginaExtrato consultarExtrato(ConsultaExtrato consulta) {
+        return M_CONSULTAR_EXTRATO.medir(() -> {
+            String numeroConta = consulta.getNumeroConta();
+            if (!ContaBancaria.numeroContaValido(numeroConta)) return PaginaExtrato.vazia();
+            if (gravador != null && gravador.temTransacoesPendentes(numeroConta)) {
+                gravador.barreira().join();
+            }
+            ReentrantLock travaJournal = journal.travas().travar(numeroConta);
+            try {
+                importarHistoricoLegado(numeroConta);
+                return journal.consultar(consulta);
+            } catch (UncheckedIOException e) {
+                Log.erro("Erro ao consultar extrato da conta %s: %s", numeroConta, e.getMessage());
+                return PaginaExtrato.vazia();
+            } finally {
+                travaJournal.unlock();
+            }
+        });
+    }
+
+    /**
+     * Entrega ao destino todas as transações da consulta, direto do journal e sem paginação,
+     * para exportações (ver JournalTransacoes.percorrer)
+     */
+    public void percorrerExtrato(ConsultaExtrato consulta, JournalTransacoes.Destino destino) throws IOException {
+        String numeroConta = consulta.getNumeroConta();
+        if (!ContaBancaria.numeroContaValido(numeroConta)) return;
+        if (gravador != null && gravador.temTransacoesPendentes(numeroConta)) {
+            gravador.barreira().join();
+        }
+        ReentrantLock travaJournal = journal.travas().travar(numeroConta);
+        try {
+            importarHistoricoLegado(numeroConta);
+        } finally {
+            travaJournal.unlock();
+        }
+        long inicio = System.nanoTime();
+        try {
+            journal.percorrer(consulta, destino);
+        } catch (IOException | RuntimeException e) {
+            M_PERCORRER_EXTRATO.erro();
+            throw e;
+        } finally {
+            M_PERCORRER_EXTRATO.registrar(inicio);
+        }
     }
 
     /**
      * Limpa os caches (útil para testes)
      */
     public void limparCaches() {
-        contasCache.clear();
-        transacoesCache.clear();
+        contasCache.limpar();
+        transacoesCache.limpar();
+        historicosVerificados.clear();
+    }
+
+    /**
+     * Tamanho, peso e acertos/falhas/despejos dos caches de contas e de transações
+     */
+    public String estatisticasCaches() {
+        return contasCache + System.lineSeparator() + transacoesCache;
+    }
+
+    Cache<String, ContaBancaria> getContasCache() {
+        return contasCache;
+    }
+
+    Cache<String, List<Transacao>> getTransacoesCache() {
+        return transacoesCache;
+    }
+
+    /**
+     * Alterações acumuladas por um lote ou por uma operação ainda não gravados (conjunto sujo)
+     * Só o lote é um commit único, com sincronização do disco ao concluir
+     */
+    private static class LoteGravacao {
+        final boolean commitUnico;
+        final Map<String, ContaBancaria> contas = new LinkedHashMap<>();
+        final Map<String, List<Transacao>> transacoes = new LinkedHashMap<>();
+        final List<Runnable> aposGravar = new ArrayList<>();
+        final CompletableFuture<Void> concluido = new CompletableFuture<>();
+
+        LoteGravacao(boolean commitUnico) {
+            this.commitUnico = commitUnico;
+        }
     }
 }
\ No newline at end of file
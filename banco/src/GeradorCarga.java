@@ -0,0 +1,367 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gerador de carga do banco, em processo e contra o armazenamento real do FileManagerSingleton
+ * Cria as contas pelo ContaFactory (BankSingleton.criarConta) e executa, em várias threads, uma
+ * mistura configurável de depósitos, saques, transferências e solicitações de gerente. As contas
+ * são sorteadas com uma distribuição de Zipf: poucas contas quentes recebem a maior parte das
+ * operações e disputam as mesmas travas, como acontece em produção.
+ * A latência de cada operação vai para um HistogramaLatencia (formato do HdrHistogram);
+ * o relatório traz vazão e percentis por operação, para planejar capacidade e pegar regressões
+ *
+ * Uso: java Main --carga, configurado pelas propriedades banco.carga.* (ver Configuracao.dasPropriedades)
+ */
+public class GeradorCarga {
+    private static final int PRIMEIRA_CONTA = 80000;
+    private static final int MAX_CONTAS = TabelaContas.MAX_CONTAS - PRIMEIRA_CONTA;
+    private static final String SENHA = "1234";
+    private static final long SALDO_INICIAL = 1_000_000_000_00L;
+    private static final long VALOR = 100;
+    // Uma conta em cada INTERVALO_VIP é VIP, para haver quem possa solicitar o gerente
+    private static final int INTERVALO_VIP = 10;
+
+    public enum Operacao { DEPOSITO, SAQUE, TRANSFERENCIA, GERENTE }
+
+    private final BankSingleton bank;
+    private final Configuracao configuracao;
+    private final Zipf zipf;
+    private final int[] pesosAcumulados;
+
+    public GeradorCarga(BankSingleton bank, Configuracao configuracao) {
+        this.bank = bank;
+        this.configuracao = configuracao;
+        this.zipf = new Zipf(configuracao.contas, configuracao.expoenteZipf);
+        this.pesosAcumulados = new int[configuracao.pesos.length];
+        int acumulado = 0;
+        for (int i = 0; i < pesosAcumulados.length; i++) {
+            acumulado += configuracao.pesos[i];
+            pesosAcumulados[i] = acumulado;
+        }
+    }
+
+    /**
+     * Cria as contas da carga que ainda não existem e deposita em todas saldo suficiente
+     * para a execução inteira
+     */
+    public void criarContas() {
+        for (int i = 0; i < configuracao.contas; i++) {
+            String numero = numeroConta(i);
+            if (bank.buscarConta(numero) == null) {
+                bank.criarConta(numero, i % INTERVALO_VIP == 0 ? "VIP" : "NORMAL", "carga" + i, SENHA);
+            }
+            bank.deposito(numero, SALDO_INICIAL);
+        }
+    }
+
+    /**
+     * Executa a carga nas threads do executor de sessões e retorna o resultado quando todas terminarem
+     */
+    public Resultado executar() {
+        Resultado resultado = new Resultado(configuracao);
+        long inicio = System.nanoTime();
+        long inicioMedicao = configuracao.operacoesPorThread > 0 ? inicio
+                : inicio + TimeUnit.SECONDS.toNanos(configuracao.aquecimentoSegundos);
+        long fim = configuracao.operacoesPorThread > 0 ? Long.MAX_VALUE
+                : inicioMedicao + TimeUnit.SECONDS.toNanos(configuracao.segundos);
+
+        List<CompletableFuture<Void>> threads = new ArrayList<>();
+        for (int i = 0; i < configuracao.threads; i++) {
+            threads.add(bank.getSessoes().executar(() -> {
+                resultado.adicionar(trabalhar(inicioMedicao, fim, resultado));
+                return null;
+            }));
+        }
+        CompletableFuture.allOf(threads.toArray(new CompletableFuture<?>[0])).join();
+        resultado.duracaoNanos = System.nanoTime() - inicioMedicao;
+        return resultado;
+    }
+
+    /**
+     * Laço de uma thread; os histogramas são locais e somados ao resultado no fim
+     */
+    private Map<Operacao, HistogramaLatencia> trabalhar(long inicioMedicao, long fim, Resultado resultado) {
+        Map<Operacao, HistogramaLatencia> histogramas = new EnumMap<>(Operacao.class);
+        for (Operacao operacao : Operacao.values()) {
+            histogramas.put(operacao, new HistogramaLatencia());
+        }
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        long limite = configuracao.operacoesPorThread > 0 ? configuracao.operacoesPorThread : Long.MAX_VALUE;
+
+        for (long n = 0; n < limite; n++) {
+            Operacao operacao = sortear(aleatorio);
+            long antes = System.nanoTime();
+            if (antes >= fim) break;
+            try {
+                executar(operacao, aleatorio);
+            } catch (RuntimeException e) {
+                resultado.erros.get(operacao).increment();
+            }
+            long depois = System.nanoTime();
+            if (antes >= inicioMedicao) {
+                histogramas.get(operacao).registrar(depois - antes);
+            }
+        }
+        return histogramas;
+    }
+
+    private Operacao sortear(ThreadLocalRandom aleatorio) {
+        int sorteio = aleatorio.nextInt(pesosAcumulados[pesosAcumulados.length - 1]);
+        for (int i = 0; i < pesosAcumulados.length; i++) {
+            if (sorteio < pesosAcumulados[i]) return Operacao.values()[i];
+        }
+        throw new IllegalStateException("Peso fora da faixa: " + sorteio);
+    }
+
+    private void executar(Operacao operacao, ThreadLocalRandom aleatorio) {
+        int conta = zipf.amostra(aleatorio);
+        switch (operacao) {
+            case DEPOSITO -> bank.deposito(numeroConta(conta), VALOR);
+            case SAQUE -> bank.saque(numeroConta(conta), VALOR);
+            case TRANSFERENCIA -> {
+                int destino = zipf.amostra(aleatorio);
+                while (destino == conta) {
+                    destino = zipf.amostra(aleatorio);
+                }
+                bank.transferencia(numeroConta(conta), numeroConta(destino), VALOR);
+            }
+            case GERENTE -> bank.solicitarGerente(numeroConta(conta - conta % INTERVALO_VIP));
+        }
+    }
+
+    private static String numeroConta(int indice) {
+        return String.format("%05d", PRIMEIRA_CONTA + indice);
+    }
+
+    /**
+     * Parâmetros de uma execução
+     * É imutável: cada método devolve uma nova configuração
+     */
+    public static final class Configuracao {
+        private final int contas;
+        private final int threads;
+        private final int segundos;
+        private final int aquecimentoSegundos;
+        private final long operacoesPorThread;
+        private final int[] pesos;
+        private final double expoenteZipf;
+
+        private Configuracao(int contas, int threads, int segundos, int aquecimentoSegundos,
+                             long operacoesPorThread, int[] pesos, double expoenteZipf) {
+            this.contas = contas;
+            this.threads = threads;
+            this.segundos = segundos;
+            this.aquecimentoSegundos = aquecimentoSegundos;
+            this.operacoesPorThread = operacoesPorThread;
+            this.pesos = pesos;
+            this.expoenteZipf = expoenteZipf;
+        }
+
+        /**
+         * 1000 contas, 16 threads, 10 s de medição após 2 s de aquecimento, mistura 40/30/25/5
+         * e expoente de Zipf 0,99 (o mesmo do YCSB)
+         */
+        public static Configuracao padrao() {
+            return new Configuracao(1000, 16, 10, 2, 0, new int[] {40, 30, 25, 5}, 0.99);
+        }
+
+        /**
+         * A configuração padrão sobreposta pelas propriedades banco.carga.contas, threads, segundos,
+         * aquecimento, mistura (pesos de depósito, saque, transferência e gerente: "40,30,25,5") e zipf
+         */
+        public static Configuracao dasPropriedades() {
+            Configuracao padrao = padrao();
+            Configuracao configuracao = padrao
+                    .contas(Integer.getInteger("banco.carga.contas", padrao.contas))
+                    .threads(Integer.getInteger("banco.carga.threads", padrao.threads))
+                    .segundos(Integer.getInteger("banco.carga.segundos", padrao.segundos),
+                            Integer.getInteger("banco.carga.aquecimento", padrao.aquecimentoSegundos));
+            String mistura = System.getProperty("banco.carga.mistura");
+            if (mistura != null) {
+                configuracao = configuracao.mistura(Arrays.stream(mistura.split(","))
+                        .map(String::trim).mapToInt(Integer::parseInt).toArray());
+            }
+            String expoente = System.getProperty("banco.carga.zipf");
+            return expoente == null ? configuracao : configuracao.zipf(Double.parseDouble(expoente));
+        }
+
+        public Configuracao contas(int contas) {
+            if (contas < 2 || contas > MAX_CONTAS) {
+                throw new IllegalArgumentException("Quantidade de contas deve estar entre 2 e " + MAX_CONTAS + "!");
+            }
+            return new Configuracao(contas, threads, segundos, aquecimentoSegundos, operacoesPorThread,
+                    pesos, expoenteZipf);
+        }
+
+        public Configuracao threads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("Informe ao menos uma thread!");
+            }
+            return new Configuracao(contas, threads, segundos, aquecimentoSegundos, operacoesPorThread,
+                    pesos, expoenteZipf);
+        }
+
+        /**
+         * Execução por tempo: aquecimento (fora da medição) seguido dos segundos medidos
+         */
+        public Configuracao segundos(int segundos, int aquecimentoSegundos) {
+            if (segundos < 1 || aquecimentoSegundos < 0) {
+                throw new IllegalArgumentException("Duração inválida!");
+            }
+            return new Configuracao(contas, threads, segundos, aquecimentoSegundos, 0, pesos, expoenteZipf);
+        }
+
+        /**
+         * Execução por quantidade: cada thread faz exatamente essa quantidade de operações, todas medidas
+         */
+        public Configuracao operacoesPorThread(long operacoes) {
+            if (operacoes < 1) {
+                throw new IllegalArgumentException("Informe ao menos uma operação por thread!");
+            }
+            return new Configuracao(contas, threads, segundos, aquecimentoSegundos, operacoes, pesos, expoenteZipf);
+        }
+
+        /**
+         * Pesos relativos de depósito, saque, transferência e solicitação de gerente
+         */
+        public Configuracao mistura(int... pesos) {
+            if (pesos.length != Operacao.values().length || Arrays.stream(pesos).anyMatch(p -> p < 0)
+                    || Arrays.stream(pesos).sum() == 0) {
+                throw new IllegalArgumentException("Informe quatro pesos não negativos, ao menos um positivo!");
+            }
+            return new Configuracao(contas, threads, segundos, aquecimentoSegundos, operacoesPorThread,
+                    pesos.clone(), expoenteZipf);
+        }
+
+        /**
+         * Expoente da distribuição de Zipf: 0 é uniforme, quanto maior, mais concentrada nas contas quentes
+         */
+        public Configuracao zipf(double expoente) {
+            if (expoente < 0 || Double.isNaN(expoente)) {
+                throw new IllegalArgumentException("Expoente de Zipf não pode ser negativo!");
+            }
+            return new Configuracao(contas, threads, segundos, aquecimentoSegundos, operacoesPorThread,
+                    pesos, expoente);
+        }
+
+        @Override
+        public String toString() {
+            String duracao = operacoesPorThread > 0 ? operacoesPorThread + " operações por thread"
+                    : segundos + " s (aquecimento " + aquecimentoSegundos + " s)";
+            return String.format("%d contas, %d threads, %s, mistura %s, Zipf %.2f",
+                    contas, threads, duracao, Arrays.toString(pesos), expoenteZipf);
+        }
+    }
+
+    /**
+     * Vazão, erros e histogramas de latência de uma execução
+     */
+    public static class Resultado {
+        private final Configuracao configuracao;
+        private final Map<Operacao, HistogramaLatencia> histogramas = new EnumMap<>(Operacao.class);
+        private final Map<Operacao, LongAdder> erros = new EnumMap<>(Operacao.class);
+        private long duracaoNanos;
+
+        Resultado(Configuracao configuracao) {
+            this.configuracao = configuracao;
+            for (Operacao operacao : Operacao.values()) {
+                histogramas.put(operacao, new HistogramaLatencia());
+                erros.put(operacao, new LongAdder());
+            }
+        }
+
+        void adicionar(Map<Operacao, HistogramaLatencia> daThread) {
+            daThread.forEach((operacao, histograma) -> histogramas.get(operacao).adicionar(histograma));
+        }
+
+        public HistogramaLatencia getHistograma(Operacao operacao) {
+            return histogramas.get(operacao);
+        }
+
+        public long getErros(Operacao operacao) {
+            return erros.get(operacao).sum();
+        }
+
+        /**
+         * Todas as operações num único histograma
+         */
+        public HistogramaLatencia total() {
+            HistogramaLatencia total = new HistogramaLatencia();
+            histogramas.values().forEach(total::adicionar);
+            return total;
+        }
+
+        public double vazao() {
+            return total().getTotal() * 1e9 / duracaoNanos;
+        }
+
+        /**
+         * Grava a distribuição de percentis de todas as operações em um arquivo .hgrm, em microssegundos
+         */
+        public void gravarDistribuicao(Path arquivo) throws IOException {
+            try (PrintStream saida = new PrintStream(Files.newOutputStream(arquivo), false, StandardCharsets.UTF_8)) {
+                total().imprimirDistribuicao(saida, 1000.0);
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder relatorio = new StringBuilder();
+            relatorio.append("Carga: ").append(configuracao).append(System.lineSeparator());
+            relatorio.append(String.format("%-14s %12s %12s %8s %10s %10s %10s %10s%n",
+                    "Operação", "ops", "ops/s", "erros", "p50 µs", "p99 µs", "p99.9 µs", "máx µs"));
+            long errosTotais = 0;
+            for (Operacao operacao : Operacao.values()) {
+                errosTotais += getErros(operacao);
+                linha(relatorio, operacao.name(), histogramas.get(operacao), getErros(operacao));
+            }
+            linha(relatorio, "TOTAL", total(), errosTotais);
+            return relatorio.toString();
+        }
+
+        private void linha(StringBuilder relatorio, String nome, HistogramaLatencia histograma, long erros) {
+            relatorio.append(String.format("%-14s %,12d %,12.0f %8d %10.1f %10.1f %10.1f %10.1f%n",
+                    nome, histograma.getTotal(), histograma.getTotal() * 1e9 / duracaoNanos, erros,
+                    histograma.percentil(0.50) / 1000.0, histograma.percentil(0.99) / 1000.0,
+                    histograma.percentil(0.999) / 1000.0, histograma.getMaximo() / 1000.0));
+        }
+    }
+
+    /**
+     * Distribuição de Zipf sobre os índices das contas: o índice k sai com peso 1/(k+1)^s
+     * A função acumulada é calculada uma vez e cada amostra é uma busca binária
+     */
+    static final class Zipf {
+        private final double[] acumulada;
+
+        Zipf(int elementos, double expoente) {
+            acumulada = new double[elementos];
+            double soma = 0;
+            for (int k = 0; k < elementos; k++) {
+                soma += 1 / Math.pow(k + 1, expoente);
+                acumulada[k] = soma;
+            }
+            for (int k = 0; k < elementos; k++) {
+                acumulada[k] /= soma;
+            }
+        }
+
+        int amostra(ThreadLocalRandom aleatorio) {
+            int posicao = Arrays.binarySearch(acumulada, aleatorio.nextDouble());
+            int indice = posicao >= 0 ? posicao : -posicao - 1;
+            return Math.min(indice, acumulada.length - 1);
+        }
+    }
+}
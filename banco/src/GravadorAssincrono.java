@@ -0,0 +1,181 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Gravação assíncrona (write-behind) das contas e transações
+ * Os pedidos entram numa fila limitada e uma thread gravadora os aplica em lotes:
+ * várias gravações da mesma conta viram uma só escrita do slot, as transações de cada
+ * conta são anexadas de uma vez e o disco é sincronizado uma vez por lote.
+ * Cada pedido devolve um CompletableFuture concluído quando o dado está em disco;
+ * com a fila cheia, quem grava fica bloqueado até haver espaço (backpressure)
+ */
+public class GravadorAssincrono {
+    private static final int MAX_PEDIDOS_POR_LOTE = 1024;
+    private static final Pedido FIM = new Pedido(null, null);
+
+    private final BlockingQueue<Pedido> fila;
+    // Última versão de cada conta ainda não gravada; é o que buscarConta deve enxergar
+    private final Map<String, ContaBancaria> contasPendentes = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> transacoesPendentes = new ConcurrentHashMap<>();
+
+    private final BiConsumer<Collection<ContaBancaria>, Map<String, List<Transacao>>> gravar;
+    private final Runnable sincronizar;
+    private final Thread gravadora;
+    private volatile boolean ativo = true;
+
+    /**
+     * gravar recebe, a cada lote, as contas e as transações por conta a gravar de uma vez
+     */
+    public GravadorAssincrono(int capacidade, BiConsumer<Collection<ContaBancaria>, Map<String, List<Transacao>>> gravar,
+                              Runnable sincronizar) {
+        this.fila = new ArrayBlockingQueue<>(capacidade);
+        this.gravar = gravar;
+        this.sincronizar = sincronizar;
+        this.gravadora = new Thread(this::executar, "gravador-assincrono");
+        this.gravadora.setDaemon(true);
+        this.gravadora.start();
+    }
+
+    /**
+     * Agenda a gravação de uma cópia da conta
+     */
+    public CompletableFuture<Void> gravarConta(ContaBancaria conta) {
+        contasPendentes.put(conta.getNumeroConta(), conta.copia());
+        return enfileirar(new Pedido(conta.getNumeroConta(), null));
+    }
+
+    /**
+     * Agenda a anexação das transações ao journal da conta
+     */
+    public CompletableFuture<Void> anexarTransacoes(String numeroConta, List<Transacao> transacoes) {
+        transacoesPendentes.computeIfAbsent(numeroConta, k -> new AtomicInteger()).incrementAndGet();
+        return enfileirar(new Pedido(numeroConta, transacoes));
+    }
+
+    /**
+     * Concluído quando tudo o que foi enfileirado até agora estiver gravado
+     */
+    public CompletableFuture<Void> barreira() {
+        return enfileirar(new Pedido(null, null));
+    }
+
+    /**
+     * Versão ainda não gravada da conta, ou null
+     */
+    public ContaBancaria contaPendente(String numeroConta) {
+        ContaBancaria conta = contasPendentes.get(numeroConta);
+        return conta == null ? null : conta.copia();
+    }
+
+    public boolean temTransacoesPendentes(String numeroConta) {
+        AtomicInteger pendentes = transacoesPendentes.get(numeroConta);
+        return pendentes != null && pendentes.get() > 0;
+    }
+
+    public int pedidosNaFila() {
+        return fila.size();
+    }
+
+    /**
+     * Grava o que estiver na fila e encerra a thread gravadora
+     */
+    public void encerrar() {
+        if (!ativo) return;
+        ativo = false;
+        try {
+            fila.put(FIM);
+            gravadora.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<Void> enfileirar(Pedido pedido) {
+        if (!ativo) {
+            throw new IllegalStateException("Gravador assíncrono encerrado!");
+        }
+        try {
+            fila.put(pedido);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando espaço na fila de gravação", e);
+        }
+        return pedido.concluido;
+    }
+
+    private void executar() {
+        List<Pedido> lote = new ArrayList<>(MAX_PEDIDOS_POR_LOTE);
+        boolean fim = false;
+        while (!fim) {
+            try {
+                lote.add(fila.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            fila.drainTo(lote, MAX_PEDIDOS_POR_LOTE - 1);
+            fim = lote.remove(FIM);
+            gravarLote(lote);
+            lote.clear();
+        }
+    }
+
+    private void gravarLote(List<Pedido> lote) {
+        // Várias gravações da mesma conta no lote viram uma só, com a versão mais recente
+        Map<String, ContaBancaria> contas = new LinkedHashMap<>();
+        Map<String, List<Transacao>> transacoes = new LinkedHashMap<>();
+        RuntimeException falha = null;
+        try {
+            for (Pedido pedido : lote) {
+                if (pedido.numeroConta == null) continue;
+                if (pedido.transacoes != null) {
+                    transacoes.computeIfAbsent(pedido.numeroConta, k -> new ArrayList<>()).addAll(pedido.transacoes);
+                } else {
+                    ContaBancaria pendente = contasPendentes.get(pedido.numeroConta);
+                    if (pendente != null) {
+                        contas.put(pedido.numeroConta, pendente);
+                    }
+                }
+            }
+            gravar.accept(contas.values(), transacoes);
+            // Se outra versão chegou durante a escrita, ela continua pendente e tem seu próprio pedido na fila
+            contas.forEach(contasPendentes::remove);
+            sincronizar.run();
+        } catch (RuntimeException e) {
+            Log.erro("Erro na gravação assíncrona: %s", e.getMessage());
+            falha = e;
+        }
+        // Os contadores baixam antes de os pedidos serem concluídos, para quem espera enxergá-los zerados
+        for (Pedido pedido : lote) {
+            if (pedido.transacoes != null) {
+                transacoesPendentes.get(pedido.numeroConta).decrementAndGet();
+            }
+        }
+        for (Pedido pedido : lote) {
+            if (falha == null) {
+                pedido.concluido.complete(null);
+            } else {
+                pedido.concluido.completeExceptionally(falha);
+            }
+        }
+    }
+
+    private static class Pedido {
+        final String numeroConta;
+        final List<Transacao> transacoes;
+        final CompletableFuture<Void> concluido = new CompletableFuture<>();
+
+        Pedido(String numeroConta, List<Transacao> transacoes) {
+            this.numeroConta = numeroConta;
+            this.transacoes = transacoes;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências no formato do HdrHistogram: faixas logarítmicas, cada uma dividida
+ * em SUB_FAIXAS partes iguais, então o erro relativo fica abaixo de 1/64 (~1,6%) em qualquer escala,
+ * de nanossegundos a horas, com memória fixa (~30 KB) e sem guardar as amostras.
+ * Registrar é um incremento atômico, então várias threads podem gravar no mesmo histograma
+ */
+public class HistogramaLatencia {
+    private static final int BITS_SUB_FAIXA = 7;
+    private static final int SUB_FAIXAS = 1 << BITS_SUB_FAIXA;
+    private static final int METADE = SUB_FAIXAS / 2;
+    private static final int POSICOES = (Long.SIZE - BITS_SUB_FAIXA + 1) * METADE;
+
+    private final AtomicLongArray contagens = new AtomicLongArray(POSICOES);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder soma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    /**
+     * Registra um valor (em nanossegundos, na convenção do banco); negativos contam como zero
+     */
+    public void registrar(long valor) {
+        long v = Math.max(0, valor);
+        contagens.incrementAndGet(posicao(v));
+        total.increment();
+        soma.add(v);
+        if (v > maximo.get()) {
+            maximo.accumulateAndGet(v, Math::max);
+        }
+    }
+
+    /**
+     * Soma as contagens de outro histograma a este (por exemplo, os de cada thread da carga)
+     */
+    public void adicionar(HistogramaLatencia outro) {
+        for (int i = 0; i < POSICOES; i++) {
+            long contagem = outro.contagens.get(i);
+            if (contagem != 0) {
+                contagens.addAndGet(i, contagem);
+            }
+        }
+        total.add(outro.total.sum());
+        soma.add(outro.soma.sum());
+        maximo.accumulateAndGet(outro.maximo.get(), Math::max);
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    public long getSoma() {
+        return soma.sum();
+    }
+
+    public long getMaximo() {
+        return maximo.get();
+    }
+
+    public double media() {
+        long quantidade = total.sum();
+        return quantidade == 0 ? 0 : (double) soma.sum() / quantidade;
+    }
+
+    /**
+     * Valor no percentil p (0 a 1): o maior valor equivalente da faixa em que ele cai, como no HdrHistogram
+     */
+    public long percentil(double p) {
+        long quantidade = total.sum();
+        if (quantidade == 0) return 0;
+        long alvo = Math.max(1, (long) Math.ceil(p * quantidade));
+        long acumulado = 0;
+        for (int i = 0; i < POSICOES; i++) {
+            acumulado += contagens.get(i);
+            if (acumulado >= alvo) {
+                return Math.min(limiteSuperior(i), maximo.get());
+            }
+        }
+        return maximo.get();
+    }
+
+    /**
+     * Distribuição de percentis no formato de texto do HdrHistogram (.hgrm), que as ferramentas
+     * de gráfico dele aceitam; os valores são divididos pela escala (1000 para microssegundos)
+     */
+    public void imprimirDistribuicao(PrintStream saida, double escala) {
+        long quantidade = total.sum();
+        saida.printf(Locale.ROOT, "%12s %14s %10s %14s%n%n", "Value", "Percentile", "TotalCount", "1/(1-Percentile)");
+        if (quantidade == 0) return;
+
+        long acumulado = 0;
+        double proximo = 0;
+        for (int i = 0; i < POSICOES && acumulado < quantidade; i++) {
+            long contagem = contagens.get(i);
+            if (contagem == 0) continue;
+            acumulado += contagem;
+            double percentil = (double) acumulado / quantidade;
+            if (percentil < proximo && acumulado < quantidade) continue;
+
+            double valor = Math.min(limiteSuperior(i), maximo.get()) / escala;
+            if (acumulado == quantidade) {
+                saida.printf(Locale.ROOT, "%12.3f %14.12f %10d%n", valor, 1.0, acumulado);
+            } else {
+                saida.printf(Locale.ROOT, "%12.3f %14.12f %10d %14.2f%n", valor, percentil, acumulado,
+                        1 / (1 - percentil));
+            }
+            // Pontos cada vez mais densos na cauda: o próximo fica a 1/10 da distância que falta até 100%
+            proximo = percentil + (1 - percentil) / 10;
+        }
+        saida.printf(Locale.ROOT, "#[Mean    = %12.3f, Max   = %12.3f]%n#[Total count    = %12d]%n",
+                media() / escala, maximo.get() / escala, quantidade);
+    }
+
+    public void limpar() {
+        for (int i = 0; i < POSICOES; i++) {
+            contagens.set(i, 0);
+        }
+        total.reset();
+        soma.reset();
+        maximo.set(0);
+    }
+
+    static int posicao(long valor) {
+        if (valor < SUB_FAIXAS) return (int) valor;
+        int deslocamento = Long.SIZE - 1 - Long.numberOfLeadingZeros(valor) - (BITS_SUB_FAIXA - 1);
+        return deslocamento * METADE + (int) (valor >>> deslocamento);
+    }
+
+    static long limiteSuperior(int posicao) {
+        if (posicao < SUB_FAIXAS) return posicao;
+        int deslocamento = posicao / METADE - 1;
+        long mantissa = posicao % METADE + METADE;
+        return ((mantissa + 1) << deslocamento) - 1;
+    }
+}
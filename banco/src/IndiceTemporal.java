@@ -0,0 +1,59 @@
+import java.util.Arrays;
+
+/**
+ * Índice esparso por data do segmento de uma conta no journal
+ * Guarda a data (epoch millis) de um a cada INTERVALO registros. Como os registros têm
+ * tamanho fixo e são anexados em ordem de data, achar a primeira transação de um período
+ * custa uma busca binária no índice e a leitura de um único bloco do segmento
+ */
+public class IndiceTemporal {
+    public static final int INTERVALO = 64;
+
+    private long[] marcos;
+    private int registros;
+
+    IndiceTemporal(long[] marcos, int registros) {
+        this.marcos = marcos;
+        this.registros = registros;
+    }
+
+    /**
+     * Quantidade de registros do segmento cobertos pelo índice
+     */
+    public int registros() {
+        return registros;
+    }
+
+    /**
+     * Acrescenta o próximo registro do segmento
+     */
+    public void anexar(long data) {
+        if (registros % INTERVALO == 0) {
+            int marco = registros / INTERVALO;
+            if (marco == marcos.length) {
+                marcos = Arrays.copyOf(marcos, Math.max(16, marcos.length * 2));
+            }
+            marcos[marco] = data;
+        }
+        registros++;
+    }
+
+    /**
+     * Primeiro registro do bloco que contém a primeira transação com data >= data informada
+     */
+    public int inicioDoBloco(long data) {
+        int baixo = 0;
+        int alto = (registros + INTERVALO - 1) / INTERVALO - 1;
+        int bloco = 0;
+        while (baixo <= alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (marcos[meio] < data) {
+                bloco = meio;
+                baixo = meio + 1;
+            } else {
+                alto = meio - 1;
+            }
+        }
+        return bloco * INTERVALO;
+    }
+}
@@ -0,0 +1,1014 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Journal de transações somente-anexação (append-only)
+ * Cada conta possui um segmento próprio (<conta>.jnl) com registros de tamanho fixo,
+ * então anexar uma transação custa sempre os mesmos bytes, independente do histórico.
+ * Os registros são gravados pelo CodecTransacao e as descrições ficam no dicionário compartilhado.
+ * Transações antigas podem ser movidas para um arquivo compactado (<conta>.arq, ver arquivar)
+ * e consultas por período usam um índice esparso de datas por conta (ver consultar).
+ * As transações de uma conta são numeradas a partir de 1 na ordem de gravação (ver sequencia).
+ * Cada conta é protegida pela trava da sua faixa (ver travas), então contas diferentes gravam
+ * e consultam em paralelo; os mapas de canais e índices têm uma trava própria, segurada só
+ * para consultá-los. O fsync em lote acontece fora das travas de conta (ver sincronizarEmLote)
+ */
+public class JournalTransacoes {
+    public static final String EXTENSAO = ".jnl";
+    public static final String EXTENSAO_ARQUIVO = ".arq";
+    public static final String ARQUIVO_DICIONARIO = "descricoes.dic";
+
+    // Cabeçalho do segmento
+    private static final int MAGIC = 0x4A54524E; // "JTRN"
+    static final short VERSAO = 2;
+    static final int TAMANHO_CABECALHO = 16;
+    static final int TAMANHO_REGISTRO = CodecTransacao.TAMANHO_REGISTRO;
+
+    // fsync em lote: força o disco a cada N registros gravados ou quando o intervalo expira
+    private static final int LOTE_FSYNC = 32;
+    private static final long INTERVALO_FSYNC_MS = 200;
+    private static final int MAX_CANAIS_ABERTOS = 256;
+    private static final int FAIXAS_TRAVAS = 256;
+    private static final int MAX_INDICES = 1024;
+    private static final int REGISTROS_POR_LEITURA = 256;
+    private static final Transacao.TipoTransacao[] TIPOS = Transacao.TipoTransacao.values();
+
+    private final Path diretorio;
+    private final DicionarioDescricoes dicionario;
+    private final CodecTransacao codec;
+    private final TravasContas travas = new TravasContas("journal", FAIXAS_TRAVAS);
+
+    // Protegidos por travaMapas
+    private final ReentrantLock travaMapas = new ReentrantLock();
+    private final Map<String, FileChannel> canais;
+    private final Map<String, IndiceTemporal> indices;
+    private final Map<String, ArquivoTransacoes> arquivos;
+    private final Set<FileChannel> pendentesFsync;
+    private long registrosGravados;
+    private long ultimoFsync;
+
+    // Commit em grupo: quem chega durante um fsync espera e em geral já encontra seu ticket durável
+    private final ReentrantLock travaFsync = new ReentrantLock();
+    private volatile long duravelAte;
+
+    public JournalTransacoes(Path diretorio) {
+        this.diretorio = diretorio;
+        this.dicionario = new DicionarioDescricoes(diretorio.resolve(ARQUIVO_DICIONARIO));
+        this.codec = new CodecTransacao(dicionario);
+        this.pendentesFsync = new HashSet<>();
+        this.ultimoFsync = System.currentTimeMillis();
+        // LRU de canais abertos para não esgotar descritores com muitas contas (ver canal)
+        this.canais = new LinkedHashMap<>(16, 0.75f, true);
+        this.indices = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IndiceTemporal> eldest) {
+                return size() > MAX_INDICES;
+            }
+        };
+        this.arquivos = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ArquivoTransacoes> eldest) {
+                return size() > MAX_INDICES;
+            }
+        };
+    }
+
+    /**
+     * Indica se a conta já possui um segmento no journal
+     */
+    public boolean existe(String numeroConta) {
+        return Files.exists(arquivo(numeroConta));
+    }
+
+    /**
+     * Anexa uma transação ao segmento da conta
+     */
+    public void anexar(String numeroConta, Transacao transacao) {
+        anexar(numeroConta, List.of(transacao));
+    }
+
+    /**
+     * Anexa várias transações ao segmento da conta com uma única escrita
+     * Se quem chamou já segura a trava da conta, o fsync em lote fica para ele (ver sincronizarEmLote)
+     */
+    public void anexar(String numeroConta, List<Transacao> transacoes) {
+        if (transacoes.isEmpty()) return;
+        ReentrantLock trava = travas.travar(numeroConta);
+        try {
+            EventosBanco.AnexarTransacoes evento = new EventosBanco.AnexarTransacoes();
+            evento.begin();
+            long inicio = System.nanoTime();
+            ByteBuffer buffer = codificar(transacoes);
+            long codificado = System.nanoTime();
+
+            try {
+                FileChannel canal = canal(numeroConta);
+                long aberto = System.nanoTime();
+                long posicao = canal.size();
+                atualizarIndice(numeroConta, posicao, buffer);
+                while (buffer.hasRemaining()) {
+                    posicao += canal.write(buffer, posicao);
+                }
+                pendenteFsync(canal, transacoes.size());
+                registrar(evento, numeroConta, transacoes.size(), buffer.limit(), codificado - inicio, aberto - codificado);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Erro ao anexar transação da conta " + numeroConta, e);
+            }
+        } finally {
+            trava.unlock();
+        }
+        if (!trava.isHeldByCurrentThread()) {
+            sincronizarEmLote();
+        }
+    }
+
+    private ByteBuffer codificar(List<Transacao> transacoes) {
+        ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_REGISTRO * transacoes.size());
+        for (Transacao transacao : transacoes) {
+            codec.codificar(transacao, buffer);
+        }
+        return buffer.flip();
+    }
+
+    private static void registrar(EventosBanco.AnexarTransacoes evento, String numeroConta, int transacoes,
+                                  long bytes, long codificacao, long abertura) {
+        if (!evento.shouldCommit()) return;
+        evento.conta = numeroConta;
+        evento.transacoes = transacoes;
+        evento.bytes = bytes;
+        evento.codificacao = codificacao;
+        evento.abertura = abertura;
+        evento.commit();
+    }
+
+    /**
+     * Tamanho do segmento da conta em bytes, ou seja, a posição da próxima anexação
+     */
+    public long tamanhoSegmento(String numeroConta) {
+        ReentrantLock trava = travas.travar(numeroConta);
+        try {
+            if (!existe(numeroConta)) return TAMANHO_CABECALHO;
+            try {
+                return Math.max(canal(numeroConta).size(), TAMANHO_CABECALHO);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Erro ao ler journal da conta " + numeroConta, e);
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Grava as transações a partir de uma posição fixa do segmento (reservada pelo LogRecuperacao)
+     * A sincronização em disco fica para o checkpoint do log
+     */
+    public void gravarEm(String numeroConta, long posicao, List<Transacao> transacoes) {
+        if (transacoes.isEmpty()) return;
+        ReentrantLock trava = travas.travar(numeroConta);
+        try {
+            EventosBanco.AnexarTransacoes evento = new EventosBanco.AnexarTransacoes();
+            evento.begin();
+            long inicio = System.nanoTime();
+            ByteBuffer buffer = codificar(transacoes);
+            long codificado = System.nanoTime();
+
+            try {
+                FileChannel canal = canal(numeroConta);
+                long aberto = System.nanoTime();
+                atualizarIndice(numeroConta, posicao, buffer);
+                long escrita = posicao;
+                while (buffer.hasRemaining()) {
+                    escrita += canal.write(buffer, escrita);
+                }
+                pendenteFsync(canal, transacoes.size());
+                registrar(evento, numeroConta, transacoes.size(), buffer.limit(), codificado - inicio, aberto - codificado);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Erro ao gravar transações da conta " + numeroConta, e);
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Sequência da última transação gravada para a conta (0 se não há nenhuma)
+     * Lê só o cabeçalho do arquivo compactado e, havendo sobras de um arquivamento
+     * interrompido no segmento, as datas do seu início
+     */
+    public long sequencia(String numeroConta) {
+        ReentrantLock trava = travas.travar(numeroConta);
+        try {
+            try {
+                long arquivadas = 0;
+                long limiteArquivo = Long.MIN_VALUE;
+                Path compactado = arquivoCompactado(numeroConta);
+                if (Files.exists(compactado)) {
+                    ArquivoTransacoes arquivo = ArquivoTransacoes.lerCabecalho(compactado);
+                    arquivadas = arquivo.quantidade();
+                    limiteArquivo = arquivo.limite();
+                }
+                if (!existe(numeroConta)) return arquivadas;
+
+                RegistrosSegmento segmento = new RegistrosSegmento(numeroConta, canal(numeroConta));
+                return arquivadas + segmento.quantidade() - jaArquivados(segmento, limiteArquivo);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Erro ao ler a sequência da conta " + numeroConta, e);
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Lê todas as transações da conta: as arquivadas e, em seguida, as do segmento
+     */
+    public List<Transacao> ler(String numeroConta) {
+        ReentrantLock trava = travas.travar(numeroConta);
+        try {
+            List<Transacao> transacoes = new ArrayList<>();
+            long limiteArquivo = Long.MIN_VALUE;
+            Path compactado = arquivoCompactado(numeroConta);
+            if (Files.exists(compactado)) {
+                try {
+                    // Um bloco descomprimido por vez, decodificado direto para a lista
+                    ArquivoTransacoes arquivo = arquivoCompactadoAberto(numeroConta);
+                    for (int bloco = 0; bloco < arquivo.blocos(); bloco++) {
+                        ByteBuffer registros = arquivo.lerBloco(bloco);
+                        while (registros.hasRemaining()) {
+                            Transacao transacao = codec.decodificar(registros);
+                            transacao.setSequencia(transacoes.size() + 1);
+                            transacoes.add(transacao);
+                        }
+                    }
+                    limiteArquivo = arquivo.limite();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Erro ao ler transações arquivadas da conta " + numeroConta, e);
+                }
+            }
+            if (!existe(numeroConta)) return transacoes;
+
+            try {
+                FileChannel canal = canal(numeroConta);
+                long tamanho = canal.size();
+                ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_REGISTRO * 256);
+                long posicao = TAMANHO_CABECALHO;
+                while (posicao + TAMANHO_REGISTRO <= tamanho) {
+                    buffer.clear();
+                    int lidos = canal.read(buffer, posicao);
+                    if (lidos <= 0) break;
+                    buffer.flip();
+                    while (buffer.remaining() >= TAMANHO_REGISTRO) {
+                        if (buffer.getLong(buffer.position()) < limiteArquivo) {
+                            // Já arquivado: sobra de uma queda durante o arquivamento
+                            buffer.position(buffer.position() + TAMANHO_REGISTRO);
+                        } else {
+                            Transacao transacao = codec.decodificar(buffer);
+                            transacao.setSequencia(transacoes.size() + 1);
+                            transacoes.add(transacao);
+                        }
+                        posicao += TAMANHO_REGISTRO;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Erro ao ler journal da conta " + numeroConta, e);
+            }
+            return transacoes;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Move para o arquivo compactado da conta as transações anteriores ao limite e
+     * reescreve o segmento só com as demais. Retorna quantas transações foram arquivadas
+     * Os registros são copiados sem decodificar; se a primeira transação do segmento
+     * não é anterior ao limite, nada é lido além dela
+     */
+    public int arquivar(String numeroConta, LocalDateTime limite) {
+        ReentrantLock trava = travas.travar(numeroConta);
+        try {
+            if (!existe(numeroConta)) return 0;
+            long limiteMillis = CodecTransacao.epochMillis(limite);
+            try {
+                FileChannel canal = canal(numeroConta);
+                int quantidade = (int) ((canal.size() - TAMANHO_CABECALHO) / TAMANHO_REGISTRO);
+                if (quantidade == 0) return 0;
+
+                ByteBuffer primeira = ByteBuffer.allocate(Long.BYTES);
+                canal.read(primeira, TAMANHO_CABECALHO);
+                if (primeira.getLong(0) >= limiteMillis) return 0;
+
+                ByteBuffer registros = ByteBuffer.allocate(quantidade * TAMANHO_REGISTRO);
+                while (registros.hasRemaining()) {
+                    if (canal.read(registros, TAMANHO_CABECALHO + registros.position()) <= 0) break;
+                }
+                registros.flip();
+
+                // Primeiro o arquivo, depois o segmento: numa queda entre os dois, o que o limite
+                // do arquivo indica como já arquivado é ignorado no segmento, aqui e em ler.
+                // Do arquivo existente só o cabeçalho é lido: as antigas viram blocos novos no fim
+                Path compactado = arquivoCompactado(numeroConta);
+                long limiteAnterior = Files.exists(compactado)
+                        ? ArquivoTransacoes.lerCabecalho(compactado).limite() : Long.MIN_VALUE;
+
+                ByteBuffer antigas = ByteBuffer.allocate(registros.limit());
+                ByteBuffer recentes = ByteBuffer.allocate(TAMANHO_CABECALHO + registros.limit());
+                escreverCabecalho(recentes);
+                while (registros.remaining() >= TAMANHO_REGISTRO) {
+                    ByteBuffer registro = registros.slice(registros.position(), TAMANHO_REGISTRO);
+                    long data = registro.getLong(0);
+                    if (data >= limiteAnterior) {
+                        (data < limiteMillis ? antigas : recentes).put(registro);
+                    }
+                    registros.position(registros.position() + TAMANHO_REGISTRO);
+                }
+                int arquivadas = antigas.position() / TAMANHO_REGISTRO;
+                if (arquivadas == 0) return 0;
+
+                ArquivoTransacoes.anexar(compactado, Math.max(limiteAnterior, limiteMillis), antigas.flip());
+
+                substituirSegmento(numeroConta, recentes.flip());
+                return arquivadas;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Erro ao arquivar transações da conta " + numeroConta, e);
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Uma página de transações da conta, em ordem cronológica, segundo a consulta
+     * O início do período (ou o cursor) é achado pelo índice de datas e só os registros
+     * percorridos a partir dali são lidos; o tipo é filtrado antes de decodificar o registro.
+     * Períodos anteriores ao limite do arquivo compactado são lidos do arquivo: o índice de blocos
+     * acha o bloco do início e só os blocos percorridos pela página são descomprimidos
+     */
+    public PaginaExtrato consultar(ConsultaExtrato consulta) {
+        String numeroConta = consulta.getNumeroConta();
+        ReentrantLock trava = travas.travar(numeroConta);
+        try {
+            long de = consulta.getDe() == null ? Long.MIN_VALUE : CodecTransacao.epochMillis(consulta.getDe());
+            long ate = consulta.getAte() == null ? Long.MAX_VALUE : CodecTransacao.epochMillis(consulta.getAte());
+            long inicio = de;
+            int pular = 0;
+            if (consulta.getCursor() != null) {
+                long[] cursor = lerCursor(consulta.getCursor());
+                if (cursor[0] >= de) {
+                    inicio = cursor[0];
+                    pular = (int) cursor[1];
+                }
+            }
+
+            List<Transacao> pagina = new ArrayList<>();
+            try {
+                long limiteArquivo = Long.MIN_VALUE;
+                int arquivadas = 0;
+                ArquivoTransacoes arquivo = arquivoCompactadoAberto(numeroConta);
+                if (arquivo != null) {
+                    limiteArquivo = arquivo.limite();
+                    arquivadas = arquivo.quantidade();
+                    if (inicio < limiteArquivo) {
+                        String proximo = coletar(new RegistrosArquivados(arquivo), 0, inicio, pular,
+                                Math.min(ate, limiteArquivo), consulta, pagina);
+                        if (proximo != null) return new PaginaExtrato(pagina, proximo);
+                    }
+                }
+                // O que no segmento é anterior ao limite do arquivo já foi arquivado
+                if (inicio < limiteArquivo) {
+                    inicio = limiteArquivo;
+                    pular = 0;
+                }
+                if (!existe(numeroConta) || inicio >= ate) return new PaginaExtrato(pagina, null);
+
+                RegistrosSegmento segmento = new RegistrosSegmento(numeroConta, canal(numeroConta));
+                String proximo = coletar(segmento, arquivadas - jaArquivados(segmento, limiteArquivo),
+                        inicio, pular, ate, consulta, pagina);
+                return new PaginaExtrato(pagina, proximo);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Erro ao consultar o extrato da conta " + numeroConta, e);
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Percorre os registros a partir da data inicial, adicionando à página os aceitos pela consulta
+     * O registro de índice i recebe a sequência anteriores + i + 1.
+     * Retorna o cursor da próxima transação aceita quando a página enche, ou null se acabaram
+     */
+    private String coletar(Registros registros, long anteriores, long inicio, int pular, long ate,
+                           ConsultaExtrato consulta, List<Transacao> pagina) throws IOException {
+        int quantidade = registros.quantidade();
+        int indice = Math.min(primeiroAPartirDe(registros, inicio) + pular, quantidade);
+        while (indice < quantidade) {
+            ByteBuffer bloco = registros.ler(indice, Math.min(REGISTROS_POR_LEITURA, quantidade - indice));
+            int lidos = bloco.remaining() / TAMANHO_REGISTRO;
+            for (int i = 0; i < lidos; i++, indice++) {
+                int offset = i * TAMANHO_REGISTRO;
+                long data = bloco.getLong(offset);
+                if (data >= ate) return null;
+                if (!consulta.aceita(TIPOS[bloco.get(offset + CodecTransacao.OFFSET_TIPO)])) continue;
+                if (pagina.size() == consulta.getLimite()) {
+                    return data + ":" + (indice - primeiroAPartirDe(registros, data));
+                }
+                Transacao transacao = codec.decodificar(bloco.position(offset));
+                transacao.setSequencia(anteriores + indice + 1);
+                pagina.add(transacao);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Entrega ao destino, em ordem cronológica, todas as transações da consulta (o limite e o
+     * cursor são ignorados), para exportações de qualquer tamanho em memória constante.
+     * Os blocos já confirmados do arquivo compactado não mudam mais, então são percorridos sem a
+     * trava da conta, descomprimindo um bloco por vez; só os blocos arquivados durante a
+     * exportação e o segmento são lidos com a trava
+     */
+    public void percorrer(ConsultaExtrato consulta, Destino destino) throws IOException {
+        String numeroConta = consulta.getNumeroConta();
+        long de = consulta.getDe() == null ? Long.MIN_VALUE : CodecTransacao.epochMillis(consulta.getDe());
+        long ate = consulta.getAte() == null ? Long.MAX_VALUE : CodecTransacao.epochMillis(consulta.getAte());
+
+        ArquivoTransacoes arquivo;
+        ReentrantLock trava = travas.travar(numeroConta);
+        try {
+            arquivo = arquivoCompactadoAberto(numeroConta);
+        } finally {
+            trava.unlock();
+        }
+        int percorridas = 0;
+        if (arquivo != null) {
+            percorrer(new RegistrosArquivados(arquivo), 0, 0, de, Math.min(ate, arquivo.limite()), consulta, destino);
+            percorridas = arquivo.quantidade();
+        }
+
+        trava = travas.travar(numeroConta);
+        try {
+            long limiteArquivo = Long.MIN_VALUE;
+            int arquivadas = 0;
+            arquivo = arquivoCompactadoAberto(numeroConta);
+            if (arquivo != null) {
+                // Blocos anexados por um arquivamento durante a exportação: ainda estavam no segmento
+                limiteArquivo = arquivo.limite();
+                arquivadas = arquivo.quantidade();
+                percorrer(new RegistrosArquivados(arquivo), percorridas, 0, de, Math.min(ate, limiteArquivo),
+                        consulta, destino);
+            }
+            if (!existe(numeroConta)) return;
+            RegistrosSegmento segmento = new RegistrosSegmento(numeroConta, canal(numeroConta));
+            percorrer(segmento, 0, arquivadas - jaArquivados(segmento, limiteArquivo), Math.max(de, limiteArquivo),
+                    ate, consulta, destino);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Entrega ao destino os registros aceitos pela consulta com data entre inicio e ate,
+     * a partir do índice minimo; o registro de índice i recebe a sequência anteriores + i + 1
+     */
+    private void percorrer(Registros registros, int minimo, long anteriores, long inicio, long ate,
+                           ConsultaExtrato consulta, Destino destino) throws IOException {
+        int quantidade = registros.quantidade();
+        int indice = Math.max(minimo, primeiroAPartirDe(registros, inicio));
+        while (indice < quantidade) {
+            ByteBuffer bloco = registros.ler(indice, Math.min(REGISTROS_POR_LEITURA, quantidade - indice));
+            int lidos = bloco.remaining() / TAMANHO_REGISTRO;
+            for (int i = 0; i < lidos; i++, indice++) {
+                int offset = i * TAMANHO_REGISTRO;
+                if (bloco.getLong(offset) >= ate) return;
+                if (!consulta.aceita(TIPOS[bloco.get(offset + CodecTransacao.OFFSET_TIPO)])) continue;
+                Transacao transacao = codec.decodificar(bloco.position(offset));
+                transacao.setSequencia(anteriores + indice + 1);
+                destino.receber(transacao);
+            }
+        }
+    }
+
+    /**
+     * Índice do primeiro registro com data >= data informada
+     */
+    private static int primeiroAPartirDe(Registros registros, long data) throws IOException {
+        int quantidade = registros.quantidade();
+        int indice = registros.inicioDaBusca(data);
+        while (indice < quantidade) {
+            ByteBuffer bloco = registros.ler(indice, Math.min(REGISTROS_POR_LEITURA, quantidade - indice));
+            int lidos = bloco.remaining() / TAMANHO_REGISTRO;
+            for (int i = 0; i < lidos; i++, indice++) {
+                if (bloco.getLong(i * TAMANHO_REGISTRO) >= data) return indice;
+            }
+        }
+        return quantidade;
+    }
+
+    /**
+     * Registros do início do segmento que já estão no arquivo compactado (queda durante o arquivamento)
+     */
+    private static int jaArquivados(Registros segmento, long limiteArquivo) throws IOException {
+        return limiteArquivo == Long.MIN_VALUE ? 0 : primeiroAPartirDe(segmento, limiteArquivo);
+    }
+
+    private static long[] lerCursor(String cursor) {
+        int separador = cursor.indexOf(':');
+        try {
+            long[] partes = {Long.parseLong(cursor.substring(0, separador)),
+                    Long.parseLong(cursor.substring(separador + 1))};
+            if (partes[1] >= 0 && partes[1] <= Integer.MAX_VALUE) return partes;
+        } catch (RuntimeException e) {
+            // tratado abaixo
+        }
+        throw new IllegalArgumentException("Cursor de extrato inválido: " + cursor);
+    }
+
+    /**
+     * Índice de datas do segmento, reconstruído se não cobrir exatamente os registros atuais
+     * A reconstrução lê só a data de um a cada IndiceTemporal.INTERVALO registros
+     */
+    private IndiceTemporal indice(String numeroConta, FileChannel canal, int quantidade) throws IOException {
+        IndiceTemporal indice = indiceEmMemoria(numeroConta);
+        if (indice != null && indice.registros() == quantidade) return indice;
+
+        long[] marcos = new long[Math.max(16, (quantidade + IndiceTemporal.INTERVALO - 1) / IndiceTemporal.INTERVALO)];
+        ByteBuffer data = ByteBuffer.allocate(Long.BYTES);
+        for (int registro = 0; registro < quantidade; registro += IndiceTemporal.INTERVALO) {
+            data.clear();
+            canal.read(data, TAMANHO_CABECALHO + (long) registro * TAMANHO_REGISTRO);
+            marcos[registro / IndiceTemporal.INTERVALO] = data.getLong(0);
+        }
+        indice = new IndiceTemporal(marcos, quantidade);
+        guardarIndice(numeroConta, indice);
+        return indice;
+    }
+
+    /**
+     * Mantém o índice em memória ao gravar registros no fim do segmento; qualquer outra
+     * escrita o descarta e ele é reconstruído na próxima consulta
+     */
+    private void atualizarIndice(String numeroConta, long posicao, ByteBuffer registros) {
+        IndiceTemporal indice = indiceEmMemoria(numeroConta);
+        if (indice == null) return;
+        if ((posicao - TAMANHO_CABECALHO) / TAMANHO_REGISTRO != indice.registros()) {
+            guardarIndice(numeroConta, null);
+            return;
+        }
+        for (int offset = registros.position(); offset < registros.limit(); offset += TAMANHO_REGISTRO) {
+            indice.anexar(registros.getLong(offset));
+        }
+    }
+
+    /**
+     * Índice de blocos do arquivo compactado da conta (null se ela não tem arquivo), mantido em
+     * memória enquanto o tamanho do arquivo não muda; deve ser chamado com a trava da conta
+     */
+    private ArquivoTransacoes arquivoCompactadoAberto(String numeroConta) throws IOException {
+        Path compactado = arquivoCompactado(numeroConta);
+        if (!Files.exists(compactado)) return null;
+        long tamanho = Files.size(compactado);
+        ArquivoTransacoes arquivo;
+        travaMapas.lock();
+        try {
+            arquivo = arquivos.get(numeroConta);
+        } finally {
+            travaMapas.unlock();
+        }
+        if (arquivo != null && arquivo.tamanho() == tamanho) return arquivo;
+
+        arquivo = ArquivoTransacoes.abrir(compactado);
+        travaMapas.lock();
+        try {
+            arquivos.put(numeroConta, arquivo);
+        } finally {
+            travaMapas.unlock();
+        }
+        return arquivo;
+    }
+
+    /**
+     * O índice de uma conta só é lido e alterado com a trava da conta; o mapa, com travaMapas
+     */
+    private IndiceTemporal indiceEmMemoria(String numeroConta) {
+        travaMapas.lock();
+        try {
+            return indices.get(numeroConta);
+        } finally {
+            travaMapas.unlock();
+        }
+    }
+
+    private void guardarIndice(String numeroConta, IndiceTemporal indice) {
+        travaMapas.lock();
+        try {
+            if (indice == null) {
+                indices.remove(numeroConta);
+            } else {
+                indices.put(numeroConta, indice);
+            }
+        } finally {
+            travaMapas.unlock();
+        }
+    }
+
+    /**
+     * Contas com segmento no journal
+     */
+    public List<String> contasComSegmento() {
+        List<String> contas = new ArrayList<>();
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            arquivos.map(arquivo -> arquivo.getFileName().toString())
+                    .filter(nome -> nome.endsWith(EXTENSAO))
+                    .forEach(nome -> contas.add(nome.substring(0, nome.length() - EXTENSAO.length())));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao listar o journal em " + diretorio, e);
+        }
+        return contas;
+    }
+
+    /**
+     * Registra uma escrita ainda não forçada em disco e retorna o seu ticket de commit em grupo
+     */
+    private long pendenteFsync(FileChannel canal, int registros) {
+        travaMapas.lock();
+        try {
+            pendentesFsync.add(canal);
+            registrosGravados += registros;
+            return registrosGravados;
+        } finally {
+            travaMapas.unlock();
+        }
+    }
+
+    /**
+     * fsync em lote: força o disco quando LOTE_FSYNC registros esperam por ele ou o intervalo expira
+     * Deve ser chamado sem travas de conta, para que o fsync não bloqueie as demais contas
+     */
+    public void sincronizarEmLote() {
+        long ticket;
+        travaMapas.lock();
+        try {
+            ticket = registrosGravados;
+            if (ticket - duravelAte < LOTE_FSYNC
+                    && System.currentTimeMillis() - ultimoFsync < INTERVALO_FSYNC_MS) return;
+        } finally {
+            travaMapas.unlock();
+        }
+        sincronizarAte(ticket);
+    }
+
+    /**
+     * Força em disco todos os segmentos com escritas pendentes
+     */
+    public void sincronizar() {
+        long ticket;
+        travaMapas.lock();
+        try {
+            ticket = registrosGravados;
+        } finally {
+            travaMapas.unlock();
+        }
+        sincronizarAte(ticket);
+    }
+
+    /**
+     * Commit em grupo: um único fsync por canal cobre todas as escritas registradas até ele,
+     * e quem esperava na fila com um ticket já coberto retorna sem tocar no disco
+     */
+    private void sincronizarAte(long ticket) {
+        travaFsync.lock();
+        try {
+            if (duravelAte >= ticket) return;
+            EventosBanco.Sincronizar evento = new EventosBanco.Sincronizar();
+            evento.begin();
+            List<FileChannel> aSincronizar;
+            long cobertos;
+            travaMapas.lock();
+            try {
+                aSincronizar = new ArrayList<>(pendentesFsync);
+                pendentesFsync.clear();
+                cobertos = registrosGravados;
+                ultimoFsync = System.currentTimeMillis();
+            } finally {
+                travaMapas.unlock();
+            }
+            for (int i = 0; i < aSincronizar.size(); i++) {
+                try {
+                    aSincronizar.get(i).force(false);
+                } catch (ClosedChannelException e) {
+                    // Fechado pela LRU de canais, que força o disco antes de fechar
+                } catch (IOException e) {
+                    travaMapas.lock();
+                    try {
+                        pendentesFsync.addAll(aSincronizar.subList(i, aSincronizar.size()));
+                    } finally {
+                        travaMapas.unlock();
+                    }
+                    throw new UncheckedIOException("Erro ao sincronizar journal", e);
+                }
+            }
+            duravelAte = cobertos;
+            if (!aSincronizar.isEmpty() && evento.shouldCommit()) {
+                evento.arquivo = "journal";
+                evento.canais = aSincronizar.size();
+                evento.commit();
+            }
+        } finally {
+            travaFsync.unlock();
+        }
+    }
+
+    /**
+     * Sincroniza e fecha todos os segmentos abertos
+     */
+    public void fechar() {
+        sincronizar();
+        travaMapas.lock();
+        try {
+            canais.values().forEach(this::fecharCanal);
+            canais.clear();
+            indices.clear();
+        } finally {
+            travaMapas.unlock();
+        }
+        dicionario.fechar();
+    }
+
+    /**
+     * Grava um segmento completo em um arquivo temporário e o move atomicamente para o destino
+     * Usado pela migração de formatos antigos
+     */
+    public void substituirSegmento(String numeroConta, List<Transacao> transacoes) throws IOException {
+        ReentrantLock trava = travas.travar(numeroConta);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_CABECALHO + TAMANHO_REGISTRO * transacoes.size());
+            escreverCabecalho(buffer);
+            for (Transacao transacao : transacoes) {
+                codec.codificar(transacao, buffer);
+            }
+            substituirSegmento(numeroConta, buffer.flip());
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private void substituirSegmento(String numeroConta, ByteBuffer buffer) throws IOException {
+        FileChannel aberto;
+        travaMapas.lock();
+        try {
+            indices.remove(numeroConta);
+            aberto = canais.remove(numeroConta);
+        } finally {
+            travaMapas.unlock();
+        }
+        if (aberto != null) {
+            fecharCanal(aberto);
+        }
+
+        Path temporario = diretorio.resolve(numeroConta + EXTENSAO + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            canal.force(false);
+        }
+        Files.move(temporario, arquivo(numeroConta),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Versão do formato gravada no cabeçalho de um segmento existente
+     */
+    public static short lerVersao(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+            canal.read(cabecalho, 0);
+            cabecalho.flip();
+            if (cabecalho.remaining() < 8 || cabecalho.getInt() != MAGIC) {
+                throw new IOException("Arquivo não é um journal de transações: " + arquivo);
+            }
+            return cabecalho.getShort();
+        }
+    }
+
+    /**
+     * Travas por conta do journal, para quem precisa combinar várias operações de forma atômica
+     */
+    TravasContas travas() {
+        return travas;
+    }
+
+    CodecTransacao codec() {
+        return codec;
+    }
+
+    /**
+     * Canal do segmento da conta; deve ser chamado com a trava da conta
+     * Acima de MAX_CANAIS_ABERTOS, fecha os menos usados cujas contas não estão travadas
+     * (um canal em uso por outra thread nunca é fechado debaixo dela)
+     */
+    private FileChannel canal(String numeroConta) throws IOException {
+        travaMapas.lock();
+        try {
+            FileChannel canal = canais.get(numeroConta);
+            if (canal != null) return canal;
+        } finally {
+            travaMapas.unlock();
+        }
+
+        Path arquivo = arquivo(numeroConta);
+        boolean novo = !Files.exists(arquivo);
+        FileChannel canal = FileChannel.open(arquivo,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (novo || canal.size() < TAMANHO_CABECALHO) {
+            escreverCabecalho(canal);
+        } else {
+            validarCabecalho(canal, numeroConta);
+        }
+
+        List<FileChannel> despejados = new ArrayList<>();
+        List<ReentrantLock> travasDespejados = new ArrayList<>();
+        travaMapas.lock();
+        try {
+            canais.put(numeroConta, canal);
+            Iterator<Map.Entry<String, FileChannel>> maisAntigos = canais.entrySet().iterator();
+            while (canais.size() > MAX_CANAIS_ABERTOS && maisAntigos.hasNext()) {
+                Map.Entry<String, FileChannel> antigo = maisAntigos.next();
+                ReentrantLock travaAntigo = travas.trava(antigo.getKey());
+                if (antigo.getKey().equals(numeroConta) || !travaAntigo.tryLock()) continue;
+                maisAntigos.remove();
+                despejados.add(antigo.getValue());
+                travasDespejados.add(travaAntigo);
+            }
+        } finally {
+            travaMapas.unlock();
+        }
+        for (int i = 0; i < despejados.size(); i++) {
+            try {
+                fecharCanal(despejados.get(i));
+            } finally {
+                travasDespejados.get(i).unlock();
+            }
+        }
+        return canal;
+    }
+
+    private void escreverCabecalho(FileChannel canal) throws IOException {
+        ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+        escreverCabecalho(cabecalho);
+        cabecalho.flip();
+        canal.write(cabecalho, 0);
+    }
+
+    private static void escreverCabecalho(ByteBuffer buffer) {
+        int inicio = buffer.position();
+        buffer.putInt(MAGIC).putShort(VERSAO).putShort((short) TAMANHO_REGISTRO);
+        buffer.position(inicio + TAMANHO_CABECALHO);
+    }
+
+    private void validarCabecalho(FileChannel canal, String numeroConta) throws IOException {
+        ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+        canal.read(cabecalho, 0);
+        cabecalho.flip();
+        if (cabecalho.getInt() != MAGIC) {
+            throw new IOException("Journal inválido para a conta " + numeroConta);
+        }
+        if (cabecalho.getShort() != VERSAO || cabecalho.getShort() != TAMANHO_REGISTRO) {
+            throw new IOException("Journal da conta " + numeroConta
+                    + " está em formato antigo; execute MigradorDados");
+        }
+    }
+
+    /**
+     * Força o disco antes de fechar: o canal pode continuar em pendentesFsync, e sincronizarAte
+     * ignora canais já fechados
+     */
+    private void fecharCanal(FileChannel canal) {
+        try {
+            canal.force(false);
+            canal.close();
+        } catch (IOException e) {
+            Log.erro("Erro ao fechar journal: %s", e.getMessage());
+        }
+    }
+
+    private Path arquivo(String numeroConta) {
+        return diretorio.resolve(numeroConta + EXTENSAO);
+    }
+
+    private Path arquivoCompactado(String numeroConta) {
+        return diretorio.resolve(numeroConta + EXTENSAO_ARQUIVO);
+    }
+
+    /**
+     * Recebe, uma por vez, as transações entregues por percorrer
+     */
+    public interface Destino {
+        void receber(Transacao transacao) throws IOException;
+    }
+
+    /**
+     * Registros de tamanho fixo percorridos por consultar, no segmento ou no arquivo compactado
+     */
+    private interface Registros {
+        int quantidade();
+
+        /**
+         * Buffer com até quantidade registros a partir do índice, começando na posição 0
+         * Pode trazer menos registros (no fim de um bloco do arquivo compactado, por exemplo)
+         */
+        ByteBuffer ler(int indice, int quantidade) throws IOException;
+
+        /**
+         * Registro a partir do qual procurar a primeira transação com data >= data informada
+         */
+        int inicioDaBusca(long data) throws IOException;
+    }
+
+    private class RegistrosSegmento implements Registros {
+        private final String numeroConta;
+        private final FileChannel canal;
+        private final int quantidade;
+
+        RegistrosSegmento(String numeroConta, FileChannel canal) throws IOException {
+            this.numeroConta = numeroConta;
+            this.canal = canal;
+            this.quantidade = (int) ((canal.size() - TAMANHO_CABECALHO) / TAMANHO_REGISTRO);
+        }
+
+        @Override
+        public int quantidade() {
+            return quantidade;
+        }
+
+        @Override
+        public ByteBuffer ler(int indice, int quantidade) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(quantidade * TAMANHO_REGISTRO);
+            long posicao = TAMANHO_CABECALHO + (long) indice * TAMANHO_REGISTRO;
+            while (buffer.hasRemaining()) {
+                if (canal.read(buffer, posicao + buffer.position()) <= 0) break;
+            }
+            return buffer.clear();
+        }
+
+        @Override
+        public int inicioDaBusca(long data) throws IOException {
+            return indice(numeroConta, canal, quantidade).inicioDoBloco(data);
+        }
+    }
+
+    /**
+     * Registros do arquivo compactado, descomprimidos bloco a bloco conforme são percorridos
+     * A busca por data usa o índice de blocos; só o último bloco descomprimido fica em memória
+     */
+    private static class RegistrosArquivados implements Registros {
+        private final ArquivoTransacoes arquivo;
+        private int blocoAtual = -1;
+        private ByteBuffer registros;
+
+        RegistrosArquivados(ArquivoTransacoes arquivo) {
+            this.arquivo = arquivo;
+        }
+
+        @Override
+        public int quantidade() {
+            return arquivo.quantidade();
+        }
+
+        @Override
+        public ByteBuffer ler(int indice, int quantidade) throws IOException {
+            int bloco = arquivo.blocoDoRegistro(indice);
+            if (bloco != blocoAtual) {
+                registros = arquivo.lerBloco(bloco);
+                blocoAtual = bloco;
+            }
+            int inicio = indice - arquivo.primeiroRegistro(bloco);
+            int lidos = Math.min(quantidade, arquivo.registros(bloco) - inicio);
+            return registros.slice(inicio * TAMANHO_REGISTRO, lidos * TAMANHO_REGISTRO);
+        }
+
+        @Override
+        public int inicioDaBusca(long data) {
+            return arquivo.primeiroRegistro(arquivo.blocoDaData(data));
+        }
+    }
+}
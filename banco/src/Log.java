@@ -0,0 +1,119 @@
+import java.io.PrintStream;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log assíncrono com níveis, usado pela persistência e pelo banco no lugar do System.out
+ * Quem registra só confere o nível e põe a mensagem numa fila; a formatação e a escrita no
+ * console acontecem numa thread própria, fora das travas e do caminho das operações.
+ * Com a fila cheia, a mensagem é descartada e contada (banco_log_descartadas_total).
+ * O nível vem de -Dbanco.log.nivel (ERRO, AVISO, INFO, DEBUG ou DESLIGADO; padrão INFO):
+ * as mensagens por operação, como "Conta salva com sucesso", são DEBUG
+ */
+public final class Log {
+    public enum Nivel { DESLIGADO, ERRO, AVISO, INFO, DEBUG }
+
+    private static final int CAPACIDADE_FILA = Integer.getInteger("banco.log.fila", 8192);
+    private static final DateTimeFormatter HORA = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+
+    private static volatile Nivel nivel = Nivel.valueOf(System.getProperty("banco.log.nivel", "INFO").toUpperCase());
+    private static final BlockingQueue<Registro> fila = new ArrayBlockingQueue<>(CAPACIDADE_FILA);
+    private static final LongAdder descartadas = RegistroMetricas.getInstance()
+            .contador("banco_log_descartadas_total", "Mensagens de log descartadas com a fila cheia");
+
+    static {
+        Thread escritor = new Thread(Log::escrever, "log-assincrono");
+        escritor.setDaemon(true);
+        escritor.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::esvaziar, "esvaziar-log"));
+    }
+
+    private Log() {
+    }
+
+    public static Nivel getNivel() {
+        return nivel;
+    }
+
+    public static void setNivel(Nivel novo) {
+        nivel = novo;
+    }
+
+    public static boolean ativo(Nivel verificado) {
+        return verificado != Nivel.DESLIGADO && verificado.ordinal() <= nivel.ordinal();
+    }
+
+    /**
+     * As mensagens usam o formato de String.format, aplicado só na thread do log
+     */
+    public static void erro(String formato, Object... argumentos) {
+        registrar(Nivel.ERRO, formato, argumentos);
+    }
+
+    public static void aviso(String formato, Object... argumentos) {
+        registrar(Nivel.AVISO, formato, argumentos);
+    }
+
+    public static void info(String formato, Object... argumentos) {
+        registrar(Nivel.INFO, formato, argumentos);
+    }
+
+    public static void debug(String formato, Object... argumentos) {
+        registrar(Nivel.DEBUG, formato, argumentos);
+    }
+
+    /**
+     * Escreve na hora as mensagens ainda na fila (no encerramento do processo, por exemplo)
+     */
+    public static synchronized void esvaziar() {
+        List<Registro> pendentes = new ArrayList<>();
+        fila.drainTo(pendentes);
+        pendentes.forEach(Log::imprimir);
+    }
+
+    private static void registrar(Nivel nivelMensagem, String formato, Object[] argumentos) {
+        if (!ativo(nivelMensagem)) return;
+        if (!fila.offer(new Registro(nivelMensagem, LocalTime.now(), formato, argumentos))) {
+            descartadas.increment();
+        }
+    }
+
+    private static void escrever() {
+        while (true) {
+            try {
+                Registro registro = fila.take();
+                synchronized (Log.class) {
+                    imprimir(registro);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private static void imprimir(Registro registro) {
+        PrintStream saida = registro.nivel == Nivel.ERRO || registro.nivel == Nivel.AVISO ? System.err : System.out;
+        String mensagem = registro.argumentos.length == 0 ? registro.formato
+                : String.format(registro.formato, registro.argumentos);
+        saida.println(HORA.format(registro.hora) + " " + registro.nivel + " " + mensagem);
+    }
+
+    private static final class Registro {
+        final Nivel nivel;
+        final LocalTime hora;
+        final String formato;
+        final Object[] argumentos;
+
+        Registro(Nivel nivel, LocalTime hora, String formato, Object[] argumentos) {
+            this.nivel = nivel;
+            this.hora = hora;
+            this.formato = formato;
+            this.argumentos = argumentos;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Log de recuperação (write-ahead log) da tabela de contas e do journal
+ * Cada gravação vira uma entrada do log, que é sincronizada em disco antes de a tabela e
+ * o journal serem alterados. As transações são gravadas em posições reservadas no log,
+ * então reaplicar uma entrada é idempotente.
+ * O checkpoint força a tabela e o journal, grava o último número de sequência aplicado
+ * em um arquivo temporário renomeado atomicamente e esvazia o log: na inicialização,
+ * só as entradas posteriores ao último checkpoint são reaplicadas
+ *
+ * Entrada: tamanho(4) crc32(4) sequência(8) e o conteúdo:
+ * contas(4) [número(4) slot(64)]... grupos(4) [número(4) posição(8) quantidade(4) registros(32 cada)]...
+ */
+public class LogRecuperacao {
+    public static final String ARQUIVO_LOG = "wal.log";
+    public static final String ARQUIVO_CHECKPOINT = "wal.checkpoint";
+
+    private static final int MAGIC_CHECKPOINT = 0x57434B50; // "WCKP"
+    private static final int TAMANHO_CABECALHO_ENTRADA = 16;
+    private static final int INTERVALO_CHECKPOINT = Integer.getInteger("banco.wal.checkpoint", 10_000);
+
+    private final Path arquivoLog;
+    private final Path arquivoCheckpoint;
+    private final TabelaContas tabela;
+    private final JournalTransacoes journal;
+    private final CodecTransacao codec;
+    private final FileChannel canal;
+
+    // Checkpoints esperam as gravações em andamento terminarem de ser aplicadas
+    private final ReadWriteLock travaCheckpoint = new ReentrantReadWriteLock();
+    private final AtomicBoolean checkpointEmAndamento = new AtomicBoolean();
+
+    // Protegidos por trava (ReentrantLock, não o monitor: o fsync do checkpoint não prende threads virtuais)
+    private final ReentrantLock trava = new ReentrantLock();
+    private long ultimaSequencia;
+    private long posicaoEscrita;
+    private int entradasDesdeCheckpoint;
+    private final Map<String, Long> proximaPosicao = new HashMap<>();
+
+    // Protegido por travaFsync: group commit, um fsync cobre todas as entradas já escritas
+    private final ReentrantLock travaFsync = new ReentrantLock();
+    private long duravelAte;
+
+    public LogRecuperacao(Path diretorio, TabelaContas tabela, JournalTransacoes journal) {
+        this.arquivoLog = diretorio.resolve(ARQUIVO_LOG);
+        this.arquivoCheckpoint = diretorio.resolve(ARQUIVO_CHECKPOINT);
+        this.tabela = tabela;
+        this.journal = journal;
+        this.codec = journal.codec();
+        try {
+            this.canal = FileChannel.open(arquivoLog,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao abrir log de recuperação: " + arquivoLog, e);
+        }
+    }
+
+    /**
+     * Reaplica as entradas gravadas depois do último checkpoint e retorna quantas foram reaplicadas
+     * Uma entrada incompleta no fim do log (queda durante a gravação) é descartada
+     */
+    public int recuperar() {
+        int reaplicadas = 0;
+        trava.lock();
+        try {
+            try {
+                reaplicadas = reaplicarDesdeCheckpoint();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Erro ao recuperar o log " + arquivoLog, e);
+            }
+        } finally {
+            trava.unlock();
+        }
+        checkpoint();
+        return reaplicadas;
+    }
+
+    private int reaplicarDesdeCheckpoint() throws IOException {
+        long checkpoint = lerCheckpoint();
+        ultimaSequencia = checkpoint;
+
+        ByteBuffer conteudo = ByteBuffer.allocate((int) canal.size());
+        while (conteudo.hasRemaining()) {
+            if (canal.read(conteudo, conteudo.position()) <= 0) break;
+        }
+        conteudo.flip();
+
+        int reaplicadas = 0;
+        while (conteudo.remaining() >= TAMANHO_CABECALHO_ENTRADA) {
+            int inicio = conteudo.position();
+            int tamanho = conteudo.getInt();
+            int crc = conteudo.getInt();
+            if (tamanho < 8 || conteudo.remaining() < tamanho || crc(conteudo, inicio + 8, tamanho) != crc) {
+                conteudo.position(inicio);
+                break;
+            }
+            long sequencia = conteudo.getLong();
+            if (sequencia > checkpoint) {
+                reaplicar(conteudo);
+                reaplicadas++;
+            }
+            conteudo.position(inicio + 8 + tamanho);
+            ultimaSequencia = Math.max(ultimaSequencia, sequencia);
+        }
+        canal.truncate(conteudo.position());
+        posicaoEscrita = conteudo.position();
+        duravelAte = ultimaSequencia;
+        return reaplicadas;
+    }
+
+    /**
+     * Registra as alterações no log, espera a entrada chegar ao disco e só então chama
+     * aplicar com as posições reservadas no journal para as transações de cada conta
+     */
+    public void registrar(Collection<ContaBancaria> contas, Map<String, List<Transacao>> transacoes,
+                          Consumer<Map<String, Long>> aplicar) {
+        if (contas.isEmpty() && transacoes.isEmpty()) return;
+
+        travaCheckpoint.readLock().lock();
+        try {
+            long sequencia;
+            Map<String, Long> posicoes;
+            trava.lock();
+            try {
+                posicoes = reservar(transacoes);
+                sequencia = ++ultimaSequencia;
+                ByteBuffer entrada = codificar(sequencia, contas, transacoes, posicoes);
+                try {
+                    while (entrada.hasRemaining()) {
+                        posicaoEscrita += canal.write(entrada, posicaoEscrita);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Erro ao gravar no log de recuperação", e);
+                }
+                entradasDesdeCheckpoint++;
+            } finally {
+                trava.unlock();
+            }
+            tornarDuravel(sequencia);
+            aplicar.accept(posicoes);
+        } finally {
+            travaCheckpoint.readLock().unlock();
+        }
+
+        if (precisaCheckpoint() && checkpointEmAndamento.compareAndSet(false, true)) {
+            try {
+                checkpoint();
+            } finally {
+                checkpointEmAndamento.set(false);
+            }
+        }
+    }
+
+    /**
+     * Força a tabela e o journal, grava o checkpoint atomicamente e esvazia o log
+     */
+    public void checkpoint() {
+        checkpoint(() -> { });
+    }
+
+    /**
+     * Checkpoint seguido de uma manutenção que reescreve a tabela ou o journal (como o arquivamento),
+     * executada com o log vazio, sem posições reservadas e com as gravações bloqueadas
+     */
+    public void checkpoint(Runnable comLogVazio) {
+        travaCheckpoint.writeLock().lock();
+        try {
+            tabela.sincronizar();
+            journal.sincronizar();
+            trava.lock();
+            try {
+                gravarCheckpoint(ultimaSequencia);
+                canal.truncate(0);
+                canal.force(true);
+                posicaoEscrita = 0;
+                entradasDesdeCheckpoint = 0;
+                proximaPosicao.clear();
+            } finally {
+                trava.unlock();
+            }
+            comLogVazio.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao gravar checkpoint do log de recuperação", e);
+        } finally {
+            travaCheckpoint.writeLock().unlock();
+        }
+    }
+
+    public void fechar() {
+        try {
+            checkpoint();
+            canal.close();
+        } catch (IOException | UncheckedIOException e) {
+            Log.erro("Erro ao fechar log de recuperação: %s", e.getMessage());
+        }
+    }
+
+    public long tamanho() {
+        trava.lock();
+        try {
+            return posicaoEscrita;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private boolean precisaCheckpoint() {
+        trava.lock();
+        try {
+            return entradasDesdeCheckpoint >= INTERVALO_CHECKPOINT;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Reserva, para cada conta, a posição do journal onde suas transações serão gravadas
+     */
+    private Map<String, Long> reservar(Map<String, List<Transacao>> transacoes) {
+        Map<String, Long> posicoes = new LinkedHashMap<>();
+        transacoes.forEach((numeroConta, lista) -> {
+            long posicao = proximaPosicao.computeIfAbsent(numeroConta, journal::tamanhoSegmento);
+            posicoes.put(numeroConta, posicao);
+            proximaPosicao.put(numeroConta, posicao + (long) lista.size() * JournalTransacoes.TAMANHO_REGISTRO);
+        });
+        return posicoes;
+    }
+
+    private void tornarDuravel(long sequencia) {
+        EventosBanco.travar(travaFsync, "fsync-log", null);
+        try {
+            if (duravelAte >= sequencia) return;
+            long escritaAte;
+            trava.lock();
+            try {
+                escritaAte = ultimaSequencia;
+            } finally {
+                trava.unlock();
+            }
+            EventosBanco.Sincronizar evento = new EventosBanco.Sincronizar();
+            evento.begin();
+            try {
+                canal.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Erro ao sincronizar o log de recuperação", e);
+            }
+            duravelAte = escritaAte;
+            if (evento.shouldCommit()) {
+                evento.arquivo = "recuperacao";
+                evento.canais = 1;
+                evento.commit();
+            }
+        } finally {
+            travaFsync.unlock();
+        }
+    }
+
+    private ByteBuffer codificar(long sequencia, Collection<ContaBancaria> contas,
+                                 Map<String, List<Transacao>> transacoes, Map<String, Long> posicoes) {
+        int tamanho = 8 + 4 + contas.size() * (4 + TabelaContas.TAMANHO_SLOT) + 4;
+        for (List<Transacao> lista : transacoes.values()) {
+            tamanho += 4 + 8 + 4 + lista.size() * JournalTransacoes.TAMANHO_REGISTRO;
+        }
+
+        ByteBuffer entrada = ByteBuffer.allocate(8 + tamanho);
+        entrada.putInt(tamanho).putInt(0).putLong(sequencia);
+        entrada.putInt(contas.size());
+        for (ContaBancaria conta : contas) {
+            entrada.putInt(Integer.parseInt(conta.getNumeroConta()));
+            TabelaContas.codificar(conta, entrada.slice(entrada.position(), TabelaContas.TAMANHO_SLOT));
+            entrada.position(entrada.position() + TabelaContas.TAMANHO_SLOT);
+        }
+        entrada.putInt(transacoes.size());
+        transacoes.forEach((numeroConta, lista) -> {
+            entrada.putInt(Integer.parseInt(numeroConta));
+            entrada.putLong(posicoes.get(numeroConta));
+            entrada.putInt(lista.size());
+            lista.forEach(transacao -> codec.codificar(transacao, entrada));
+        });
+        entrada.putInt(4, crc(entrada, 8, tamanho));
+        entrada.flip();
+        return entrada;
+    }
+
+    private void reaplicar(ByteBuffer conteudo) {
+        int contas = conteudo.getInt();
+        for (int i = 0; i < contas; i++) {
+            String numeroConta = CodecTransacao.intParaNumero(conteudo.getInt());
+            ByteBuffer slot = conteudo.slice(conteudo.position(), TabelaContas.TAMANHO_SLOT);
+            tabela.gravar(TabelaContas.decodificar(numeroConta, slot));
+            conteudo.position(conteudo.position() + TabelaContas.TAMANHO_SLOT);
+        }
+        int grupos = conteudo.getInt();
+        for (int i = 0; i < grupos; i++) {
+            String numeroConta = CodecTransacao.intParaNumero(conteudo.getInt());
+            long posicao = conteudo.getLong();
+            int quantidade = conteudo.getInt();
+            List<Transacao> lista = new ArrayList<>(quantidade);
+            for (int j = 0; j < quantidade; j++) {
+                lista.add(codec.decodificar(conteudo));
+            }
+            // Registros que já chegaram inteiros ao journal não são gravados de novo
+            if (journal.tamanhoSegmento(numeroConta) < posicao + (long) quantidade * JournalTransacoes.TAMANHO_REGISTRO) {
+                journal.gravarEm(numeroConta, posicao, lista);
+            }
+        }
+    }
+
+    private long lerCheckpoint() throws IOException {
+        if (!Files.exists(arquivoCheckpoint)) return 0;
+        ByteBuffer conteudo = ByteBuffer.wrap(Files.readAllBytes(arquivoCheckpoint));
+        if (conteudo.remaining() < 16 || conteudo.getInt() != MAGIC_CHECKPOINT
+                || crc(conteudo, 4, 8) != conteudo.getInt(12)) {
+            throw new IOException("Checkpoint inválido: " + arquivoCheckpoint);
+        }
+        return conteudo.getLong(4);
+    }
+
+    private void gravarCheckpoint(long sequencia) throws IOException {
+        ByteBuffer conteudo = ByteBuffer.allocate(16);
+        conteudo.putInt(MAGIC_CHECKPOINT).putLong(sequencia);
+        conteudo.putInt(crc(conteudo, 4, 8));
+        conteudo.flip();
+
+        Path temporario = arquivoCheckpoint.resolveSibling(ARQUIVO_CHECKPOINT + ".tmp");
+        try (FileChannel temp = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (conteudo.hasRemaining()) {
+                temp.write(conteudo);
+            }
+            temp.force(false);
+        }
+        Files.move(temporario, arquivoCheckpoint,
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int crc(ByteBuffer buffer, int inicio, int tamanho) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(inicio, tamanho));
+        return (int) crc.getValue();
+    }
+}
@@ -1,4 +1,6 @@
 import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 /**
@@ -14,6 +16,7 @@ public class Main {
     private static final String VERSION = "1.0.0";
     private static final String CURRENT_DATE = "2024-12-22 18:23:58";
     private static final String CURRENT_USER = "perrijuan";
+    static final int PORTA_PADRAO = 7070;
 
     // Componentes principais
     private static final Scanner scanner = new Scanner(System.in);
@@ -22,6 +25,18 @@ public class Main {
     public static void main(String[] args) {
         showWelcomeMessage();
 
+        // Modo servidor sem interface: java Main --servidor [porta]
+        if (args.length > 0 && "--servidor".equals(args[0])) {
+            startServerMode(args.length > 1 ? Integer.parseInt(args[1]) : PORTA_PADRAO);
+            return;
+        }
+
+        // Gerador de carga contra o armazenamento configurado: java -Dbanco.carga.threads=32 Main --carga
+        if (args.length > 0 && "--carga".equals(args[0])) {
+            startLoadMode();
+            return;
+        }
+
         try {
             int mode = selectOperationMode();
             if (mode == 1) {
@@ -35,6 +50,53 @@ public class Main {
         }
     }
 
+    /**
+     * Inicia o ServidorBanco; o processo segue ativo até ser encerrado (Ctrl+C)
+     */
+    private static void startServerMode(int porta) {
+        try {
+            ServidorBanco servidor = new ServidorBanco(bank, porta);
+            Runtime.getRuntime().addShutdownHook(new Thread(servidor::encerrar, "encerrar-servidor"));
+            System.out.println("Servidor do banco ouvindo na porta " + servidor.getPorta()
+                    + " (" + ServidorBanco.REATORES_PADRAO + " reatores, "
+                    + ServidorBanco.TRABALHADORES_PADRAO + " trabalhadores)");
+
+            // Métricas no formato do Prometheus: -Dbanco.metricas.porta=9464 expõe /metrics
+            Integer portaMetricas = Integer.getInteger("banco.metricas.porta");
+            if (portaMetricas != null) {
+                ServidorMetricas metricas = new ServidorMetricas(portaMetricas);
+                Runtime.getRuntime().addShutdownHook(new Thread(metricas::encerrar, "encerrar-metricas"));
+                System.out.println("Métricas em http://localhost:" + metricas.getPorta() + "/metrics");
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao iniciar o servidor: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Executa o GeradorCarga e imprime o relatório de vazão e latência
+     * Com -Dbanco.carga.histograma=arquivo.hgrm, grava também a distribuição de percentis
+     */
+    private static void startLoadMode() {
+        GeradorCarga.Configuracao configuracao = GeradorCarga.Configuracao.dasPropriedades();
+        GeradorCarga carga = new GeradorCarga(bank, configuracao);
+        System.out.println("Executando carga: " + configuracao);
+        carga.criarContas();
+        GeradorCarga.Resultado resultado = carga.executar();
+        System.out.print(resultado);
+
+        String histograma = System.getProperty("banco.carga.histograma");
+        if (histograma != null) {
+            try {
+                resultado.gravarDistribuicao(Paths.get(histograma));
+                System.out.println("Distribuição de latências gravada em " + histograma);
+            } catch (IOException e) {
+                System.err.println("Erro ao gravar histograma: " + e.getMessage());
+            }
+        }
+    }
+
     /**
      * Exibe mensagem de boas-vindas com informações do sistema
      */
@@ -116,14 +178,19 @@ public class Main {
     }
 
     /**
-     * Cria contas padrão para teste
+     * Cria as contas padrão para teste que ainda não existem
      */
     private static void createDefaultAccounts() {
+        createDefaultAccount("12345", "NORMAL", "usuario1", "1234");
+        createDefaultAccount("67890", "VIP", "usuario2", "5678");
+    }
+
+    private static void createDefaultAccount(String account, String type, String login, String password) {
+        if (bank.buscarConta(account) != null) return;
         try {
-            bank.criarConta("12345", "NORMAL", "usuario1", "1234");
-            bank.criarConta("67890", "VIP", "usuario2", "5678");
-        } catch (Exception e) {
-            // Ignora se as contas já existem
+            bank.criarConta(account, type, login, password);
+        } catch (IllegalStateException e) {
+            // Criada por outra thread entre a verificação e a criação: já existe, que é o que importa
         }
     }
 
@@ -132,41 +199,43 @@ public class Main {
      */
     private static void runConsoleLoop() {
         while (true) {
-            if (performLogin()) {
+            SessaoBancaria sessao = performLogin();
+            if (sessao != null) {
+                // Um só usuário por vez no console: o menu opera direto na sessão aberta no login
                 boolean keepRunning = true;
                 while (keepRunning) {
-                    showMenu();
+                    showMenu(sessao);
                     int option = readOption();
-                    keepRunning = processOption(option);
+                    keepRunning = processOption(sessao, option);
                 }
             }
         }
     }
 
     /**
-     * Realiza o login do usuário
+     * Realiza o login do usuário e retorna a sessão aberta, ou null se as credenciais forem inválidas
      */
-    private static boolean performLogin() {
+    private static SessaoBancaria performLogin() {
         System.out.println("\n=== LOGIN ===");
         System.out.print("Número da Conta (5 dígitos): ");
         String account = scanner.nextLine();
         System.out.print("Senha (4 dígitos): ");
         String password = scanner.nextLine();
 
-        if (bank.login(account, password)) {
+        SessaoBancaria sessao = bank.abrirSessao(account, password);
+        if (sessao != null) {
             System.out.println("Login realizado com sucesso!");
-            return true;
         } else {
             System.out.println("Credenciais inválidas!");
-            return false;
         }
+        return sessao;
     }
 
     /**
      * Exibe o menu principal
      */
-    private static void showMenu() {
-        ContaBancaria account = bank.getContaAtual();
+    private static void showMenu(SessaoBancaria sessao) {
+        ContaBancaria account = sessao.getConta();
         System.out.println("\n=== MENU PRINCIPAL ===");
         System.out.printf("Conta: %s (%s)%n",
                 account.getNumeroConta(), account.getTipoUsuario());
@@ -179,6 +248,7 @@ public class Main {
             System.out.println("6. Solicitar Gerente");
         }
         System.out.println("7. Trocar Usuário");
+        System.out.println("8. Exportar Extrato");
         System.out.println("0. Sair");
     }
 
@@ -197,7 +267,7 @@ public class Main {
     /**
      * Processa a opção escolhida
      */
-    private static boolean processOption(int option) {
+    private static boolean processOption(SessaoBancaria sessao, int option) {
         try {
             return switch (option) {
                 case 0 -> {
@@ -205,16 +275,17 @@ public class Main {
                     System.exit(0);
                     yield false;
                 }
-                case 1 -> { showBalance(); yield true; }
-                case 2 -> { showStatement(); yield true; }
-                case 3 -> { performWithdrawal(); yield true; }
-                case 4 -> { performDeposit(); yield true; }
-                case 5 -> { performTransfer(); yield true; }
-                case 6 -> { requestManager(); yield true; }
+                case 1 -> { showBalance(sessao); yield true; }
+                case 2 -> { showStatement(sessao); yield true; }
+                case 3 -> { performWithdrawal(sessao); yield true; }
+                case 4 -> { performDeposit(sessao); yield true; }
+                case 5 -> { performTransfer(sessao); yield true; }
+                case 6 -> { requestManager(sessao); yield true; }
                 case 7 -> {
-                    bank.logout();
+                    sessao.encerrar();
                     yield false;
                 }
+                case 8 -> { exportStatement(sessao); yield true; }
                 default -> {
                     System.out.println("Opção inválida!");
                     yield true;
@@ -229,53 +300,77 @@ public class Main {
     /**
      * Métodos para operações bancárias
      */
-    private static void showBalance() {
+    private static void showBalance(SessaoBancaria sessao) {
         System.out.printf("%nSaldo atual: R$ %.2f%n",
-                bank.getContaAtual().getSaldo());
+                sessao.getConta().getSaldo());
     }
 
-    private static void showStatement() {
-        bank.getExtratoObserver().imprimirExtrato();
+    private static void showStatement(SessaoBancaria sessao) {
+        sessao.getExtratoObserver().imprimirExtrato();
     }
 
-    private static void performWithdrawal() {
+    private static void performWithdrawal(SessaoBancaria sessao) {
         System.out.print("Valor para saque: R$ ");
         try {
             float amount = Float.parseFloat(scanner.nextLine().trim());
-            bank.saque(amount);
+            sessao.saque(amount);
             System.out.println("Saque realizado com sucesso!");
         } catch (NumberFormatException e) {
             System.out.println("Valor inválido!");
         }
     }
 
-    private static void performDeposit() {
+    private static void performDeposit(SessaoBancaria sessao) {
         System.out.print("Valor para depósito: R$ ");
         try {
             float amount = Float.parseFloat(scanner.nextLine().trim());
-            bank.deposito(amount);
+            sessao.deposito(amount);
             System.out.println("Depósito realizado com sucesso!");
         } catch (NumberFormatException e) {
             System.out.println("Valor inválido!");
         }
     }
 
-    private static void performTransfer() {
+    private static void performTransfer(SessaoBancaria sessao) {
         try {
             System.out.print("Conta destino: ");
             String targetAccount = scanner.nextLine();
             System.out.print("Valor: R$ ");
             float amount = Float.parseFloat(scanner.nextLine().trim());
 
-            bank.transferencia(targetAccount, amount);
+            sessao.transferencia(targetAccount, amount);
             System.out.println("Transferência realizada com sucesso!");
         } catch (NumberFormatException e) {
             System.out.println("Valor inválido!");
         }
     }
 
-    private static void requestManager() {
-        if (!bank.getContaAtual().isVip()) {
+    private static void exportStatement(SessaoBancaria sessao) {
+        System.out.println("Formato: 1. CSV  2. Largura fixa  3. Texto para impressão");
+        ExportadorExtrato.Formato format = switch (scanner.nextLine().trim()) {
+            case "1" -> ExportadorExtrato.Formato.CSV;
+            case "2" -> ExportadorExtrato.Formato.LARGURA_FIXA;
+            case "3" -> ExportadorExtrato.Formato.TEXTO;
+            default -> null;
+        };
+        if (format == null) {
+            System.out.println("Formato inválido!");
+            return;
+        }
+
+        String account = sessao.getNumeroConta();
+        String file = "extrato_" + account + format.getExtensao();
+        try {
+            long exported = ExportadorExtrato.doBanco()
+                    .exportar(ConsultaExtrato.daConta(account), format, Paths.get(file));
+            System.out.println(exported + " transações exportadas para " + file);
+        } catch (IOException e) {
+            System.out.println("Erro ao exportar extrato: " + e.getMessage());
+        }
+    }
+
+    private static void requestManager(SessaoBancaria sessao) {
+        if (!sessao.getConta().isVip()) {
             System.out.println("Apenas contas VIP podem solicitar gerente!");
             return;
         }
@@ -285,7 +380,7 @@ public class Main {
 
         if (scanner.nextLine().trim().equalsIgnoreCase("S")) {
             try {
-                bank.solicitarGerente();
+                sessao.solicitarGerente();
                 System.out.println("Gerente solicitado com sucesso!");
             } catch (Exception e) {
                 System.out.println("Erro ao solicitar gerente: " + e.getMessage());
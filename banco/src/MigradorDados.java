@@ -0,0 +1,165 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ferramenta de migração dos arquivos do banco para os formatos binários atuais
+ * - contas.dat (serialização Java) -> contas.tbl
+ * - transacoes/<conta>.dat (serialização Java) -> transacoes/<conta>.jnl
+ * - journals da versão 1 (registros de 96 bytes com descrição embutida) -> versão atual
+ *
+ * Deve ser executada com o banco parado:
+ *   java MigradorDados [diretório de dados]
+ */
+public class MigradorDados {
+    private static final String SUFIXO_MIGRADO = ".migrado";
+
+    // Layout do journal versão 1
+    private static final short VERSAO_1 = 1;
+    private static final int TAMANHO_REGISTRO_V1 = 96;
+
+    private final Path diretorioDados;
+    private final Path diretorioTransacoes;
+    private long bytesAntes;
+    private long bytesDepois;
+    private int arquivosConvertidos;
+
+    public MigradorDados(Path diretorioDados) {
+        this.diretorioDados = diretorioDados;
+        this.diretorioTransacoes = diretorioDados.resolve("transacoes");
+    }
+
+    public static void main(String[] args) {
+        Path diretorio = Paths.get(args.length > 0 ? args[0] : "bank_data");
+        try {
+            new MigradorDados(diretorio).migrar();
+        } catch (Exception e) {
+            System.err.println("Erro na migração: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    public void migrar() throws IOException, ClassNotFoundException {
+        Files.createDirectories(diretorioTransacoes);
+        migrarContas();
+        migrarTransacoes();
+
+        System.out.println("Arquivos convertidos: " + arquivosConvertidos);
+        System.out.printf("Tamanho antes: %d bytes | depois: %d bytes%n", bytesAntes, bytesDepois);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void migrarContas() throws IOException, ClassNotFoundException {
+        Path legado = diretorioDados.resolve("contas.dat");
+        if (!Files.exists(legado)) return;
+
+        List<ContaBancaria> contas;
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(legado.toFile()))) {
+            contas = (List<ContaBancaria>) ois.readObject();
+        }
+
+        TabelaContas tabela = new TabelaContas(diretorioDados.resolve("contas.tbl"));
+        try {
+            for (ContaBancaria conta : contas) {
+                // A tabela é a fonte atual: contas já presentes nela não são sobrescritas
+                if (!tabela.existe(conta.getNumeroConta())) {
+                    tabela.gravar(conta);
+                }
+            }
+        } finally {
+            tabela.fechar();
+        }
+
+        bytesAntes += Files.size(legado);
+        bytesDepois += (long) contas.size() * TabelaContas.TAMANHO_SLOT;
+        marcarMigrado(legado);
+        System.out.println("Contas migradas: " + contas.size());
+    }
+
+    private void migrarTransacoes() throws IOException, ClassNotFoundException {
+        File[] arquivos = diretorioTransacoes.toFile().listFiles((d, nome) ->
+                nome.endsWith(".dat") || nome.endsWith(JournalTransacoes.EXTENSAO));
+        if (arquivos == null) return;
+
+        JournalTransacoes journal = new JournalTransacoes(diretorioTransacoes);
+        try {
+            for (File arquivo : arquivos) {
+                String nome = arquivo.getName();
+                String numeroConta = nome.substring(0, nome.lastIndexOf('.'));
+                Path caminho = arquivo.toPath();
+
+                if (nome.endsWith(".dat")) {
+                    if (!journal.existe(numeroConta)) {
+                        converter(journal, numeroConta, caminho, lerSerializado(caminho));
+                    }
+                    marcarMigrado(caminho);
+                } else if (JournalTransacoes.lerVersao(caminho) == VERSAO_1) {
+                    converter(journal, numeroConta, caminho, lerJournalV1(caminho));
+                }
+            }
+        } finally {
+            journal.fechar();
+        }
+    }
+
+    private void converter(JournalTransacoes journal, String numeroConta, Path origem,
+                           List<Transacao> transacoes) throws IOException {
+        bytesAntes += Files.size(origem);
+        journal.substituirSegmento(numeroConta, transacoes);
+        bytesDepois += JournalTransacoes.TAMANHO_CABECALHO
+                + (long) transacoes.size() * JournalTransacoes.TAMANHO_REGISTRO;
+        arquivosConvertidos++;
+        System.out.println("Conta " + numeroConta + ": " + transacoes.size() + " transações convertidas");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Transacao> lerSerializado(Path arquivo) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(arquivo.toFile()))) {
+            return (List<Transacao>) ois.readObject();
+        }
+    }
+
+    /**
+     * Lê um journal da versão 1: data(8) tipo(1) centavos(8) origem(4) destino(4) tamanho(2) descrição(64)
+     */
+    private static List<Transacao> lerJournalV1(Path arquivo) throws IOException {
+        ByteBuffer conteudo = ByteBuffer.wrap(Files.readAllBytes(arquivo));
+        conteudo.position(JournalTransacoes.TAMANHO_CABECALHO);
+
+        List<Transacao> transacoes = new ArrayList<>();
+        while (conteudo.remaining() >= TAMANHO_REGISTRO_V1) {
+            int inicio = conteudo.position();
+            LocalDateTime data = LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(conteudo.getLong()), ZoneOffset.UTC);
+            Transacao.TipoTransacao tipo = Transacao.TipoTransacao.values()[conteudo.get()];
+            long valor = conteudo.getLong();
+            String origem = CodecTransacao.intParaNumero(conteudo.getInt());
+            String destino = CodecTransacao.intParaNumero(conteudo.getInt());
+            byte[] descricao = new byte[conteudo.getShort()];
+            conteudo.get(descricao);
+            conteudo.position(inicio + TAMANHO_REGISTRO_V1);
+
+            transacoes.add(new Transacao(data, tipo, valor,
+                    new String(descricao, StandardCharsets.UTF_8), origem, destino));
+        }
+        return transacoes;
+    }
+
+    private static void marcarMigrado(Path arquivo) throws IOException {
+        Files.move(arquivo, arquivo.resolveSibling(arquivo.getFileName() + SUFIXO_MIGRADO),
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,119 @@
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Motor de transferências entre duas contas
+ * Trava as duas contas em ordem canônica (índice da faixa em TravasContas), então
+ * transferências simultâneas em sentidos opostos nunca entram em deadlock,
+ * e relê os saldos já com as travas adquiridas para não perder atualizações
+ */
+public class MotorTransferencia {
+    private final FileManagerSingleton fileManager;
+    private final TravasContas travas;
+    private final Consumer<Transacao> registrador;
+
+    public MotorTransferencia(FileManagerSingleton fileManager, TravasContas travas,
+                              Consumer<Transacao> registrador) {
+        this.fileManager = fileManager;
+        this.travas = travas;
+        this.registrador = registrador;
+    }
+
+    /**
+     * Taxa cobrada da conta origem: fixa para contas normais, percentual para VIP
+     */
+    public static long calcularTaxa(ContaBancaria origem, long valor) {
+        return origem.isVip()
+                ? Dinheiro.percentual(valor, BankSingleton.TAXA_TRANSFERENCIA_VIP)
+                : BankSingleton.TAXA_TRANSFERENCIA_NORMAL;
+    }
+
+    /**
+     * Valida limite e saldo da conta origem para a transferência
+     */
+    public static void validar(ContaBancaria origem, long valor, long taxa) {
+        if (!origem.isVip() && valor > BankSingleton.LIMITE_TRANSFERENCIA_NORMAL) {
+            throw new IllegalArgumentException("Limite de transferência excedido!");
+        }
+
+        if (!origem.isVip() && origem.getSaldoCentavos() < valor + taxa) {
+            throw new IllegalStateException("Saldo insuficiente!");
+        }
+    }
+
+    /**
+     * Executa a transferência (valor em centavos) e retorna a taxa cobrada
+     */
+    public long transferir(String numeroOrigem, String numeroDestino, long valor) {
+        if (valor <= 0) {
+            throw new IllegalArgumentException("Valor deve ser positivo!");
+        }
+
+        if (numeroOrigem.equals(numeroDestino)) {
+            throw new IllegalArgumentException("Não é possível transferir para a própria conta!");
+        }
+
+        if (fileManager.buscarConta(numeroDestino) == null) {
+            throw new IllegalArgumentException("Conta destino não encontrada!");
+        }
+
+        EventosBanco.Transferencia evento = new EventosBanco.Transferencia();
+        evento.begin();
+        ReentrantLock[] travadas = travas.travarEmOrdem(numeroOrigem, numeroDestino);
+        try {
+            return fileManager.executarOperacao(() -> {
+                ContaBancaria origem = fileManager.buscarConta(numeroOrigem);
+                ContaBancaria destino = fileManager.buscarConta(numeroDestino);
+                if (origem == null) {
+                    throw new IllegalArgumentException("Conta não encontrada!");
+                }
+
+                long taxa = calcularTaxa(origem, valor);
+                validar(origem, valor, taxa);
+                BankSingleton.lancarJuros(origem, registrador);
+                BankSingleton.lancarJuros(destino, registrador);
+
+                // Registra transferência e taxa
+                origem.setSaldoCentavos(Dinheiro.subtrair(origem.getSaldoCentavos(), valor + taxa));
+                destino.setSaldoCentavos(Dinheiro.somar(destino.getSaldoCentavos(), valor));
+
+                // Registra transações para ambas as contas
+                registrador.accept(new Transacao(
+                        Transacao.TipoTransacao.TRANSFERENCIA_ENVIADA,
+                        -valor,
+                        "Transferência enviada para " + numeroDestino,
+                        numeroOrigem,
+                        numeroDestino
+                ));
+
+                registrador.accept(new Transacao(
+                        Transacao.TipoTransacao.TAXA_TRANSFERENCIA,
+                        -taxa,
+                        "Taxa de transferência",
+                        numeroOrigem,
+                        null
+                ));
+
+                registrador.accept(new Transacao(
+                        Transacao.TipoTransacao.TRANSFERENCIA_RECEBIDA,
+                        valor,
+                        "Transferência recebida de " + numeroOrigem,
+                        numeroDestino,
+                        numeroOrigem
+                ));
+
+                fileManager.salvarConta(origem);
+                fileManager.salvarConta(destino);
+                return taxa;
+            });
+        } finally {
+            TravasContas.destravar(travadas);
+            if (evento.shouldCommit()) {
+                evento.origem = numeroOrigem;
+                evento.destino = numeroDestino;
+                evento.valor = valor;
+                evento.commit();
+            }
+        }
+    }
+}
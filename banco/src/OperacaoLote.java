@@ -0,0 +1,45 @@
+/**
+ * Operação submetida em lote ao banco (folha de pagamento, liquidações etc.)
+ */
+public class OperacaoLote {
+    public enum TipoOperacao {
+        DEPOSITO, SAQUE, TRANSFERENCIA
+    }
+
+    private final TipoOperacao tipo;
+    private final String contaOrigem;
+    private final String contaDestino;
+    private final long valorCentavos;
+
+    private OperacaoLote(TipoOperacao tipo, String contaOrigem, String contaDestino, float valor) {
+        this.tipo = tipo;
+        this.contaOrigem = contaOrigem;
+        this.contaDestino = contaDestino;
+        this.valorCentavos = Dinheiro.deReais(valor);
+    }
+
+    public static OperacaoLote deposito(String numeroConta, float valor) {
+        return new OperacaoLote(TipoOperacao.DEPOSITO, numeroConta, null, valor);
+    }
+
+    public static OperacaoLote saque(String numeroConta, float valor) {
+        return new OperacaoLote(TipoOperacao.SAQUE, numeroConta, null, valor);
+    }
+
+    public static OperacaoLote transferencia(String contaOrigem, String contaDestino, float valor) {
+        return new OperacaoLote(TipoOperacao.TRANSFERENCIA, contaOrigem, contaDestino, valor);
+    }
+
+    // Getters
+    public TipoOperacao getTipo() { return tipo; }
+    public String getContaOrigem() { return contaOrigem; }
+    public String getContaDestino() { return contaDestino; }
+    public long getValorCentavos() { return valorCentavos; }
+
+    @Override
+    public String toString() {
+        return contaDestino == null
+                ? String.format("%s %s %s", tipo, contaOrigem, Dinheiro.formatar(valorCentavos))
+                : String.format("%s %s -> %s %s", tipo, contaOrigem, contaDestino, Dinheiro.formatar(valorCentavos));
+    }
+}
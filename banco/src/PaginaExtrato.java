@@ -0,0 +1,28 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Uma página de uma ConsultaExtrato
+ * O cursor é opaco: identifica a próxima transação pela data e pela ordem entre as de mesma data,
+ * então continua válido mesmo que transações antigas sejam arquivadas entre uma página e outra
+ */
+public class PaginaExtrato {
+    private final List<Transacao> transacoes;
+    private final String proximoCursor;
+
+    public PaginaExtrato(List<Transacao> transacoes, String proximoCursor) {
+        this.transacoes = Collections.unmodifiableList(transacoes);
+        this.proximoCursor = proximoCursor;
+    }
+
+    public static PaginaExtrato vazia() {
+        return new PaginaExtrato(List.of(), null);
+    }
+
+    public List<Transacao> getTransacoes() { return transacoes; }
+    public String getProximoCursor() { return proximoCursor; }
+
+    public boolean temProxima() {
+        return proximoCursor != null;
+    }
+}
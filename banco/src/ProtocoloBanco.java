@@ -0,0 +1,111 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Protocolo binário do ServidorBanco
+ * Cada mensagem é um quadro: tamanho do corpo(4) e o corpo, em big-endian.
+ * Requisição: operação(1) id(4) parâmetros. Resposta: id(4) status(1) resultado,
+ * ou a mensagem de erro quando o status não é OK. O id da requisição volta na resposta,
+ * então o cliente pode enviar várias requisições sem esperar (pipelining);
+ * as respostas de uma conexão saem na ordem das requisições.
+ * Textos: tamanho(2) e bytes UTF-8. Valores sempre em centavos
+ *
+ * Operações e parâmetros -> resultado:
+ * CRIAR_CONTA conta tipo login senha -> nada (ERRO_ESTADO se a conta já existe)
+ * LOGIN conta senha -> nada (autentica a conexão)
+ * DEPOSITO, SAQUE valor -> saldo
+ * TRANSFERENCIA destino valor -> saldo
+ * SALDO -> saldo
+ * EXTRATO de(epoch millis, Long.MIN_VALUE = início) limite(4) cursor("" = primeira página)
+ *   -> quantidade(4), por transação data(8) tipo(1) valor(8) descrição, e o próximo cursor ("" = fim)
+ * LOGOUT -> nada
+ */
+public final class ProtocoloBanco {
+    public static final byte CRIAR_CONTA = 1;
+    public static final byte LOGIN = 2;
+    public static final byte DEPOSITO = 3;
+    public static final byte SAQUE = 4;
+    public static final byte TRANSFERENCIA = 5;
+    public static final byte SALDO = 6;
+    public static final byte EXTRATO = 7;
+    public static final byte LOGOUT = 8;
+
+    public static final byte OK = 0;
+    // IllegalArgumentException: parâmetro inválido, conta inexistente...
+    public static final byte ERRO_VALIDACAO = 1;
+    // IllegalStateException: saldo insuficiente, conta já existente, operação não permitida...
+    public static final byte ERRO_ESTADO = 2;
+    public static final byte NAO_AUTENTICADO = 3;
+    public static final byte ERRO_INTERNO = 4;
+
+    public static final int TAMANHO_MAXIMO_QUADRO = 256 * 1024;
+
+    private ProtocoloBanco() {
+    }
+
+    public static Quadro requisicao(byte operacao, int id) {
+        return new Quadro(64).octeto(operacao).inteiro(id);
+    }
+
+    public static Quadro resposta(int id, byte status) {
+        return new Quadro(64).inteiro(id).octeto(status);
+    }
+
+    public static String lerTexto(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Monta um quadro, crescendo o buffer conforme necessário; o tamanho é preenchido em fechar
+     */
+    public static final class Quadro {
+        private ByteBuffer buffer;
+
+        Quadro(int capacidade) {
+            buffer = ByteBuffer.allocate(Math.max(capacidade, 16));
+            buffer.position(Integer.BYTES);
+        }
+
+        public Quadro octeto(byte valor) {
+            garantir(1).put(valor);
+            return this;
+        }
+
+        public Quadro inteiro(int valor) {
+            garantir(Integer.BYTES).putInt(valor);
+            return this;
+        }
+
+        public Quadro longo(long valor) {
+            garantir(Long.BYTES).putLong(valor);
+            return this;
+        }
+
+        public Quadro texto(String valor) {
+            byte[] bytes = (valor == null ? "" : valor).getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                throw new IllegalArgumentException("Texto longo demais para o protocolo!");
+            }
+            garantir(2 + bytes.length).putShort((short) bytes.length).put(bytes);
+            return this;
+        }
+
+        /**
+         * Quadro pronto para escrita, com o tamanho do corpo no início
+         */
+        public ByteBuffer fechar() {
+            buffer.putInt(0, buffer.position() - Integer.BYTES);
+            return buffer.flip();
+        }
+
+        private ByteBuffer garantir(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer maior = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer = maior.put(buffer.flip());
+            }
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.Timespan;
+
+/**
+ * Registro de métricas do banco: contadores (LongAdder), medidores e temporizadores
+ * Um temporizador conta as execuções e os erros de uma operação e guarda as latências num
+ * HistogramaLatencia; registrar custa alguns incrementos sem trava, então pode ficar em
+ * todas as operações do BankSingleton e chamadas de persistência do FileManagerSingleton.
+ * As métricas são exportadas no formato de texto do Prometheus (ver exportarPrometheus)
+ * e como o evento JFR banco.Metrica, emitido a cada segundo enquanto houver gravação
+ *
+ * Cada série é uma família (nome da métrica) com no máximo um rótulo, como
+ * banco_operacao_segundos{operacao="deposito"}
+ */
+public final class RegistroMetricas {
+    private static final RegistroMetricas INSTANCIA = new RegistroMetricas();
+    private static final double[] QUANTIS = {0.5, 0.99, 0.999};
+
+    // Família -> (rótulos -> série), em ordem para a exportação ser estável
+    private final Map<String, Familia<Temporizador>> temporizadores = new ConcurrentSkipListMap<>();
+    private final Map<String, Familia<LongAdder>> contadores = new ConcurrentSkipListMap<>();
+    private final Map<String, Familia<LongSupplier>> contadoresFuncao = new ConcurrentSkipListMap<>();
+    private final Map<String, Familia<LongSupplier>> medidores = new ConcurrentSkipListMap<>();
+
+    private RegistroMetricas() {
+        FlightRecorder.addPeriodicEvent(EventoMetrica.class, this::emitirEventosJfr);
+    }
+
+    public static RegistroMetricas getInstance() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Temporizador da família (exportado como familia_segundos e familia_erros_total);
+     * chamadas repetidas com os mesmos nomes devolvem a mesma instância
+     */
+    public Temporizador temporizador(String familia, String ajuda, String rotulo, String valor) {
+        return serie(temporizadores, familia, ajuda, rotulo, valor, Temporizador::new);
+    }
+
+    public LongAdder contador(String familia, String ajuda) {
+        return contador(familia, ajuda, null, null);
+    }
+
+    public LongAdder contador(String familia, String ajuda, String rotulo, String valor) {
+        return serie(contadores, familia, ajuda, rotulo, valor, LongAdder::new);
+    }
+
+    /**
+     * Contador mantido por outro componente (como os acertos de um cache), lido na exportação
+     */
+    public void contador(String familia, String ajuda, String rotulo, String valor, LongSupplier leitura) {
+        serie(contadoresFuncao, familia, ajuda, rotulo, valor, () -> leitura);
+    }
+
+    /**
+     * Valor instantâneo (sessões ativas, tamanho de fila...), lido na exportação
+     */
+    public void medidor(String familia, String ajuda, String rotulo, String valor, LongSupplier leitura) {
+        serie(medidores, familia, ajuda, rotulo, valor, () -> leitura);
+    }
+
+    private static <T> T serie(Map<String, Familia<T>> familias, String familia, String ajuda,
+                               String rotulo, String valor, Supplier<T> criar) {
+        return familias.computeIfAbsent(familia, f -> new Familia<>(ajuda)).series
+                .computeIfAbsent(rotulos(rotulo, valor), r -> criar.get());
+    }
+
+    private static String rotulos(String rotulo, String valor) {
+        return rotulo == null ? "" : rotulo + "=\"" + valor.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * Todas as métricas no formato de texto do Prometheus (versão 0.0.4)
+     * Temporizadores viram summaries com os quantis 0.5, 0.99 e 0.999 desde o início do processo
+     */
+    public String exportarPrometheus() {
+        StringBuilder saida = new StringBuilder();
+        temporizadores.forEach((familia, series) -> {
+            String nome = familia + "_segundos";
+            cabecalho(saida, nome, series.ajuda, "summary");
+            series.series.forEach((rotulos, temporizador) -> {
+                HistogramaLatencia latencias = temporizador.latencias;
+                for (double quantil : QUANTIS) {
+                    String comQuantil = (rotulos.isEmpty() ? "" : rotulos + ",") + "quantile=\"" + quantil + "\"";
+                    linha(saida, nome, comQuantil, segundos(latencias.percentil(quantil)));
+                }
+                linha(saida, nome + "_sum", rotulos, segundos(latencias.getSoma()));
+                linha(saida, nome + "_count", rotulos, Long.toString(latencias.getTotal()));
+            });
+            cabecalho(saida, familia + "_erros_total", "Erros em " + series.ajuda, "counter");
+            series.series.forEach((rotulos, temporizador) ->
+                    linha(saida, familia + "_erros_total", rotulos, Long.toString(temporizador.erros.sum())));
+        });
+        contadores.forEach((familia, series) -> {
+            cabecalho(saida, familia, series.ajuda, "counter");
+            series.series.forEach((rotulos, contador) -> linha(saida, familia, rotulos, Long.toString(contador.sum())));
+        });
+        contadoresFuncao.forEach((familia, series) -> {
+            cabecalho(saida, familia, series.ajuda, "counter");
+            series.series.forEach((rotulos, leitura) ->
+                    linha(saida, familia, rotulos, Long.toString(leitura.getAsLong())));
+        });
+        medidores.forEach((familia, series) -> {
+            cabecalho(saida, familia, series.ajuda, "gauge");
+            series.series.forEach((rotulos, leitura) ->
+                    linha(saida, familia, rotulos, Long.toString(leitura.getAsLong())));
+        });
+        return saida.toString();
+    }
+
+    private static void cabecalho(StringBuilder saida, String nome, String ajuda, String tipo) {
+        saida.append("# HELP ").append(nome).append(' ').append(ajuda).append('\n');
+        saida.append("# TYPE ").append(nome).append(' ').append(tipo).append('\n');
+    }
+
+    private static void linha(StringBuilder saida, String nome, String rotulos, String valor) {
+        saida.append(nome);
+        if (!rotulos.isEmpty()) {
+            saida.append('{').append(rotulos).append('}');
+        }
+        saida.append(' ').append(valor).append('\n');
+    }
+
+    private static String segundos(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    /**
+     * Um evento banco.Metrica por temporizador; só roda quando uma gravação JFR está ativa
+     */
+    private void emitirEventosJfr() {
+        temporizadores.forEach((familia, series) -> series.series.forEach((rotulos, temporizador) -> {
+            HistogramaLatencia latencias = temporizador.latencias;
+            EventoMetrica evento = new EventoMetrica();
+            evento.nome = rotulos.isEmpty() ? familia : familia + "{" + rotulos + "}";
+            evento.execucoes = latencias.getTotal();
+            evento.erros = temporizador.erros.sum();
+            evento.media = (long) latencias.media();
+            evento.p50 = latencias.percentil(0.5);
+            evento.p99 = latencias.percentil(0.99);
+            evento.p999 = latencias.percentil(0.999);
+            evento.maximo = latencias.getMaximo();
+            evento.commit();
+        }));
+    }
+
+    private static final class Familia<T> {
+        final String ajuda;
+        final Map<String, T> series = new ConcurrentSkipListMap<>();
+
+        Familia(String ajuda) {
+            this.ajuda = ajuda;
+        }
+    }
+
+    /**
+     * Execuções, erros e latências de uma operação
+     */
+    public static final class Temporizador {
+        private final HistogramaLatencia latencias = new HistogramaLatencia();
+        private final LongAdder erros = new LongAdder();
+
+        /**
+         * Registra a latência de uma execução iniciada em inicioNanos (System.nanoTime)
+         */
+        public void registrar(long inicioNanos) {
+            latencias.registrar(System.nanoTime() - inicioNanos);
+        }
+
+        public void erro() {
+            erros.increment();
+        }
+
+        /**
+         * Executa e mede a operação; uma exceção conta como erro e é relançada
+         */
+        public void medir(Runnable operacao) {
+            long inicio = System.nanoTime();
+            try {
+                operacao.run();
+            } catch (RuntimeException | Error e) {
+                erros.increment();
+                throw e;
+            } finally {
+                registrar(inicio);
+            }
+        }
+
+        public <T> T medir(Supplier<T> operacao) {
+            long inicio = System.nanoTime();
+            try {
+                return operacao.get();
+            } catch (RuntimeException | Error e) {
+                erros.increment();
+                throw e;
+            } finally {
+                registrar(inicio);
+            }
+        }
+
+        public HistogramaLatencia getLatencias() {
+            return latencias;
+        }
+
+        public long getErros() {
+            return erros.sum();
+        }
+    }
+
+    @Name("banco.Metrica")
+    @Label("Métrica do banco")
+    @Category("Banco")
+    @Description("Execuções, erros e percentis de latência de um temporizador do RegistroMetricas")
+    @Period("1 s")
+    static final class EventoMetrica extends Event {
+        @Label("Nome")
+        String nome;
+
+        @Label("Execuções")
+        long execucoes;
+
+        @Label("Erros")
+        long erros;
+
+        @Label("Média")
+        @Timespan
+        long media;
+
+        @Label("p50")
+        @Timespan
+        long p50;
+
+        @Label("p99")
+        @Timespan
+        long p99;
+
+        @Label("p99.9")
+        @Timespan
+        long p999;
+
+        @Label("Máximo")
+        @Timespan
+        long maximo;
+    }
+}
@@ -0,0 +1,465 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Servidor de rede sem interface gráfica (headless), com o ProtocoloBanco sobre NIO
+ * Uma thread aceita as conexões e as distribui entre os reatores; cada reator é uma thread
+ * com um Selector que lê e escreve os quadros de milhares de conexões sem bloquear.
+ * As operações, que travam contas e gravam em disco, nunca rodam no reator: antes do login
+ * (criar conta, login) rodam num pool de trabalhadores; depois dele, a sessão da conexão
+ * roda na sua própria thread do executor de sessões (ExecutorSessoes.atender), que executa
+ * as requisições da conexão até o logout ou o fechamento. Cada conexão tem no máximo uma requisição em
+ * execução e as demais esperam na fila dela: as respostas saem na ordem das requisições.
+ * Com a fila de uma conexão cheia, o reator para de ler dela até a fila esvaziar
+ */
+public class ServidorBanco {
+    private static final int PROCESSADORES = Runtime.getRuntime().availableProcessors();
+    public static final int REATORES_PADRAO = Integer.getInteger("banco.servidor.reatores",
+            Math.max(1, PROCESSADORES / 2));
+    public static final int TRABALHADORES_PADRAO = Integer.getInteger("banco.servidor.trabalhadores",
+            PROCESSADORES * 4);
+    private static final int MAX_PENDENTES_POR_CONEXAO = 64;
+    private static final int TAMANHO_INICIAL_ENTRADA = 256;
+    private static final int BACKLOG = 4096;
+
+    private final BankSingleton bank;
+    private final FileManagerSingleton fileManager;
+    private final ServerSocketChannel servidor;
+    private final Reator[] reatores;
+    private final ExecutorService trabalhadores;
+    private final Thread aceitadora;
+    private final AtomicInteger conexoesAbertas = new AtomicInteger();
+    private final LongAdder requisicoes = new LongAdder();
+    private volatile boolean ativo = true;
+
+    public ServidorBanco(BankSingleton bank, int porta) throws IOException {
+        this(bank, new InetSocketAddress(porta), REATORES_PADRAO, TRABALHADORES_PADRAO);
+    }
+
+    /**
+     * Abre a porta e inicia as threads; porta 0 escolhe uma porta livre (ver getPorta)
+     */
+    public ServidorBanco(BankSingleton bank, InetSocketAddress endereco, int reatores, int trabalhadores)
+            throws IOException {
+        this.bank = bank;
+        this.fileManager = FileManagerSingleton.getInstance();
+        this.servidor = ServerSocketChannel.open();
+        this.servidor.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        this.servidor.bind(endereco, BACKLOG);
+
+        AtomicInteger numeroTrabalhador = new AtomicInteger();
+        this.trabalhadores = Executors.newFixedThreadPool(trabalhadores, tarefa -> {
+            Thread thread = new Thread(tarefa, "servidor-trabalhador-" + numeroTrabalhador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.reatores = new Reator[reatores];
+        for (int i = 0; i < reatores; i++) {
+            this.reatores[i] = new Reator(i);
+        }
+        this.aceitadora = new Thread(this::aceitar, "servidor-aceitadora");
+        this.aceitadora.start();
+    }
+
+    public int getPorta() {
+        return servidor.socket().getLocalPort();
+    }
+
+    public int getConexoesAbertas() {
+        return conexoesAbertas.get();
+    }
+
+    public long getRequisicoesAtendidas() {
+        return requisicoes.sum();
+    }
+
+    /**
+     * Para de aceitar conexões, fecha as abertas e espera as operações em execução
+     */
+    public void encerrar() {
+        if (!ativo) return;
+        ativo = false;
+        try {
+            servidor.close();
+            aceitadora.join();
+            for (Reator reator : reatores) {
+                reator.selector.wakeup();
+                reator.thread.join();
+            }
+            trabalhadores.shutdown();
+            trabalhadores.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (IOException e) {
+            Log.erro("Erro ao encerrar o servidor: %s", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void aceitar() {
+        int proximo = 0;
+        while (ativo) {
+            try {
+                SocketChannel canal = servidor.accept();
+                canal.configureBlocking(false);
+                canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                conexoesAbertas.incrementAndGet();
+                reatores[proximo++ % reatores.length].registrar(canal);
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (ativo) {
+                    Log.erro("Erro ao aceitar conexão: %s", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Executa uma requisição numa thread trabalhadora e monta a resposta
+     */
+    private ByteBuffer processar(Conexao conexao, ByteBuffer requisicao) {
+        requisicoes.increment();
+        byte operacao = requisicao.get();
+        int id = requisicao.getInt();
+        try {
+            return executar(conexao, operacao, id, requisicao);
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            return erro(id, ProtocoloBanco.ERRO_VALIDACAO, e.getMessage() == null ? "Requisição inválida!" : e.getMessage());
+        } catch (IllegalStateException e) {
+            return erro(id, ProtocoloBanco.ERRO_ESTADO, e.getMessage());
+        } catch (RuntimeException e) {
+            Log.erro("Erro ao processar requisição: %s", e);
+            return erro(id, ProtocoloBanco.ERRO_INTERNO, "Erro interno do servidor");
+        }
+    }
+
+    private ByteBuffer executar(Conexao conexao, byte operacao, int id, ByteBuffer parametros) {
+        switch (operacao) {
+            case ProtocoloBanco.CRIAR_CONTA -> {
+                String numeroConta = ProtocoloBanco.lerTexto(parametros);
+                String tipo = ProtocoloBanco.lerTexto(parametros);
+                String login = ProtocoloBanco.lerTexto(parametros);
+                String senha = ProtocoloBanco.lerTexto(parametros);
+                bank.criarConta(numeroConta, tipo, login, senha);
+                return ProtocoloBanco.resposta(id, ProtocoloBanco.OK).fechar();
+            }
+            case ProtocoloBanco.LOGIN -> {
+                String numeroConta = ProtocoloBanco.lerTexto(parametros);
+                String senha = ProtocoloBanco.lerTexto(parametros);
+                SessaoBancaria sessao = bank.abrirSessao(numeroConta, senha);
+                if (sessao == null) {
+                    return erro(id, ProtocoloBanco.NAO_AUTENTICADO, "Conta ou senha inválida!");
+                }
+                conexao.encerrarSessao();
+                conexao.sessao = bank.getSessoes().atender(sessao);
+                if (conexao.fechada) {
+                    // fechada pelo reator enquanto o login rodava, que já não viu esta sessão
+                    conexao.encerrarSessao();
+                }
+                return ProtocoloBanco.resposta(id, ProtocoloBanco.OK).fechar();
+            }
+            case ProtocoloBanco.LOGOUT -> {
+                conexao.encerrarSessao();
+                return ProtocoloBanco.resposta(id, ProtocoloBanco.OK).fechar();
+            }
+            default -> {
+                ExecutorSessoes.SessaoAtiva sessao = conexao.sessao;
+                if (sessao == null) {
+                    return erro(id, ProtocoloBanco.NAO_AUTENTICADO, "Faça login antes de operar!");
+                }
+                return executarNaConta(sessao.getSessao().getNumeroConta(), operacao, id, parametros);
+            }
+        }
+    }
+
+    private ByteBuffer executarNaConta(String numeroConta, byte operacao, int id, ByteBuffer parametros) {
+        switch (operacao) {
+            case ProtocoloBanco.DEPOSITO -> bank.deposito(numeroConta, parametros.getLong());
+            case ProtocoloBanco.SAQUE -> bank.saque(numeroConta, parametros.getLong());
+            case ProtocoloBanco.TRANSFERENCIA -> {
+                String destino = ProtocoloBanco.lerTexto(parametros);
+                bank.transferencia(numeroConta, destino, parametros.getLong());
+            }
+            case ProtocoloBanco.SALDO -> {
+                // só o saldo, abaixo
+            }
+            case ProtocoloBanco.EXTRATO -> {
+                return extrato(numeroConta, id, parametros);
+            }
+            default -> throw new IllegalArgumentException("Operação desconhecida: " + operacao);
+        }
+        return ProtocoloBanco.resposta(id, ProtocoloBanco.OK)
+                .longo(bank.buscarConta(numeroConta).getSaldoEfetivoCentavos())
+                .fechar();
+    }
+
+    private ByteBuffer extrato(String numeroConta, int id, ByteBuffer parametros) {
+        long de = parametros.getLong();
+        int limite = parametros.getInt();
+        String cursor = ProtocoloBanco.lerTexto(parametros);
+
+        ConsultaExtrato consulta = ConsultaExtrato.daConta(numeroConta).limite(limite);
+        if (de != Long.MIN_VALUE) {
+            consulta = consulta.de(LocalDateTime.ofInstant(Instant.ofEpochMilli(de), ZoneOffset.UTC));
+        }
+        if (!cursor.isEmpty()) {
+            consulta = consulta.aPartirDe(cursor);
+        }
+        PaginaExtrato pagina = fileManager.consultarExtrato(consulta);
+
+        ProtocoloBanco.Quadro resposta = ProtocoloBanco.resposta(id, ProtocoloBanco.OK)
+                .inteiro(pagina.getTransacoes().size());
+        for (Transacao transacao : pagina.getTransacoes()) {
+            resposta.longo(CodecTransacao.epochMillis(transacao.getData()))
+                    .octeto((byte) transacao.getTipo().ordinal())
+                    .longo(transacao.getValorCentavos())
+                    .texto(transacao.getDescricao());
+        }
+        return resposta.texto(pagina.temProxima() ? pagina.getProximoCursor() : "").fechar();
+    }
+
+    private static ByteBuffer erro(int id, byte status, String mensagem) {
+        return ProtocoloBanco.resposta(id, status).texto(mensagem).fechar();
+    }
+
+    /**
+     * Estado de uma conexão; fora a sessão, só é acessado pela thread do reator
+     */
+    private static class Conexao {
+        final SocketChannel canal;
+        final Queue<ByteBuffer> pendentes = new ArrayDeque<>();
+        final Queue<ByteBuffer> saida = new ArrayDeque<>();
+        ByteBuffer entrada = ByteBuffer.allocate(TAMANHO_INICIAL_ENTRADA);
+        SelectionKey chave;
+        boolean emExecucao;
+        // Lida pelo login, que roda fora do reator
+        volatile boolean fechada;
+        // Sessão logada, na sua thread do executor de sessões; trocada pela requisição em execução
+        volatile ExecutorSessoes.SessaoAtiva sessao;
+
+        Conexao(SocketChannel canal) {
+            this.canal = canal;
+        }
+
+        /**
+         * A thread da sessão termina depois da requisição em execução, se houver
+         */
+        void encerrarSessao() {
+            ExecutorSessoes.SessaoAtiva atual = sessao;
+            if (atual != null) {
+                atual.encerrar();
+                sessao = null;
+            }
+        }
+    }
+
+    private static class Concluida {
+        final Conexao conexao;
+        final ByteBuffer resposta;
+
+        Concluida(Conexao conexao, ByteBuffer resposta) {
+            this.conexao = conexao;
+            this.resposta = resposta;
+        }
+    }
+
+    /**
+     * Thread com um Selector: lê quadros, despacha requisições e escreve respostas
+     */
+    private class Reator {
+        final Selector selector;
+        final Thread thread;
+        final Queue<SocketChannel> novas = new ConcurrentLinkedQueue<>();
+        final Queue<Concluida> concluidas = new ConcurrentLinkedQueue<>();
+
+        Reator(int indice) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this::executar, "servidor-reator-" + indice);
+            this.thread.start();
+        }
+
+        void registrar(SocketChannel canal) {
+            novas.add(canal);
+            selector.wakeup();
+        }
+
+        private void executar() {
+            try {
+                while (ativo) {
+                    selector.select();
+                    registrarNovas();
+                    entregarConcluidas();
+                    Iterator<SelectionKey> chaves = selector.selectedKeys().iterator();
+                    while (chaves.hasNext()) {
+                        SelectionKey chave = chaves.next();
+                        chaves.remove();
+                        Conexao conexao = (Conexao) chave.attachment();
+                        try {
+                            if (chave.isValid() && chave.isReadable()) {
+                                ler(conexao);
+                            }
+                            if (chave.isValid() && chave.isWritable()) {
+                                escrever(conexao);
+                            }
+                        } catch (IOException e) {
+                            fechar(conexao);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                Log.erro("Erro no reator %s: %s", thread.getName(), e.getMessage());
+            } finally {
+                selector.keys().forEach(chave -> fechar((Conexao) chave.attachment()));
+                SocketChannel canal;
+                while ((canal = novas.poll()) != null) {
+                    fecharCanal(canal);
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    // encerrando
+                }
+            }
+        }
+
+        private void registrarNovas() {
+            SocketChannel canal;
+            while ((canal = novas.poll()) != null) {
+                Conexao conexao = new Conexao(canal);
+                try {
+                    conexao.chave = canal.register(selector, SelectionKey.OP_READ, conexao);
+                } catch (IOException e) {
+                    fecharCanal(canal);
+                }
+            }
+        }
+
+        private void entregarConcluidas() throws IOException {
+            Concluida concluida;
+            while ((concluida = concluidas.poll()) != null) {
+                Conexao conexao = concluida.conexao;
+                conexao.emExecucao = false;
+                if (conexao.fechada) continue;
+                conexao.saida.add(concluida.resposta);
+                try {
+                    escrever(conexao);
+                    despachar(conexao);
+                } catch (IOException e) {
+                    fechar(conexao);
+                }
+            }
+        }
+
+        private void ler(Conexao conexao) throws IOException {
+            if (conexao.canal.read(conexao.entrada) < 0) {
+                fechar(conexao);
+                return;
+            }
+            ByteBuffer entrada = conexao.entrada.flip();
+            while (entrada.remaining() >= Integer.BYTES) {
+                int tamanho = entrada.getInt(entrada.position());
+                if (tamanho < 5 || tamanho > ProtocoloBanco.TAMANHO_MAXIMO_QUADRO) {
+                    // Quadro inválido: não há como voltar a sincronizar com o cliente
+                    fechar(conexao);
+                    return;
+                }
+                if (entrada.remaining() < Integer.BYTES + tamanho) break;
+                entrada.position(entrada.position() + Integer.BYTES);
+                byte[] corpo = new byte[tamanho];
+                entrada.get(corpo);
+                conexao.pendentes.add(ByteBuffer.wrap(corpo));
+            }
+            entrada.compact();
+            // Quadro parcial maior que o buffer: cresce até caber o quadro inteiro
+            if (entrada.position() >= Integer.BYTES) {
+                int necessario = Integer.BYTES + entrada.getInt(0);
+                if (necessario > entrada.capacity()) {
+                    conexao.entrada = ByteBuffer.allocate(necessario).put(entrada.flip());
+                }
+            }
+            despachar(conexao);
+        }
+
+        /**
+         * Envia a próxima requisição da conexão à thread da sessão (ou ao pool, antes do login),
+         * se nenhuma estiver em execução, e liga ou desliga a leitura conforme o tamanho da fila
+         */
+        private void despachar(Conexao conexao) {
+            if (!conexao.emExecucao && !conexao.pendentes.isEmpty()) {
+                ByteBuffer requisicao = conexao.pendentes.poll();
+                conexao.emExecucao = true;
+                Executor executor = conexao.sessao != null ? conexao.sessao : trabalhadores;
+                try {
+                    executor.execute(() -> {
+                        concluidas.add(new Concluida(conexao, processar(conexao, requisicao)));
+                        selector.wakeup();
+                    });
+                } catch (RejectedExecutionException e) {
+                    fechar(conexao);
+                    return;
+                }
+            }
+            int interesse = conexao.chave.interestOps();
+            if (conexao.pendentes.size() >= MAX_PENDENTES_POR_CONEXAO) {
+                interesse &= ~SelectionKey.OP_READ;
+            } else {
+                interesse |= SelectionKey.OP_READ;
+            }
+            conexao.chave.interestOps(interesse);
+        }
+
+        private void escrever(Conexao conexao) throws IOException {
+            ByteBuffer resposta;
+            while ((resposta = conexao.saida.peek()) != null) {
+                conexao.canal.write(resposta);
+                if (resposta.hasRemaining()) {
+                    conexao.chave.interestOps(conexao.chave.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+                conexao.saida.poll();
+            }
+            conexao.chave.interestOps(conexao.chave.interestOps() & ~SelectionKey.OP_WRITE);
+        }
+
+        private void fechar(Conexao conexao) {
+            if (conexao.fechada) return;
+            conexao.fechada = true;
+            conexao.encerrarSessao();
+            if (conexao.chave != null) {
+                conexao.chave.cancel();
+            }
+            fecharCanal(conexao.canal);
+        }
+
+        private void fecharCanal(SocketChannel canal) {
+            try {
+                canal.close();
+            } catch (IOException e) {
+                // já fechado
+            }
+            conexoesAbertas.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Endpoint HTTP /metrics com o RegistroMetricas no formato de texto do Prometheus
+ * Atende numa única thread: cada coleta só lê contadores e histogramas
+ */
+public class ServidorMetricas {
+    private final HttpServer servidor;
+
+    public ServidorMetricas(int porta) throws IOException {
+        servidor = HttpServer.create(new InetSocketAddress(porta), 0);
+        servidor.createContext("/metrics", troca -> {
+            byte[] corpo = RegistroMetricas.getInstance().exportarPrometheus().getBytes(StandardCharsets.UTF_8);
+            troca.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            troca.sendResponseHeaders(200, corpo.length);
+            try (OutputStream saida = troca.getResponseBody()) {
+                saida.write(corpo);
+            }
+        });
+        servidor.start();
+    }
+
+    public int getPorta() {
+        return servidor.getAddress().getPort();
+    }
+
+    public void encerrar() {
+        servidor.stop(0);
+    }
+}
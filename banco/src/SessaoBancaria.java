@@ -0,0 +1,73 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sessão autenticada de uma conta
+ * Cada usuário logado recebe a sua própria sessão, então várias contas podem
+ * operar ao mesmo tempo sem depender de uma "conta atual" global no banco
+ */
+public class SessaoBancaria {
+    private final BankSingleton bank;
+    private final String numeroConta;
+    private final AtomicBoolean ativa = new AtomicBoolean(true);
+
+    SessaoBancaria(BankSingleton bank, String numeroConta) {
+        this.bank = bank;
+        this.numeroConta = numeroConta;
+    }
+
+    public String getNumeroConta() {
+        return numeroConta;
+    }
+
+    public boolean isAtiva() {
+        return ativa.get();
+    }
+
+    /**
+     * Estado atual da conta, lido do armazenamento
+     */
+    public ContaBancaria getConta() {
+        verificarAtiva();
+        return bank.buscarConta(numeroConta);
+    }
+
+    public ExtratoObserver getExtratoObserver() {
+        verificarAtiva();
+        return bank.getExtratoObserver(numeroConta);
+    }
+
+    public void deposito(float valor) {
+        verificarAtiva();
+        bank.deposito(numeroConta, Dinheiro.deReais(valor));
+    }
+
+    public void saque(float valor) {
+        verificarAtiva();
+        bank.saque(numeroConta, Dinheiro.deReais(valor));
+    }
+
+    public void transferencia(String contaDestino, float valor) {
+        verificarAtiva();
+        bank.transferencia(numeroConta, contaDestino, Dinheiro.deReais(valor));
+    }
+
+    public void solicitarGerente() {
+        verificarAtiva();
+        bank.solicitarGerente(numeroConta);
+    }
+
+    /**
+     * Encerra a sessão; só a primeira chamada libera o observer do extrato da conta
+     */
+    public void encerrar() {
+        if (ativa.compareAndSet(true, false)) {
+            bank.sessaoEncerrada(numeroConta);
+        }
+    }
+
+    private void verificarAtiva() {
+        if (!ativa.get()) {
+            throw new IllegalStateException("Sessão encerrada!");
+        }
+    }
+}
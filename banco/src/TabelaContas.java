@@ -0,0 +1,252 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Armazenamento de contas com um registro de tamanho fixo por conta
+ * O slot é indexado pelo próprio número da conta (5 dígitos), então salvar uma conta
+ * reescreve apenas os bytes dela no arquivo.
+ * O arquivo inteiro (100.000 slots) fica mapeado em memória fora do heap,
+ * então buscar uma conta não exige carregar nada na inicialização.
+ * Leituras e gravações de slots não usam trava global: quem grava a mesma conta
+ * deve serializar as chamadas (o BankSingleton faz isso com TravasContas)
+ */
+public class TabelaContas {
+    public static final int MAX_CONTAS = 100_000;
+
+    // Cabeçalho do arquivo
+    private static final int MAGIC = 0x54434E54; // "TCNT"
+    private static final short VERSAO = 1;
+    static final int TAMANHO_CABECALHO = 64;
+
+    // Layout do slot: estado(1) tipo(1) senha(1+8) login(1+32) saldo em centavos(8) último saque negativo(8)
+    static final int TAMANHO_SLOT = 64;
+    private static final int TAMANHO_SENHA = 8;
+    private static final int TAMANHO_LOGIN = 32;
+    private static final int OFFSET_SALDO = 44;
+    private static final byte LIVRE = 0;
+    private static final byte OCUPADO = 1;
+    private static final long SEM_DATA = Long.MIN_VALUE;
+
+    private final Path arquivo;
+    private final FileChannel canal;
+    private final MappedByteBuffer mapa;
+    private volatile boolean pendenteFsync;
+    private final ReentrantLock trava = new ReentrantLock();
+
+    public TabelaContas(Path arquivo) {
+        this.arquivo = arquivo;
+        try {
+            boolean novo = !Files.exists(arquivo);
+            this.canal = FileChannel.open(arquivo,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // O mapeamento estende o arquivo até o tamanho total (arquivo esparso no disco)
+            this.mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanhoArquivo());
+            if (novo || mapa.getInt(0) == 0) {
+                escreverCabecalho();
+            } else {
+                validarCabecalho();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao abrir tabela de contas: " + arquivo, e);
+        }
+    }
+
+    /**
+     * Indica se a tabela já existia no disco
+     */
+    public static boolean existe(Path arquivo) {
+        return Files.exists(arquivo);
+    }
+
+    /**
+     * Grava a conta no seu slot, sem tocar nas demais
+     */
+    public void gravar(ContaBancaria conta) {
+        EventosBanco.SalvarConta evento = new EventosBanco.SalvarConta();
+        evento.begin();
+        codificar(conta, mapa.slice(offset(conta.getNumeroConta()), TAMANHO_SLOT));
+        pendenteFsync = true;
+        if (evento.shouldCommit()) {
+            evento.conta = conta.getNumeroConta();
+            evento.bytes = TAMANHO_SLOT;
+            evento.commit();
+        }
+    }
+
+    /**
+     * Lê a conta do seu slot ou retorna null se o slot estiver livre
+     */
+    public ContaBancaria ler(String numeroConta) {
+        int offset = offset(numeroConta);
+        if (mapa.get(offset) != OCUPADO) return null;
+        EventosBanco.CarregarConta evento = new EventosBanco.CarregarConta();
+        evento.begin();
+        ContaBancaria conta = decodificar(numeroConta, mapa.slice(offset, TAMANHO_SLOT));
+        if (evento.shouldCommit()) {
+            evento.conta = numeroConta;
+            evento.bytes = TAMANHO_SLOT;
+            evento.commit();
+        }
+        return conta;
+    }
+
+    /**
+     * Indica se o slot da conta está ocupado, sem materializar a conta
+     */
+    public boolean existe(String numeroConta) {
+        return mapa.get(offset(numeroConta)) == OCUPADO;
+    }
+
+    /**
+     * Lê todas as contas ocupadas, varrendo os slots em ordem
+     */
+    public List<ContaBancaria> lerTodas() {
+        List<ContaBancaria> contas = new ArrayList<>();
+        for (int numero = 0; numero < MAX_CONTAS; numero++) {
+            int offset = TAMANHO_CABECALHO + numero * TAMANHO_SLOT;
+            if (mapa.get(offset) == OCUPADO) {
+                contas.add(decodificar(String.format("%05d", numero), mapa.slice(offset, TAMANHO_SLOT)));
+            }
+        }
+        return contas;
+    }
+
+    /**
+     * Números das contas VIP com saldo negativo, lendo só o tipo e o saldo de cada slot
+     */
+    public List<String> contasVipComSaldoNegativo() {
+        List<String> contas = new ArrayList<>();
+        for (int numero = 0; numero < MAX_CONTAS; numero++) {
+            int offset = TAMANHO_CABECALHO + numero * TAMANHO_SLOT;
+            if (mapa.get(offset) == OCUPADO && mapa.get(offset + 1) == 1 && mapa.getLong(offset + OFFSET_SALDO) < 0) {
+                contas.add(String.format("%05d", numero));
+            }
+        }
+        return contas;
+    }
+
+    /**
+     * Conta os slots ocupados
+     */
+    public int contarContas() {
+        int total = 0;
+        for (int numero = 0; numero < MAX_CONTAS; numero++) {
+            if (mapa.get(TAMANHO_CABECALHO + numero * TAMANHO_SLOT) == OCUPADO) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Força em disco as gravações pendentes
+     */
+    public void sincronizar() {
+        trava.lock();
+        try {
+            if (!pendenteFsync) return;
+            EventosBanco.Sincronizar evento = new EventosBanco.Sincronizar();
+            evento.begin();
+            mapa.force();
+            pendenteFsync = false;
+            if (evento.shouldCommit()) {
+                evento.arquivo = "contas";
+                evento.canais = 1;
+                evento.commit();
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    public void fechar() {
+        trava.lock();
+        try {
+            try {
+                sincronizar();
+                canal.close();
+            } catch (IOException e) {
+                Log.erro("Erro ao fechar tabela de contas: %s", e.getMessage());
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private void escreverCabecalho() {
+        mapa.putInt(0, MAGIC).putShort(4, VERSAO).putShort(6, (short) TAMANHO_SLOT).putInt(8, MAX_CONTAS);
+        mapa.force();
+    }
+
+    private void validarCabecalho() throws IOException {
+        if (mapa.getInt(0) != MAGIC || mapa.getShort(4) != VERSAO
+                || mapa.getShort(6) != TAMANHO_SLOT || mapa.getInt(8) != MAX_CONTAS) {
+            throw new IOException("Tabela de contas inválida: " + arquivo);
+        }
+    }
+
+    private static long tamanhoArquivo() {
+        return TAMANHO_CABECALHO + (long) MAX_CONTAS * TAMANHO_SLOT;
+    }
+
+    private static int offset(String numeroConta) {
+        if (!ContaBancaria.numeroContaValido(numeroConta)) {
+            throw new IllegalArgumentException("Número da conta deve ter 5 dígitos!");
+        }
+        return TAMANHO_CABECALHO + Integer.parseInt(numeroConta) * TAMANHO_SLOT;
+    }
+
+    static void codificar(ContaBancaria conta, ByteBuffer slot) {
+        byte[] senha = conta.getSenha().getBytes(StandardCharsets.UTF_8);
+        byte[] login = conta.getLogin() == null ? new byte[0] : conta.getLogin().getBytes(StandardCharsets.UTF_8);
+        if (senha.length > TAMANHO_SENHA) {
+            throw new IllegalArgumentException("Senha deve ter 4 dígitos!");
+        }
+        if (login.length > TAMANHO_LOGIN) {
+            throw new IllegalArgumentException("Login deve ter no máximo " + TAMANHO_LOGIN + " bytes!");
+        }
+
+        slot.put(OCUPADO);
+        slot.put((byte) (conta.isVip() ? 1 : 0));
+        slot.put((byte) senha.length).put(senha).position(2 + 1 + TAMANHO_SENHA);
+        slot.put((byte) login.length).put(login).position(OFFSET_SALDO);
+        slot.putLong(conta.getSaldoCentavos());
+        LocalDateTime ultimoSaqueNegativo = conta.getUltimoSaqueNegativo();
+        slot.putLong(ultimoSaqueNegativo == null ? SEM_DATA
+                : ultimoSaqueNegativo.toInstant(ZoneOffset.UTC).toEpochMilli());
+        slot.position(TAMANHO_SLOT);
+    }
+
+    static ContaBancaria decodificar(String numeroConta, ByteBuffer slot) {
+        int inicio = slot.position();
+        String tipo = slot.get(inicio + 1) == 1 ? "VIP" : "NORMAL";
+        String senha = lerTexto(slot, inicio + 2);
+        String login = lerTexto(slot, inicio + 2 + 1 + TAMANHO_SENHA);
+        long saldoCentavos = slot.getLong(inicio + OFFSET_SALDO);
+        long ultimoSaque = slot.getLong(inicio + OFFSET_SALDO + 8);
+
+        ContaBancaria conta = new ContaBancaria(numeroConta, tipo, login, senha);
+        conta.restaurarEstado(saldoCentavos, ultimoSaque == SEM_DATA ? null
+                : LocalDateTime.ofInstant(Instant.ofEpochMilli(ultimoSaque), ZoneOffset.UTC));
+        return conta;
+    }
+
+    private static String lerTexto(ByteBuffer slot, int offset) {
+        byte[] bytes = new byte[slot.get(offset)];
+        slot.get(offset + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,4 +1,6 @@
 import org.junit.jupiter.api.*;
+import java.time.LocalDateTime;
+import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 
 class TesteBancario {
@@ -8,8 +10,8 @@ class TesteBancario {
     void setup() {
         bank = BankSingleton.getInstance();
         // criar contas padrão para testes
-        bank.criarConta("11111", "NORMAL", "testUser1", "1234");
-        bank.criarConta("22222", "VIP", "testUser2", "5678");
+        bank.recriarConta("11111", "NORMAL", "testUser1", "1234");
+        bank.recriarConta("22222", "VIP", "testUser2", "5678");
     }
 
     @Test
@@ -96,6 +98,42 @@ class TesteBancario {
                 "Saldo da conta destino deve receber o valor da transferência");
     }
 
+    @Test
+    void transferenciaDeveSerRegistradaUmaVezNoExtratoDeCadaConta() {
+        LocalDateTime antes = LocalDateTime.now().minusSeconds(1);
+        bank.login("22222", "5678");
+        bank.deposito(1.0f);
+        bank.getEventos().aguardarEntregas().join();
+        long ultimaDestino = bank.getExtratoObserver().getUltimaSequencia();
+        bank.login("11111", "1234");
+        bank.deposito(500.0f);
+        bank.getEventos().aguardarEntregas().join();
+        long ultimaOrigem = bank.getExtratoObserver().getUltimaSequencia();
+
+        bank.transferencia("22222", 100.0f);
+        bank.getEventos().aguardarEntregas().join();
+
+        List<Transacao> origem = transacoesDepoisDe("11111", antes, ultimaOrigem);
+        assertEquals(List.of(Transacao.TipoTransacao.TRANSFERENCIA_ENVIADA,
+                        Transacao.TipoTransacao.TAXA_TRANSFERENCIA),
+                origem.stream().map(Transacao::getTipo).toList(),
+                "Conta origem deve ter só a transferência enviada e a taxa");
+        assertEquals(ultimaOrigem + 2, bank.getExtratoObserver().getUltimaSequencia(),
+                "Sequências do extrato devem ser consecutivas");
+
+        List<Transacao> destino = transacoesDepoisDe("22222", antes, ultimaDestino);
+        assertEquals(1, destino.size(), "Conta destino deve ter uma única transferência recebida");
+        assertEquals(Transacao.TipoTransacao.TRANSFERENCIA_RECEBIDA, destino.get(0).getTipo());
+        assertEquals(ultimaDestino + 1, destino.get(0).getSequencia());
+    }
+
+    private static List<Transacao> transacoesDepoisDe(String numeroConta,
+                                                      LocalDateTime antes, long sequencia) {
+        PaginaExtrato pagina = FileManagerSingleton.getInstance().consultarExtrato(
+                ConsultaExtrato.daConta(numeroConta).de(antes).limite(ConsultaExtrato.LIMITE_MAXIMO));
+        return pagina.getTransacoes().stream().filter(t -> t.getSequencia() > sequencia).toList();
+    }
+
     @Test
     void contaVIPDeveSerIdentificadaCorretamente() {
 
@@ -129,4 +167,51 @@ class TesteBancario {
                 () -> bank.transferencia("11111", 50.0f),
                 "Transferência para própria conta deve lançar exceção");
     }
+
+    @Test
+    void loteDeveAplicarTodasAsOperacoes() {
+        RegistroMetricas.Temporizador depositos = RegistroMetricas.getInstance()
+                .temporizador("banco_operacao", "Operações do BankSingleton", "operacao", "deposito");
+        long depositosAntes = depositos.getLatencias().getTotal();
+
+        bank.processarLote(List.of(
+                OperacaoLote.deposito("11111", 300.0f),
+                OperacaoLote.transferencia("11111", "22222", 100.0f),
+                OperacaoLote.saque("22222", 40.0f)
+        ));
+        assertEquals(depositosAntes, depositos.getLatencias().getTotal(),
+                "As operações do lote devem ser medidas só como lote");
+
+        bank.login("11111", "1234");
+        assertEquals(300.0f - 100.0f - 8.0f, bank.getContaAtual().getSaldo(), 0.01,
+                "Conta origem deve refletir depósito, transferência e taxa do lote");
+        bank.login("22222", "5678");
+        assertEquals(60.0f, bank.getContaAtual().getSaldo(), 0.01,
+                "Conta destino deve refletir a transferência e o saque do lote");
+    }
+
+    @Test
+    void loteComOperacaoInvalidaNaoDeveAplicarNada() {
+        assertThrows(IllegalStateException.class,
+                () -> bank.processarLote(List.of(
+                        OperacaoLote.deposito("11111", 50.0f),
+                        OperacaoLote.saque("11111", 500.0f)
+                )),
+                "Lote com saque acima do saldo deve ser rejeitado");
+
+        bank.login("11111", "1234");
+        assertEquals(0.0f, bank.getContaAtual().getSaldo(), 0.01,
+                "Nenhuma operação do lote rejeitado deve ser aplicada");
+    }
+
+    @Test
+    void depositosFracionadosNaoDevemAcumularErroDeArredondamento() {
+        bank.login("11111", "1234");
+        for (int i = 0; i < 10; i++) {
+            bank.deposito(0.1f);
+        }
+
+        assertEquals(100L, bank.getContaAtual().getSaldoCentavos(),
+                "Dez depósitos de R$ 0,10 devem somar exatamente R$ 1,00");
+    }
 }
\ No newline at end of file
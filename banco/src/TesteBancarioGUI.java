@@ -16,8 +16,8 @@ class TesteBancarioGUI {
         robot = new Robot();
 
         // Cria contas para teste
-        bank.criarConta("11111", "NORMAL", "testUser1", "1234");
-        bank.criarConta("22222", "VIP", "testUser2", "5678");
+        bank.recriarConta("11111", "NORMAL", "testUser1", "1234");
+        bank.recriarConta("22222", "VIP", "testUser2", "5678");
 
         gui.setVisible(true);
         robot.delay(500); // Aguarda interface carregar
@@ -0,0 +1,121 @@
+import org.junit.jupiter.api.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TesteBarramentoEventos {
+    private BarramentoEventos eventos;
+
+    @BeforeEach
+    void setUp() {
+        eventos = new BarramentoEventos(4, 1024, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventos.encerrar();
+    }
+
+    @Test
+    void eventosDeUmaContaDevemChegarEmOrdem() {
+        List<Long> conta1 = Collections.synchronizedList(new ArrayList<>());
+        List<Long> todas = Collections.synchronizedList(new ArrayList<>());
+        eventos.assinar("80001", t -> conta1.add(t.getValorCentavos()));
+        eventos.assinarTodas(t -> todas.add(t.getValorCentavos()));
+        eventos.assinar("80002", t -> {
+            throw new IllegalStateException("observer com erro");
+        });
+
+        for (long i = 0; i < 500; i++) {
+            eventos.publicar(deposito(i % 2 == 0 ? "80001" : "80002", i));
+        }
+        eventos.aguardarEntregas().join();
+
+        assertEquals(250, conta1.size());
+        for (int i = 0; i < conta1.size(); i++) {
+            assertEquals(2L * i, conta1.get(i), "Eventos da conta devem seguir a ordem de publicação");
+        }
+        assertEquals(500, todas.size(), "Observer global recebe todas as contas, mesmo com outro falhando");
+    }
+
+    @Test
+    void observerLentoNaoDeveBloquearQuemPublica() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        BarramentoEventos.Assinatura lento = eventos.assinar("80003", t -> {
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < 2000; i++) {
+            eventos.publicar(deposito("80003", i));
+        }
+        long duracao = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        assertTrue(duracao < 1000, "Publicar não deve esperar o observer (" + duracao + " ms)");
+        assertTrue(eventos.getEventosDescartados() > 0, "Sem extrato, o que não cabe na fila é descartado");
+
+        liberar.countDown();
+        lento.cancelar();
+        eventos.aguardarEntregas().get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void assinanteAtrasadoDeveRelerDoExtratoSemAfetarOsOutros() throws Exception {
+        List<Transacao> gravadas = Collections.synchronizedList(new ArrayList<>());
+        BarramentoEventos comExtrato = new BarramentoEventos(2, 16, (consulta, destino) -> {
+            for (Transacao t : new ArrayList<>(gravadas)) {
+                if (!t.getData().isBefore(consulta.getDe())) destino.receber(t);
+            }
+        });
+        CountDownLatch liberar = new CountDownLatch(1);
+        List<Long> lento = Collections.synchronizedList(new ArrayList<>());
+        List<Long> outro = Collections.synchronizedList(new ArrayList<>());
+        comExtrato.assinar("80004", t -> {
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            lento.add(t.getValorCentavos());
+        });
+        comExtrato.assinar("80004", t -> outro.add(t.getValorCentavos()));
+
+        for (long i = 0; i < 500; i++) {
+            Transacao transacao = deposito("80004", i);
+            transacao.setSequencia(i + 1);
+            gravadas.add(transacao);
+            comExtrato.publicar(transacao);
+        }
+        CompletableFuture<Void> entregue = comExtrato.aguardarEntregas();
+        aguardarTodos(outro);
+        liberar.countDown();
+        entregue.get(5, TimeUnit.SECONDS);
+        comExtrato.encerrar();
+
+        assertEquals(outro, lento, "O atrasado recebe tudo, na ordem, relendo do extrato o que não coube");
+        assertEquals(0, comExtrato.getEventosDescartados());
+        assertTrue(comExtrato.getEventosRecuperados() > 0);
+    }
+
+    private static void aguardarTodos(List<Long> recebidos) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (recebidos.size() < 500 && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+        assertEquals(500, recebidos.size(), "A fila cheia do assinante lento não afeta o outro");
+        for (int i = 0; i < recebidos.size(); i++) {
+            assertEquals(i, recebidos.get(i));
+        }
+    }
+
+    private static Transacao deposito(String numeroConta, long centavos) {
+        return new Transacao(Transacao.TipoTransacao.DEPOSITO, centavos, "Depósito em conta", numeroConta, null);
+    }
+}
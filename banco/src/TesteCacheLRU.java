@@ -0,0 +1,44 @@
+import org.junit.jupiter.api.*;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TesteCacheLRU {
+
+    @Test
+    void deveDespejarAsEntradasMenosUsadasQuandoPassarDoPesoMaximo() {
+        Cache<String, List<Integer>> cache = new CacheLRU<>("teste", 5, List::size);
+        cache.colocar("a", List.of(1, 2));
+        cache.colocar("b", List.of(1, 2));
+        cache.obter("a"); // "b" passa a ser a menos usada
+        cache.colocar("c", List.of(1, 2));
+
+        assertNull(cache.consultar("b"), "A entrada menos usada deve ser despejada");
+        assertNotNull(cache.consultar("a"));
+        assertNotNull(cache.consultar("c"));
+        assertEquals(4, cache.peso());
+        assertEquals(1, cache.despejos());
+    }
+
+    @Test
+    void deveContarAcertosEFalhas() {
+        Cache<String, String> cache = new CacheLRU<>("teste", 10, valor -> 1);
+        cache.colocar("a", "1");
+
+        cache.obter("a");
+        cache.obter("a");
+        cache.obter("x");
+        cache.consultar("x"); // consultar não entra nas estatísticas
+
+        assertEquals(2, cache.acertos());
+        assertEquals(1, cache.falhas());
+    }
+
+    @Test
+    void colocarSeAusenteNaoDeveSobrescreverValorExistente() {
+        Cache<String, String> cache = new CacheLRU<>("teste", 10, valor -> 1);
+        cache.colocar("a", "novo");
+
+        assertEquals("novo", cache.colocarSeAusente("a", "antigo"));
+        assertEquals("novo", cache.consultar("a"));
+    }
+}
@@ -0,0 +1,83 @@
+import org.junit.jupiter.api.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TesteEventosBanco {
+    private BankSingleton bank;
+
+    @BeforeEach
+    void setUp() {
+        bank = BankSingleton.getInstance();
+        bank.recriarConta("66661", "NORMAL", "jfr origem", "1234");
+        bank.recriarConta("66662", "NORMAL", "jfr destino", "1234");
+        bank.deposito("66661", 10_000);
+    }
+
+    @Test
+    void transferenciaDeveGerarEventosJfr() throws Exception {
+        List<RecordedEvent> eventos = gravar(() -> {
+            bank.transferencia("66661", "66662", 1_000);
+            FileManagerSingleton.getInstance().aguardarGravacoes().join();
+        });
+
+        RecordedEvent transferencia = eventos.stream()
+                .filter(e -> e.getEventType().getName().equals("banco.Transferencia"))
+                .filter(e -> e.getString("origem").equals("66661"))
+                .findFirst().orElseThrow();
+        assertEquals("66662", transferencia.getString("destino"));
+        assertEquals(1_000, transferencia.getLong("valor"));
+
+        assertTrue(eventos.stream().anyMatch(e -> e.getEventType().getName().equals("banco.SalvarConta")
+                && "66662".equals(e.getString("conta")) && e.getLong("bytes") == TabelaContas.TAMANHO_SLOT));
+        assertTrue(eventos.stream().anyMatch(e -> e.getEventType().getName().equals("banco.Persistir")
+                && e.getInt("transacoes") > 0 && e.getLong("bytes") > 0));
+    }
+
+    @Test
+    void esperaPorTravaOcupadaDeveGerarEvento() throws Exception {
+        ReentrantLock trava = new ReentrantLock();
+        List<RecordedEvent> eventos = gravar(() -> {
+            trava.lock();
+            Thread outra = new Thread(() -> {
+                EventosBanco.travar(trava, "teste", "66661");
+                trava.unlock();
+            });
+            outra.start();
+            while (!trava.hasQueuedThreads()) {
+                Thread.onSpinWait();
+            }
+            trava.unlock();
+            outra.join();
+        });
+
+        assertTrue(eventos.stream().anyMatch(e -> e.getEventType().getName().equals("banco.EsperaTrava")
+                && "teste".equals(e.getString("trava")) && "66661".equals(e.getString("conta"))));
+    }
+
+    private interface Trabalho {
+        void executar() throws Exception;
+    }
+
+    private static List<RecordedEvent> gravar(Trabalho trabalho) throws Exception {
+        Path arquivo = Files.createTempFile("banco", ".jfr");
+        try (Recording gravacao = new Recording()) {
+            for (String evento : List.of("Transferencia", "SalvarConta", "Persistir", "EsperaTrava")) {
+                gravacao.enable("banco." + evento).withThreshold(Duration.ZERO);
+            }
+            gravacao.start();
+            trabalho.executar();
+            gravacao.stop();
+            gravacao.dump(arquivo);
+            return RecordingFile.readAllEvents(arquivo);
+        } finally {
+            Files.deleteIfExists(arquivo);
+        }
+    }
+}
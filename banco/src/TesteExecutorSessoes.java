@@ -0,0 +1,57 @@
+import org.junit.jupiter.api.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TesteExecutorSessoes {
+    private static final int SESSOES = 200;
+
+    private BankSingleton bank;
+
+    @BeforeEach
+    void setUp() {
+        bank = BankSingleton.getInstance();
+        bank.recriarConta("44444", "NORMAL", "sessoes", "1234");
+    }
+
+    @Test
+    void sessoesSimultaneasDevemRodarCadaUmaNaSuaThread() {
+        ExecutorSessoes sessoes = bank.getSessoes();
+        List<CompletableFuture<Void>> execucoes = new ArrayList<>();
+        for (int i = 0; i < SESSOES; i++) {
+            execucoes.add(sessoes.abrir(bank, "44444", "1234", sessao -> sessao.deposito(1)));
+        }
+        CompletableFuture.allOf(execucoes.toArray(new CompletableFuture<?>[0])).join();
+
+        assertEquals(SESSOES * 100L, bank.buscarConta("44444").getSaldoCentavos());
+        assertEquals(0, sessoes.getSessoesAtivas());
+    }
+
+    @Test
+    void sessaoDeveSerEncerradaAoFimDoTrabalho() {
+        SessaoBancaria sessao = bank.abrirSessao("44444", "1234");
+        bank.getSessoes().iniciar(sessao, s -> assertTrue(s.isAtiva())).join();
+        assertFalse(sessao.isAtiva());
+
+        CompletionException erro = assertThrows(CompletionException.class,
+                () -> bank.getSessoes().abrir(bank, "44444", "0000", s -> fail("Não deve autenticar")).join());
+        assertInstanceOf(IllegalArgumentException.class, erro.getCause());
+    }
+
+    @Test
+    void observerDoExtratoDeveSairDoBarramentoComAUltimaSessao() {
+        BarramentoEventos eventos = bank.getEventos();
+        int antes = eventos.getAssinantes();
+        SessaoBancaria primeira = bank.abrirSessao("44444", "1234");
+        SessaoBancaria segunda = bank.abrirSessao("44444", "1234");
+        assertEquals(antes + 1, eventos.getAssinantes(), "Sessões da mesma conta dividem um observer");
+
+        primeira.encerrar();
+        primeira.encerrar();
+        assertEquals(antes + 1, eventos.getAssinantes(), "A outra sessão ainda usa o observer");
+        segunda.encerrar();
+        assertEquals(antes, eventos.getAssinantes());
+    }
+}
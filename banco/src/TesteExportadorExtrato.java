@@ -0,0 +1,77 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TesteExportadorExtrato {
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+    @TempDir
+    Path diretorio;
+
+    private JournalTransacoes journal;
+    private ExportadorExtrato exportador;
+
+    @BeforeEach
+    void setUp() {
+        journal = new JournalTransacoes(diretorio);
+        List<Transacao> transacoes = new ArrayList<>();
+        // Mais de dois blocos do arquivo compactado quando arquivadas
+        for (int i = 0; i < 2500; i++) {
+            transacoes.add(new Transacao(INICIO.plusMinutes(i), Transacao.TipoTransacao.DEPOSITO, 100 + i,
+                    "Depósito \"especial\"", "70001", null));
+        }
+        transacoes.add(new Transacao(INICIO.plusDays(10), Transacao.TipoTransacao.SAQUE, -5005,
+                "Saque", "70001", null));
+        journal.anexar("70001", transacoes);
+        exportador = new ExportadorExtrato(journal::percorrer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.fechar();
+    }
+
+    @Test
+    void csvDeveConterTodasAsTransacoesEmOrdem() throws Exception {
+        Path arquivo = diretorio.resolve("extrato.csv");
+        assertEquals(2501, exportador.exportar(ConsultaExtrato.daConta("70001"), ExportadorExtrato.Formato.CSV, arquivo));
+
+        List<String> linhas = Files.readAllLines(arquivo, StandardCharsets.UTF_8);
+        assertEquals(2502, linhas.size());
+        assertEquals("data,tipo,valor,descricao,origem,destino", linhas.get(0));
+        assertEquals("2024-01-01 08:00:00,DEPOSITO,1.00,\"Depósito \"\"especial\"\"\",70001,", linhas.get(1));
+        assertEquals("2024-01-03 01:39:00,DEPOSITO,25.99,\"Depósito \"\"especial\"\"\",70001,", linhas.get(2500));
+        assertEquals("2024-01-11 08:00:00,SAQUE,-50.05,\"Saque\",70001,", linhas.get(2501));
+    }
+
+    @Test
+    void csvDevePercorrerArquivoCompactadoESegmento() throws Exception {
+        assertEquals(2100, journal.arquivar("70001", INICIO.plusMinutes(2100)));
+        Path arquivo = diretorio.resolve("extrato.csv");
+        ConsultaExtrato consulta = ConsultaExtrato.daConta("70001").de(INICIO.plusMinutes(1000));
+        assertEquals(1501, exportador.exportar(consulta, ExportadorExtrato.Formato.CSV, arquivo));
+
+        List<String> linhas = Files.readAllLines(arquivo, StandardCharsets.UTF_8);
+        assertEquals("2024-01-02 00:40:00,DEPOSITO,11.00,\"Depósito \"\"especial\"\"\",70001,", linhas.get(1));
+        assertEquals("2024-01-02 19:00:00,DEPOSITO,22.00,\"Depósito \"\"especial\"\"\",70001,", linhas.get(1101));
+        assertEquals("2024-01-11 08:00:00,SAQUE,-50.05,\"Saque\",70001,", linhas.get(1501));
+    }
+
+    @Test
+    void textoDeveSerPaginadoComTotais() throws Exception {
+        Path arquivo = diretorio.resolve("extrato.txt");
+        exportador.exportar(ConsultaExtrato.daConta("70001"), ExportadorExtrato.Formato.TEXTO, arquivo);
+
+        String texto = Files.readString(arquivo, StandardCharsets.UTF_8);
+        assertEquals(2501 / 55, texto.chars().filter(c -> c == '\f').count(), "Uma quebra a cada 55 linhas");
+        assertTrue(texto.contains("Página 46"));
+        assertTrue(texto.endsWith("Transações: 2501   Créditos: R$ 33737.50   Débitos: R$ -50.05\n"));
+        texto.lines().filter(l -> l.startsWith("01/01/2024")).forEach(l -> assertEquals(80, l.length()));
+    }
+}
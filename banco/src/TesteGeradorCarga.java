@@ -0,0 +1,37 @@
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TesteGeradorCarga {
+
+    @Test
+    void histogramaDeveManterOErroRelativoDosPercentis() {
+        HistogramaLatencia histograma = new HistogramaLatencia();
+        for (long valor = 1; valor <= 1_000_000; valor++) {
+            histograma.registrar(valor * 1000);
+        }
+
+        assertEquals(1_000_000, histograma.getTotal());
+        assertEquals(1_000_000_000L, histograma.getMaximo());
+        for (double p : new double[] {0.5, 0.99, 0.999}) {
+            double esperado = p * 1_000_000_000L;
+            assertEquals(esperado, histograma.percentil(p), esperado / 64, "Percentil " + p);
+        }
+        assertEquals(1_000_000_000L, histograma.percentil(1.0));
+    }
+
+    @Test
+    void cargaDeveExecutarAMisturaSemErros() {
+        GeradorCarga.Configuracao configuracao = GeradorCarga.Configuracao.padrao()
+                .contas(20).threads(4).operacoesPorThread(250).zipf(1.2);
+        GeradorCarga carga = new GeradorCarga(BankSingleton.getInstance(), configuracao);
+        carga.criarContas();
+        GeradorCarga.Resultado resultado = carga.executar();
+
+        assertEquals(1000, resultado.total().getTotal());
+        for (GeradorCarga.Operacao operacao : GeradorCarga.Operacao.values()) {
+            assertEquals(0, resultado.getErros(operacao), "Erros em " + operacao);
+        }
+        assertTrue(resultado.getHistograma(GeradorCarga.Operacao.DEPOSITO).getTotal()
+                > resultado.getHistograma(GeradorCarga.Operacao.GERENTE).getTotal());
+    }
+}
@@ -0,0 +1,84 @@
+import org.junit.jupiter.api.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TesteGravadorAssincrono {
+    private final List<Long> saldosGravados = Collections.synchronizedList(new ArrayList<>());
+    private final List<Transacao> transacoesGravadas = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch discoOcupado = new CountDownLatch(1);
+    private final CountDownLatch liberarDisco = new CountDownLatch(1);
+    private GravadorAssincrono gravador;
+
+    @BeforeEach
+    void setup() {
+        // A sincronização fica presa até o teste liberar, acumulando os pedidos seguintes na fila
+        gravador = new GravadorAssincrono(64,
+                (contas, transacoes) -> {
+                    contas.forEach(conta -> saldosGravados.add(conta.getSaldoCentavos()));
+                    transacoes.values().forEach(transacoesGravadas::addAll);
+                },
+                () -> {
+                    discoOcupado.countDown();
+                    try {
+                        liberarDisco.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+    }
+
+    private void ocuparDisco() throws InterruptedException {
+        gravador.barreira();
+        assertTrue(discoOcupado.await(5, TimeUnit.SECONDS));
+    }
+
+    @AfterEach
+    void encerrar() {
+        liberarDisco.countDown();
+        gravador.encerrar();
+    }
+
+    @Test
+    void gravacoesDaMesmaContaDevemSerAgrupadasEOsFuturesConcluidos() throws InterruptedException {
+        ocuparDisco();
+        ContaBancaria conta = new ContaBancaria("40001", "NORMAL", "async", "1234");
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (long saldo = 1; saldo <= 50; saldo++) {
+            conta.setSaldoCentavos(saldo);
+            futures.add(gravador.gravarConta(conta));
+        }
+
+        // Antes da gravação, a versão pendente é a mais recente
+        assertEquals(50, gravador.contaPendente("40001").getSaldoCentavos());
+        assertFalse(futures.get(49).isDone(), "Nada foi sincronizado ainda");
+
+        liberarDisco.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+        assertEquals(List.of(50L), saldosGravados, "Gravações repetidas da conta devem virar uma só escrita");
+        assertNull(gravador.contaPendente("40001"));
+    }
+
+    @Test
+    void transacoesDevemSerAnexadasNaOrdem() throws InterruptedException {
+        ocuparDisco();
+        for (int i = 1; i <= 10; i++) {
+            gravador.anexarTransacoes("40002", List.of(new Transacao(
+                    Transacao.TipoTransacao.DEPOSITO, i, "Depósito em conta", "40002", null)));
+        }
+        assertTrue(gravador.temTransacoesPendentes("40002"));
+
+        liberarDisco.countDown();
+        gravador.barreira().join();
+
+        assertFalse(gravador.temTransacoesPendentes("40002"));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i + 1, transacoesGravadas.get(i).getValorCentavos());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TesteJournalTransacoes {
+    private static final LocalDateTime HOJE = LocalDateTime.of(2024, 12, 22, 12, 0);
+
+    @TempDir
+    Path diretorio;
+
+    private JournalTransacoes journal;
+
+    @BeforeEach
+    void setUp() {
+        journal = new JournalTransacoes(diretorio);
+        List<Transacao> transacoes = new ArrayList<>();
+        for (int dias = 9; dias >= 0; dias--) {
+            transacoes.add(deposito(HOJE.minusDays(dias), 10 - dias));
+        }
+        journal.anexar("60001", transacoes);
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.fechar();
+    }
+
+    @Test
+    void arquivarDeveManterOHistoricoCompletoComSegmentoMenor() throws Exception {
+        long tamanhoAntes = journal.tamanhoSegmento("60001");
+
+        assertEquals(7, journal.arquivar("60001", HOJE.minusDays(2)));
+        assertEquals(tamanhoAntes - 7 * JournalTransacoes.TAMANHO_REGISTRO, journal.tamanhoSegmento("60001"));
+        assertTrue(Files.exists(diretorio.resolve("60001" + JournalTransacoes.EXTENSAO_ARQUIVO)));
+        assertEquals(0, journal.arquivar("60001", HOJE.minusDays(2)), "Nada mais a arquivar");
+
+        journal.anexar("60001", deposito(HOJE.plusDays(1), 11));
+        List<Transacao> historico = journal.ler("60001");
+        assertEquals(11, historico.size());
+        for (int i = 0; i < historico.size(); i++) {
+            assertEquals(i + 1, historico.get(i).getValorCentavos(), "O histórico deve continuar em ordem");
+            assertEquals(i + 1, historico.get(i).getSequencia(), "A numeração deve atravessar o arquivo");
+        }
+        assertEquals(11, journal.sequencia("60001"));
+    }
+
+    @Test
+    void arquivarDeveAnexarBlocosSemReescreverOsAnteriores() throws Exception {
+        Path compactado = diretorio.resolve("60001" + JournalTransacoes.EXTENSAO_ARQUIVO);
+        assertEquals(4, journal.arquivar("60001", HOJE.minusDays(5)));
+        byte[] antes = Files.readAllBytes(compactado);
+        // Bloco de uma anexação interrompida: além da quantidade do cabeçalho, deve ser descartado
+        Files.write(compactado, new byte[] {1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+
+        assertEquals(3, journal.arquivar("60001", HOJE.minusDays(2)));
+        byte[] depois = Files.readAllBytes(compactado);
+        for (int i = 20; i < antes.length; i++) {
+            assertEquals(antes[i], depois[i], "Os blocos já arquivados não devem ser reescritos");
+        }
+        ArquivoTransacoes arquivo = ArquivoTransacoes.abrir(compactado);
+        assertEquals(2, arquivo.blocos());
+        assertEquals(7, arquivo.quantidade());
+
+        List<Transacao> historico = journal.ler("60001");
+        assertEquals(10, historico.size());
+        for (int i = 0; i < historico.size(); i++) {
+            assertEquals(i + 1, historico.get(i).getValorCentavos());
+        }
+    }
+
+    @Test
+    void quedaAntesDeReescreverOSegmentoNaoDeveDuplicarTransacoes() throws Exception {
+        // Arquivo gravado com as 3 mais antigas, segmento ainda com as 10
+        List<Transacao> historico = journal.ler("60001");
+        ByteBuffer antigas = ByteBuffer.allocate(3 * JournalTransacoes.TAMANHO_REGISTRO);
+        historico.subList(0, 3).forEach(transacao -> journal.codec().codificar(transacao, antigas));
+        ArquivoTransacoes.gravar(diretorio.resolve("60001" + JournalTransacoes.EXTENSAO_ARQUIVO),
+                HOJE.minusDays(6).toInstant(ZoneOffset.UTC).toEpochMilli(), antigas.array());
+
+        assertEquals(10, journal.ler("60001").size());
+        assertEquals(10, journal.sequencia("60001"), "Sobras do arquivamento não contam na sequência");
+        assertEquals(4, journal.arquivar("60001", HOJE.minusDays(2)));
+        assertEquals(10, journal.ler("60001").size());
+    }
+
+    @Test
+    void consultaDevePaginarPorPeriodoComCursor() {
+        // Dias -9..-6 no arquivo compactado, o resto no segmento: as páginas atravessam os dois
+        journal.arquivar("60001", HOJE.minusDays(5));
+        ConsultaExtrato consulta = ConsultaExtrato.daConta("60001").de(HOJE.minusDays(8)).ate(HOJE).limite(3);
+
+        List<Long> valores = new ArrayList<>();
+        PaginaExtrato pagina = journal.consultar(consulta);
+        int paginas = 1;
+        pagina.getTransacoes().forEach(t -> valores.add(t.getValorCentavos()));
+        while (pagina.temProxima()) {
+            pagina = journal.consultar(consulta.aPartirDe(pagina.getProximoCursor()));
+            pagina.getTransacoes().forEach(t -> valores.add(t.getValorCentavos()));
+            paginas++;
+        }
+
+        assertEquals(List.of(2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L), valores);
+        assertEquals(3, paginas);
+    }
+
+    @Test
+    void consultaDeveFiltrarPorTipoEUsarOIndiceEmSegmentosGrandes() {
+        List<Transacao> muitas = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            muitas.add(new Transacao(HOJE.plusMinutes(i), i % 2 == 0
+                    ? Transacao.TipoTransacao.DEPOSITO : Transacao.TipoTransacao.SAQUE, i, "Saque", null, null));
+        }
+        journal.anexar("60002", muitas.subList(0, 500));
+        journal.consultar(ConsultaExtrato.daConta("60002")); // índice já construído, mantido nas anexações
+        journal.anexar("60002", muitas.subList(500, 1000));
+
+        PaginaExtrato pagina = journal.consultar(ConsultaExtrato.daConta("60002")
+                .de(HOJE.plusMinutes(700)).tipos(Transacao.TipoTransacao.SAQUE).limite(5));
+        List<Long> valores = new ArrayList<>();
+        pagina.getTransacoes().forEach(t -> valores.add(t.getValorCentavos()));
+        assertEquals(List.of(701L, 703L, 705L, 707L, 709L), valores);
+        assertTrue(pagina.temProxima());
+    }
+
+    @Test
+    void anexacoesConcorrentesEmMuitasContasNaoDevemSePerder() throws Exception {
+        // Mais contas que canais abertos: a LRU fecha canais enquanto outras threads gravam
+        int contas = 400;
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            int primeira = t;
+            threads[t] = new Thread(() -> {
+                for (int rodada = 0; rodada < 5; rodada++) {
+                    for (int conta = primeira; conta < contas; conta += threads.length) {
+                        journal.anexar(String.valueOf(70000 + conta), deposito(HOJE.plusMinutes(rodada), rodada + 1));
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        journal.sincronizar();
+
+        for (int conta = 0; conta < contas; conta++) {
+            assertEquals(5, journal.sequencia(String.valueOf(70000 + conta)));
+        }
+    }
+
+    @Test
+    void consultaNoArquivoDeveAtravessarBlocos() {
+        int total = ArquivoTransacoes.REGISTROS_POR_BLOCO * 2 + 500;
+        List<Transacao> muitas = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            muitas.add(deposito(HOJE.minusDays(30).plusMinutes(i), i));
+        }
+        journal.anexar("60003", muitas);
+        journal.arquivar("60003", HOJE.minusDays(30).plusMinutes(total - 100));
+
+        PaginaExtrato pagina = journal.consultar(ConsultaExtrato.daConta("60003")
+                .de(HOJE.minusDays(30).plusMinutes(1500)).limite(3));
+        assertEquals(List.of(1500L, 1501L, 1502L),
+                pagina.getTransacoes().stream().map(Transacao::getValorCentavos).toList());
+        assertEquals(1501, pagina.getTransacoes().get(0).getSequencia());
+
+        ConsultaExtrato todas = ConsultaExtrato.daConta("60003").limite(700);
+        pagina = journal.consultar(todas);
+        long esperado = 0;
+        while (true) {
+            for (Transacao transacao : pagina.getTransacoes()) {
+                assertEquals(esperado++, transacao.getValorCentavos());
+            }
+            if (!pagina.temProxima()) break;
+            pagina = journal.consultar(todas.aPartirDe(pagina.getProximoCursor()));
+        }
+        assertEquals(total, esperado);
+    }
+
+    private static Transacao deposito(LocalDateTime data, long centavos) {
+        return new Transacao(data, Transacao.TipoTransacao.DEPOSITO, centavos, "Depósito em conta", null, null);
+    }
+}
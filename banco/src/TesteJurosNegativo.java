@@ -0,0 +1,46 @@
+import org.junit.jupiter.api.*;
+import java.time.LocalDateTime;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TesteJurosNegativo {
+    private static final LocalDateTime DATA_BASE = LocalDateTime.of(2024, 12, 22, 10, 0);
+
+    private ContaBancaria conta;
+
+    @BeforeEach
+    void setUp() {
+        conta = new ContaBancaria("40001", "VIP", "juros", "1234");
+        conta.restaurarEstado(-10_000, DATA_BASE);
+    }
+
+    @Test
+    void jurosDevemSerCalculadosNaLeituraSemAlterarOSaldo() {
+        assertEquals(100, conta.jurosPendentes(DATA_BASE.plusMinutes(10).plusSeconds(30)),
+                "0,1% por minuto completo sobre R$ 100,00");
+        assertEquals(-10_000, conta.getSaldoCentavos());
+        assertEquals(DATA_BASE, conta.getUltimoSaqueNegativo());
+    }
+
+    @Test
+    void lancarJurosNaoDeveCobrarDuasVezesOMesmoPeriodo() {
+        LocalDateTime agora = DATA_BASE.plusMinutes(10).plusSeconds(30);
+        assertEquals(100, conta.lancarJuros(agora));
+        assertEquals(-10_100, conta.getSaldoCentavos());
+        assertEquals(DATA_BASE.plusMinutes(10), conta.getUltimoSaqueNegativo(),
+                "A fração de minuto continua acumulando");
+
+        assertEquals(0, conta.lancarJuros(agora), "Nada a lançar sem novo período");
+        assertEquals(101, conta.lancarJuros(agora.plusMinutes(10)), "Próximo período incide sobre o saldo lançado");
+    }
+
+    @Test
+    void alterarSaldoNegativoDeveManterADataBase() {
+        conta.lancarJuros(DATA_BASE.plusMinutes(5));
+        conta.setSaldoCentavos(conta.getSaldoCentavos() - 5_000);
+        assertEquals(DATA_BASE.plusMinutes(5), conta.getUltimoSaqueNegativo());
+
+        conta.setSaldoCentavos(0);
+        assertNull(conta.getUltimoSaqueNegativo());
+        assertEquals(0, conta.jurosPendentes(DATA_BASE.plusDays(1)));
+    }
+}
@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TesteLogRecuperacao {
+    @TempDir
+    Path diretorio;
+
+    private TabelaContas tabela;
+    private JournalTransacoes journal;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        tabela = new TabelaContas(diretorio.resolve("contas.tbl"));
+        journal = new JournalTransacoes(Files.createDirectories(diretorio.resolve("transacoes")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        tabela.fechar();
+        journal.fechar();
+    }
+
+    @Test
+    void deveReaplicarEntradasNaoAplicadasAntesDaQueda() {
+        ContaBancaria conta = new ContaBancaria("50001", "NORMAL", "wal", "1234");
+        conta.setSaldoCentavos(700);
+        // Queda entre a gravação no log e a aplicação: nada chega à tabela nem ao journal
+        new LogRecuperacao(diretorio, tabela, journal).registrar(List.of(conta),
+                Map.of("50001", List.of(deposito(700))), posicoes -> { });
+
+        assertEquals(1, new LogRecuperacao(diretorio, tabela, journal).recuperar());
+        assertEquals(700, tabela.ler("50001").getSaldoCentavos());
+        assertEquals(1, journal.ler("50001").size());
+
+        assertEquals(0, new LogRecuperacao(diretorio, tabela, journal).recuperar(),
+                "Entradas anteriores ao checkpoint não devem ser reaplicadas");
+        assertEquals(1, journal.ler("50001").size());
+    }
+
+    @Test
+    void reaplicarEntradaJaAplicadaNaoDeveDuplicarTransacoes() {
+        // Queda depois de o journal ser gravado, mas antes do checkpoint
+        new LogRecuperacao(diretorio, tabela, journal).registrar(List.of(),
+                Map.of("50002", List.of(deposito(100), deposito(200))),
+                posicoes -> journal.gravarEm("50002", posicoes.get("50002"), List.of(deposito(100), deposito(200))));
+
+        assertEquals(1, new LogRecuperacao(diretorio, tabela, journal).recuperar());
+        List<Transacao> historico = journal.ler("50002");
+        assertEquals(2, historico.size());
+        assertEquals(200, historico.get(1).getValorCentavos());
+    }
+
+    private static Transacao deposito(long centavos) {
+        return new Transacao(Transacao.TipoTransacao.DEPOSITO, centavos, "Depósito em conta", null, null);
+    }
+}
@@ -0,0 +1,41 @@
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TesteRegistroMetricas {
+    private final RegistroMetricas metricas = RegistroMetricas.getInstance();
+
+    @Test
+    void temporizadorDeveContarExecucoesEErros() {
+        RegistroMetricas.Temporizador temporizador = metricas.temporizador("teste_operacao", "Teste", "operacao", "x");
+        assertSame(temporizador, metricas.temporizador("teste_operacao", "Teste", "operacao", "x"));
+
+        temporizador.medir(() -> { });
+        assertThrows(IllegalStateException.class, () -> temporizador.medir(() -> {
+            throw new IllegalStateException("falha");
+        }));
+
+        assertEquals(2, temporizador.getLatencias().getTotal());
+        assertEquals(1, temporizador.getErros());
+        String exportado = metricas.exportarPrometheus();
+        assertTrue(exportado.contains("# TYPE teste_operacao_segundos summary"));
+        assertTrue(exportado.contains("teste_operacao_segundos_count{operacao=\"x\"} 2\n"));
+        assertTrue(exportado.contains("teste_operacao_erros_total{operacao=\"x\"} 1\n"));
+    }
+
+    @Test
+    void operacoesDoBancoDevemSerMedidas() {
+        BankSingleton bank = BankSingleton.getInstance();
+        bank.recriarConta("55555", "NORMAL", "metricas", "1234");
+        RegistroMetricas.Temporizador deposito = metricas.temporizador("banco_operacao",
+                "Operações do BankSingleton", "operacao", "deposito");
+        long antes = deposito.getLatencias().getTotal();
+        long errosAntes = deposito.getErros();
+
+        bank.deposito("55555", 1_000);
+        assertThrows(IllegalArgumentException.class, () -> bank.deposito("55555", -1));
+
+        assertEquals(antes + 2, deposito.getLatencias().getTotal());
+        assertEquals(errosAntes + 1, deposito.getErros());
+        assertTrue(metricas.exportarPrometheus().contains("banco_persistencia_segundos_count{chamada=\"salvarConta\"}"));
+    }
+}
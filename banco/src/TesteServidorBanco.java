@@ -0,0 +1,54 @@
+import org.junit.jupiter.api.*;
+import java.net.InetSocketAddress;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TesteServidorBanco {
+    private ServidorBanco servidor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        servidor = new ServidorBanco(BankSingleton.getInstance(), new InetSocketAddress("localhost", 0), 2, 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        servidor.encerrar();
+    }
+
+    @Test
+    void operacoesDevemSeguirAsRegrasDoBanco() {
+        BankSingleton.getInstance().recriarConta("33333", "NORMAL", "rede", "1234");
+        try (ClienteBanco cliente = new ClienteBanco("localhost", servidor.getPorta())) {
+            assertThrows(IllegalStateException.class, () -> cliente.criarConta("33333", "VIP", "outro", "0000"),
+                    "Criar uma conta com número já usado deve falhar");
+            assertThrows(IllegalStateException.class, cliente::saldo, "Operar sem login deve falhar");
+
+            cliente.login("33333", "1234");
+            assertTrue(BankSingleton.getInstance().getSessoes().getSessoesAtivas() >= 1,
+                    "A sessão logada deve rodar na sua thread do executor de sessões");
+            assertEquals(10_000, cliente.deposito(10_000));
+            assertEquals(7_500, cliente.saque(2_500));
+            IllegalStateException erro = assertThrows(IllegalStateException.class, () -> cliente.saque(20_000));
+            assertEquals("Saldo insuficiente!", erro.getMessage());
+            assertThrows(IllegalArgumentException.class, () -> cliente.deposito(-1));
+
+            PaginaExtrato pagina = cliente.extrato(null, ConsultaExtrato.LIMITE_MAXIMO, null);
+            List<Transacao> transacoes = pagina.getTransacoes();
+            assertEquals(List.of(Transacao.TipoTransacao.DEPOSITO, Transacao.TipoTransacao.SAQUE),
+                    transacoes.subList(transacoes.size() - 2, transacoes.size()).stream()
+                            .map(Transacao::getTipo).toList());
+        }
+    }
+
+    @Test
+    void cargaComVariasConexoesDeveSerAtendidaSemErros() throws Exception {
+        ClienteCarga carga = new ClienteCarga(new InetSocketAddress("localhost", servidor.getPorta()), 50, 20, 10);
+        carga.criarContas();
+        ClienteCarga.Resultado resultado = carga.executar();
+
+        assertEquals(1000, resultado.getRespostas());
+        assertEquals(0, resultado.getErros());
+        assertEquals(0, resultado.getFalhasDeConexao() + resultado.getFalhasDeLogin() + resultado.getNaoConcluidas());
+    }
+}
@@ -0,0 +1,97 @@
+import org.junit.jupiter.api.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TesteTransferenciaConcorrente {
+    private static final int THREADS = 8;
+    private static final int TRANSFERENCIAS_POR_THREAD = 300;
+    private static final float SALDO_INICIAL = 5000.0f;
+    private static final float TAXA_NORMAL = 8.0f;
+
+    // 30001 e 31025 caem na mesma faixa de trava (1024 faixas)
+    private static final String[] CONTAS = {"30001", "30002", "30003", "30004", "31025"};
+
+    private BankSingleton bank;
+
+    @BeforeEach
+    void setup() {
+        bank = BankSingleton.getInstance();
+        for (String conta : CONTAS) {
+            bank.recriarConta(conta, "NORMAL", "stress" + conta, "1234");
+            bank.abrirSessao(conta, "1234").deposito(SALDO_INICIAL);
+        }
+    }
+
+    @Test
+    void transferenciasConcorrentesDevemConservarODinheiro() {
+        AtomicInteger concluidas = new AtomicInteger();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                Random random = new Random(t);
+                tarefas.add(executor.submit(() -> {
+                    for (int i = 0; i < TRANSFERENCIAS_POR_THREAD; i++) {
+                        String origem = CONTAS[random.nextInt(CONTAS.length)];
+                        String destino = CONTAS[random.nextInt(CONTAS.length)];
+                        if (origem.equals(destino)) continue;
+                        try {
+                            bank.abrirSessao(origem, "1234").transferencia(destino, 1 + random.nextInt(50));
+                            concluidas.incrementAndGet();
+                        } catch (IllegalStateException e) {
+                            // Saldo insuficiente: a transferência é rejeitada inteira
+                        }
+                    }
+                }));
+            }
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+            executor.shutdown();
+        }, "Transferências concorrentes não devem entrar em deadlock");
+
+        float total = 0;
+        for (String conta : CONTAS) {
+            total += bank.abrirSessao(conta, "1234").getConta().getSaldo();
+        }
+        float taxasCobradas = concluidas.get() * TAXA_NORMAL;
+
+        assertTrue(concluidas.get() > 0, "Alguma transferência deve ter sido concluída");
+        assertEquals(SALDO_INICIAL * CONTAS.length, total + taxasCobradas, 0.001,
+                "Saldo total mais as taxas deve ser igual ao saldo inicial");
+    }
+
+    @Test
+    void transferenciasEmSentidosOpostosNaoDevemTravar() {
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            Future<?> ida = executor.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    bank.abrirSessao("30001", "1234").transferencia("31025", 1);
+                    bank.abrirSessao("30002", "1234").transferencia("30003", 1);
+                }
+            });
+            Future<?> volta = executor.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    bank.abrirSessao("31025", "1234").transferencia("30001", 1);
+                    bank.abrirSessao("30003", "1234").transferencia("30002", 1);
+                }
+            });
+            ida.get();
+            volta.get();
+            executor.shutdown();
+        }, "Transferências em sentidos opostos não devem entrar em deadlock");
+
+        // Cada conta enviou e recebeu 200 x R$ 1, pagando 200 taxas
+        for (String conta : new String[]{"30001", "30002", "30003", "31025"}) {
+            assertEquals(SALDO_INICIAL - 200 * TAXA_NORMAL,
+                    bank.abrirSessao(conta, "1234").getConta().getSaldo(), 0.001);
+        }
+    }
+}
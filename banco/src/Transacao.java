@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 
@@ -6,21 +8,30 @@ public class Transacao implements Serializable {
 
     public enum TipoTransacao {
         DEPOSITO, SAQUE, TRANSFERENCIA_ENVIADA, TRANSFERENCIA_RECEBIDA,
-        TAXA_TRANSFERENCIA, VISITA_GERENTE
+        TAXA_TRANSFERENCIA, VISITA_GERENTE, JUROS_SALDO_NEGATIVO
     }
 
-    private final LocalDateTime data;
-    private final TipoTransacao tipo;
-    private final float valor;
-    private final String descricao;
-    private final String contaOrigem;
-    private final String contaDestino;
+    // Não são final apenas por causa da leitura de arquivos legados em readObject
+    private LocalDateTime data;
+    private TipoTransacao tipo;
+    private long valorCentavos;
+    private String descricao;
+    private String contaOrigem;
+    private String contaDestino;
+    // Posição no extrato da conta (1, 2, 3...); 0 enquanto a transação não foi registrada
+    private transient long sequencia;
 
-    public Transacao(TipoTransacao tipo, float valor, String descricao,
+    public Transacao(TipoTransacao tipo, long valorCentavos, String descricao,
                      String contaOrigem, String contaDestino) {
-        this.data = LocalDateTime.now();
+        this(LocalDateTime.now(), tipo, valorCentavos, descricao, contaOrigem, contaDestino);
+    }
+
+    // Usado ao reconstruir transações já persistidas
+    public Transacao(LocalDateTime data, TipoTransacao tipo, long valorCentavos, String descricao,
+                     String contaOrigem, String contaDestino) {
+        this.data = data;
         this.tipo = tipo;
-        this.valor = valor;
+        this.valorCentavos = valorCentavos;
         this.descricao = descricao;
         this.contaOrigem = contaOrigem;
         this.contaDestino = contaDestino;
@@ -29,8 +40,29 @@ public class Transacao implements Serializable {
     // Getters
     public LocalDateTime getData() { return data; }
     public TipoTransacao getTipo() { return tipo; }
-    public float getValor() { return valor; }
+    public long getValorCentavos() { return valorCentavos; }
+    public float getValor() { return Dinheiro.paraReais(valorCentavos); }
     public String getDescricao() { return descricao; }
     public String getContaOrigem() { return contaOrigem; }
     public String getContaDestino() { return contaDestino; }
+    public long getSequencia() { return sequencia; }
+
+    void setSequencia(long sequencia) {
+        this.sequencia = sequencia;
+    }
+
+    /**
+     * Lê tanto o formato atual (valorCentavos) quanto transações serializadas com o antigo valor em float
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField campos = in.readFields();
+        data = (LocalDateTime) campos.get("data", null);
+        tipo = (TipoTransacao) campos.get("tipo", null);
+        descricao = (String) campos.get("descricao", null);
+        contaOrigem = (String) campos.get("contaOrigem", null);
+        contaDestino = (String) campos.get("contaDestino", null);
+        valorCentavos = campos.defaulted("valorCentavos")
+                ? Dinheiro.deReais(campos.get("valor", 0.0f))
+                : campos.get("valorCentavos", 0L);
+    }
 }
\ No newline at end of file
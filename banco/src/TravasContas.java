@@ -0,0 +1,98 @@
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Travas por conta distribuídas em faixas (lock striping)
+ * Cada número de conta é mapeado para uma trava fixa, então operações em contas
+ * diferentes normalmente não disputam a mesma trava
+ */
+public class TravasContas {
+    private static final int FAIXAS_PADRAO = 1024;
+
+    private final String nome;
+    private final ReentrantLock[] faixas;
+
+    public TravasContas() {
+        this(FAIXAS_PADRAO);
+    }
+
+    public TravasContas(int quantidadeFaixas) {
+        this("conta", quantidadeFaixas);
+    }
+
+    /**
+     * O nome identifica as travas nos eventos banco.EsperaTrava (conta, journal...)
+     */
+    public TravasContas(String nome, int quantidadeFaixas) {
+        this.nome = nome;
+        faixas = new ReentrantLock[quantidadeFaixas];
+        for (int i = 0; i < quantidadeFaixas; i++) {
+            faixas[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Índice da faixa que protege a conta
+     */
+    public int faixa(String numeroConta) {
+        return Integer.parseInt(numeroConta) % faixas.length;
+    }
+
+    /**
+     * Trava que protege a conta
+     */
+    public ReentrantLock trava(String numeroConta) {
+        return faixas[faixa(numeroConta)];
+    }
+
+    /**
+     * Adquire e retorna a trava da conta; uma espera por ela vira o evento JFR banco.EsperaTrava
+     */
+    public ReentrantLock travar(String numeroConta) {
+        ReentrantLock trava = trava(numeroConta);
+        EventosBanco.travar(trava, nome, numeroConta);
+        return trava;
+    }
+
+    /**
+     * Trava as faixas das contas sempre em ordem crescente de índice
+     * Como toda aquisição múltipla segue a mesma ordem, não há espera circular (deadlock).
+     * Contas que caem na mesma faixa são travadas uma única vez
+     */
+    public ReentrantLock[] travarEmOrdem(String... numerosConta) {
+        int[] indices = new int[numerosConta.length];
+        for (int i = 0; i < numerosConta.length; i++) {
+            indices[i] = faixa(numerosConta[i]);
+        }
+        int[] distintos = Arrays.stream(indices).sorted().distinct().toArray();
+
+        ReentrantLock[] travadas = new ReentrantLock[distintos.length];
+        int adquiridas = 0;
+        try {
+            for (int indice : distintos) {
+                EventosBanco.travar(faixas[indice], nome, contaDaFaixa(numerosConta, indices, indice));
+                travadas[adquiridas++] = faixas[indice];
+            }
+        } catch (RuntimeException | Error e) {
+            destravar(Arrays.copyOf(travadas, adquiridas));
+            throw e;
+        }
+        return travadas;
+    }
+
+    private static String contaDaFaixa(String[] numerosConta, int[] indices, int indice) {
+        for (int i = 0; i < indices.length; i++) {
+            if (indices[i] == indice) return numerosConta[i];
+        }
+        return null;
+    }
+
+    /**
+     * Libera as travas obtidas por travarEmOrdem, na ordem inversa
+     */
+    public static void destravar(ReentrantLock[] travadas) {
+        for (int i = travadas.length - 1; i >= 0; i--) {
+            travadas[i].unlock();
+        }
+    }
+}